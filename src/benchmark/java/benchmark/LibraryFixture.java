@@ -0,0 +1,115 @@
+package benchmark;
+
+import config.AppConfig;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import repository.UserRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Kontekst Springa na osobnej bazie H2 w pamięci, wypełniony syntetycznym
+ * katalogiem i historią wypożyczeń o zadanych rozmiarach. Dane są
+ * deterministyczne (stałe ziarno), więc kolejne uruchomienia są porównywalne.
+ * Silnik "inmemory" wczytuje te same dane z H2 do magazynu w pamięci.
+ */
+final class LibraryFixture implements AutoCloseable {
+
+    final AnnotationConfigApplicationContext context;
+    final int[] userIds;
+    final int firstBookId;
+    final int lastBookId;
+    private final Path dataDir;
+
+    private LibraryFixture(AnnotationConfigApplicationContext context, int[] userIds, int firstBookId, int lastBookId, Path dataDir) {
+        this.context = context;
+        this.userIds = userIds;
+        this.firstBookId = firstBookId;
+        this.lastBookId = lastBookId;
+        this.dataDir = dataDir;
+    }
+
+    static LibraryFixture create(int catalogSize, int loanHistory) {
+        return create(catalogSize, loanHistory, "jdbc");
+    }
+
+    // Benchmarki losują kryteria z małej puli, więc z włączonym cache stron po rozgrzewce mierzyłyby trafienia.
+    static LibraryFixture create(int catalogSize, int loanHistory, String engine) {
+        System.setProperty("search.cache.max-entries", "0");
+        try {
+            return createUncached(catalogSize, loanHistory, engine);
+        } finally {
+            System.clearProperty("search.cache.max-entries");
+        }
+    }
+
+    private static LibraryFixture createUncached(int catalogSize, int loanHistory, String engine) {
+        String url = "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        AnnotationConfigApplicationContext context = startContext(url);
+
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(context, 42);
+        int[] books = generator.addBooks(catalogSize);
+        UserRepository userRepo = context.getBean(UserRepository.class);
+        int[] userIds = {
+                userRepo.findByUsername("user").orElseThrow().getId(),
+                userRepo.findByUsername("user2").orElseThrow().getId()
+        };
+        generator.addLoanHistory(loanHistory, userIds, books);
+        if (!"inmemory".equals(engine)) {
+            return new LibraryFixture(context, userIds, books[0], books[1], null);
+        }
+        context.close();
+        try {
+            Path dataDir = Files.createTempDirectory("bench-store");
+            return new LibraryFixture(startInMemoryContext(url, dataDir), userIds, books[0], books[1], dataDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Okresowe uzgadnianie statystyk wyłączamy, żeby nie zakłócało pomiarów.
+    static AnnotationConfigApplicationContext startContext(String url) {
+        System.setProperty("db.url", url);
+        System.setProperty("stats.reconcile-interval-seconds", "0");
+        try {
+            return new AnnotationConfigApplicationContext(AppConfig.class);
+        } finally {
+            System.clearProperty("db.url");
+            System.clearProperty("stats.reconcile-interval-seconds");
+        }
+    }
+
+    static AnnotationConfigApplicationContext startInMemoryContext(String url, Path dataDir) {
+        System.setProperty("spring.profiles.active", "inmemory");
+        System.setProperty("inmemory.data-dir", dataDir.toString());
+        System.setProperty("inmemory.snapshot-interval-seconds", "0");
+        try {
+            return startContext(url);
+        } finally {
+            System.clearProperty("spring.profiles.active");
+            System.clearProperty("inmemory.data-dir");
+            System.clearProperty("inmemory.snapshot-interval-seconds");
+        }
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        if (dataDir != null) {
+            try (Stream<Path> files = Files.walk(dataDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.AuthService;
+import service.LibraryService;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LibraryServiceBenchmark {
+
+    @Param({"1000", "50000"})
+    public int catalogSize;
+
+    @Param({"10000", "100000"})
+    public int loanHistory;
+
+    @Param({"jdbc", "inmemory"})
+    public String engine;
+
+    private LibraryFixture fixture;
+    private LibraryService libraryService;
+    private AuthService authService;
+    private int userId;
+    private int nextBookId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = LibraryFixture.create(catalogSize, loanHistory, engine);
+        libraryService = fixture.bean(LibraryService.class);
+        authService = fixture.bean(AuthService.class);
+        userId = fixture.userIds[0];
+        nextBookId = fixture.firstBookId;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    // Pełny cykl: wypożyczenie i zwrot kolejnej książki z katalogu.
+    @Benchmark
+    public boolean rentReturnCycle() {
+        int bookId = nextBookId;
+        nextBookId = bookId == fixture.lastBookId ? fixture.firstBookId : bookId + 1;
+        if (!libraryService.rentBook(userId, bookId).success()) {
+            throw new IllegalStateException("Nie udało się wypożyczyć książki " + bookId);
+        }
+        return libraryService.returnBook(bookId, userId);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String login() {
+        String token = authService.login("user", "user123").orElseThrow();
+        authService.logout(token);
+        return token;
+    }
+}
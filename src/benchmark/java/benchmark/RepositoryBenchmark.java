@@ -0,0 +1,133 @@
+package benchmark;
+
+import model.Book;
+import model.SearchCriteria;
+import model.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import repository.BookBitmapIndex;
+import repository.BookRepository;
+import repository.BookRepositoryImpl;
+import repository.BookSearchIndex;
+import repository.LoanRepository;
+import stats.LibraryStatistics;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @Param({"1000", "50000"})
+    public int catalogSize;
+
+    @Param({"10000", "100000"})
+    public int loanHistory;
+
+    private LibraryFixture fixture;
+    private BookRepository bookRepo;
+    private BookRepositoryImpl bookRepoImpl;
+    private BookRepositoryImpl cachedBookRepoImpl;
+    private LoanRepository loanRepo;
+    private LibraryStatistics stats;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = LibraryFixture.create(catalogSize, loanHistory);
+        bookRepo = fixture.bean(BookRepository.class);
+        bookRepoImpl = fixture.bean(BookRepositoryImpl.class);
+        loanRepo = fixture.bean(LoanRepository.class);
+        stats = fixture.bean(LibraryStatistics.class);
+        // Fikstura wyłącza cache stron; ta instancja ma domyślny, żeby zmierzyć też trafienia.
+        cachedBookRepoImpl = new BookRepositoryImpl(fixture.bean(DataSource.class), fixture.bean(BookSearchIndex.class),
+                fixture.bean(BookBitmapIndex.class), stats, 256, 30);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public List<Book> searchBooksByText() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String query = SyntheticDataGenerator.WORDS[random.nextInt(SyntheticDataGenerator.WORDS.length)] + " "
+                + SyntheticDataGenerator.WORDS[random.nextInt(SyntheticDataGenerator.WORDS.length)];
+        return bookRepoImpl.searchBooks(query);
+    }
+
+    @Benchmark
+    public List<Book> searchBooksByCriteria() {
+        return bookRepoImpl.searchBooks(randomCriteria());
+    }
+
+    @Benchmark
+    public int countBooks() {
+        return bookRepoImpl.countBooks(randomCriteria());
+    }
+
+    @Benchmark
+    public SearchResult searchPage() {
+        return bookRepoImpl.searchPage(randomCriteria());
+    }
+
+    @Benchmark
+    public SearchResult searchPageCached() {
+        return cachedBookRepoImpl.searchPage(randomCriteria());
+    }
+
+    @Benchmark
+    public Optional<Book> findByIdUncached() {
+        return bookRepoImpl.findById(randomBookId());
+    }
+
+    @Benchmark
+    public Optional<Book> findByIdCached() {
+        return bookRepo.findById(randomBookId());
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Long>> mostLoanedBooksSql() {
+        return loanRepo.getMostLoanedBooks(5);
+    }
+
+    @Benchmark
+    public List<Map.Entry<String, Long>> mostLoanedBooksInMemory() {
+        return stats.getMostLoanedBooks(5);
+    }
+
+    private SearchCriteria randomCriteria() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return SearchCriteria.builder()
+                .author(SyntheticDataGenerator.SURNAMES[random.nextInt(SyntheticDataGenerator.SURNAMES.length)])
+                .sortBy("title")
+                .sortOrder("ASC")
+                .page(random.nextInt(5))
+                .pageSize(20)
+                .build();
+    }
+
+    private int randomBookId() {
+        return ThreadLocalRandom.current().nextInt(fixture.firstBookId, fixture.lastBookId + 1);
+    }
+}
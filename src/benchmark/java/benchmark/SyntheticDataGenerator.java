@@ -0,0 +1,152 @@
+package benchmark;
+
+import model.Book;
+import model.Category;
+import org.springframework.context.ApplicationContext;
+import repository.BookRepository;
+import repository.CategoryRepository;
+import security.PasswordHasher;
+import stats.LibraryStatistics;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Rozszerza dane z DataInitializer o syntetycznych czytelników, katalog i historię
+ * wypożyczeń w skali milionów wierszy. Wszystko jest wstawiane wsadowo, a losowanie
+ * korzysta z przekazanego ziarna, więc ten sam seed daje te same dane.
+ */
+final class SyntheticDataGenerator {
+
+    static final String[] WORDS = {
+            "wojna", "pokój", "miasto", "noc", "dzień", "morze", "góry", "las", "zamek", "król",
+            "cień", "ogień", "woda", "droga", "dom", "wiatr", "sen", "czas", "słońce", "księżyc"
+    };
+    static final String[] SURNAMES = {
+            "Kowalski", "Nowak", "Wiśniewski", "Wójcik", "Kowalczyk", "Kamiński", "Lewandowski", "Zieliński"
+    };
+    static final String PASSWORD = "haslo123";
+
+    private static final int CHUNK = 1000;
+
+    private final ApplicationContext context;
+    private final DataSource dataSource;
+    private final Random random;
+
+    SyntheticDataGenerator(ApplicationContext context, long seed) {
+        this.context = context;
+        this.dataSource = context.getBean(DataSource.class);
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Dodaje czytelników sim{n} z tym samym hasłem; hash jest liczony tylko raz.
+     * Zwraca identyfikatory od pierwszego do ostatniego włącznie.
+     */
+    int[] addUsers(int count) {
+        String hash = context.getBean(PasswordHasher.class).hash(PASSWORD);
+        String sql = "INSERT INTO users (username, password, first_name, last_name, email, role) VALUES (?, ?, ?, ?, ?, 'USER')";
+        int offset = maxId("users");
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 1; i <= count; i++) {
+                String username = "sim" + (offset + i);
+                stmt.setString(1, username);
+                stmt.setString(2, hash);
+                stmt.setString(3, "Czytelnik");
+                stmt.setString(4, SURNAMES[random.nextInt(SURNAMES.length)]);
+                stmt.setString(5, username + "@biblioteka.example");
+                stmt.addBatch();
+                if (i % CHUNK == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas generowania użytkowników", e);
+        }
+        return new int[]{offset + 1, maxId("users")};
+    }
+
+    int[] addBooks(int count) {
+        List<Integer> categoryIds = ensureCategories(20);
+        BookRepository bookRepo = context.getBean(BookRepository.class);
+        int offset = maxId("books");
+        List<Book> chunk = new ArrayList<>(CHUNK);
+        for (int i = 0; i < count; i++) {
+            chunk.add(Book.builder()
+                    .title(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + (offset + i))
+                    .author(SURNAMES[random.nextInt(SURNAMES.length)] + " " + (i % 500))
+                    .publicationYear(1900 + random.nextInt(125))
+                    .isbn("978" + String.format("%010d", offset + i))
+                    .categoryId(categoryIds.get(random.nextInt(categoryIds.size())))
+                    .status("AVAILABLE")
+                    .build());
+            if (chunk.size() == CHUNK) {
+                bookRepo.addBooks(chunk);
+                chunk.clear();
+            }
+        }
+        bookRepo.addBooks(chunk);
+        return new int[]{offset + 1, maxId("books")};
+    }
+
+    // Historia jest wstawiana bezpośrednio: wszystkie wypożyczenia są już zwrócone.
+    void addLoanHistory(int count, int[] userIds, int[] bookRange) {
+        String sql = "INSERT INTO loans (user_id, book_id, loan_date, return_date) VALUES (?, ?, ?, ?)";
+        LocalDateTime now = LocalDateTime.now();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                LocalDateTime loanDate = now.minusMinutes(random.nextInt(365 * 24 * 60));
+                stmt.setInt(1, userIds[random.nextInt(userIds.length)]);
+                stmt.setInt(2, skewedBook(random, bookRange));
+                stmt.setTimestamp(3, Timestamp.valueOf(loanDate));
+                stmt.setTimestamp(4, Timestamp.valueOf(loanDate.plusDays(14)));
+                stmt.addBatch();
+                if ((i + 1) % CHUNK == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas generowania historii wypożyczeń", e);
+        }
+        context.getBean(LibraryStatistics.class).reconcile();
+    }
+
+    // Popularność tytułów jest nierówna: niskie identyfikatory są wypożyczane częściej.
+    static int skewedBook(Random random, int[] bookRange) {
+        int bound = bookRange[1] - bookRange[0] + 1;
+        double u = random.nextDouble();
+        return bookRange[0] + Math.min(bound - 1, (int) (bound * u * u * u));
+    }
+
+    private List<Integer> ensureCategories(int count) {
+        CategoryRepository catRepo = context.getBean(CategoryRepository.class);
+        for (int i = catRepo.getAllCategories().size(); i < count; i++) {
+            catRepo.addCategory("Kategoria " + (i + 1));
+        }
+        return catRepo.getAllCategories().stream().map(Category::getId).toList();
+    }
+
+    private int maxId(String table) {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas odczytu największego identyfikatora", e);
+        }
+    }
+}
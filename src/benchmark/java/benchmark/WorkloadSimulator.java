@@ -0,0 +1,272 @@
+package benchmark;
+
+import metrics.LatencyHistogram;
+import model.Book;
+import model.SearchCriteria;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import repository.BookRepository;
+import repository.LoanRepository;
+import repository.ReservationRepository;
+import service.AuthService;
+import service.LibraryService;
+import stats.LibraryStatistics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Symulator obciążenia: N czytelników i M bibliotekarzy wykonuje losową mieszankę
+ * operacji na kontekście z AppConfig, a na końcu drukowana jest przepustowość
+ * oraz percentyle opóźnień dla każdego typu operacji.
+ *
+ * <pre>
+ * mvn -P benchmarks package exec:exec@simulate -DskipTests -Dsim.args="--patrons=32 --clerks=4 --books=1000000"
+ * </pre>
+ *
+ * Każdy wątek losuje z własnego ziarna (seed + numer wątku), więc przy
+ * {@code --ops-per-worker} sekwencja operacji jest powtarzalna.
+ */
+public class WorkloadSimulator {
+
+    enum Operation { SEARCH, RENT, RESERVE, RETURN, LOGIN, STATS }
+
+    // Wypożyczenia wykonane podczas symulacji, czekające na zwrot przez dowolny wątek.
+    private record Rental(int userId, int bookId) {
+    }
+
+    private static final class OperationStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    private final Map<String, String> options;
+    private final Map<Operation, OperationStats> results = new EnumMap<>(Operation.class);
+    private final ConcurrentLinkedQueue<Rental> outstanding = new ConcurrentLinkedQueue<>();
+
+    private BookRepository bookRepo;
+    private ReservationRepository reservationRepo;
+    private LibraryService libraryService;
+    private AuthService authService;
+    private LibraryStatistics stats;
+    private int[] userRange;
+    private int[] bookRange;
+
+    WorkloadSimulator(Map<String, String> options) {
+        this.options = options;
+        for (Operation operation : Operation.values()) {
+            results.put(operation, new OperationStats());
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("patrons", "16");
+        options.put("clerks", "2");
+        options.put("duration-seconds", "30");
+        options.put("ops-per-worker", "0");
+        options.put("seed", "42");
+        options.put("users", "10000");
+        options.put("books", "100000");
+        options.put("loans", "200000");
+        options.put("patron-mix", "search=50,rent=20,reserve=10,return=15,login=5");
+        options.put("clerk-mix", "stats=40,search=30,return=30");
+        options.put("db-url", "jdbc:h2:mem:sim-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            if (parts.length != 2 || !options.containsKey(parts[0])) {
+                throw new IllegalArgumentException("Nieznany argument: " + arg + ". Dostępne: " + options.keySet());
+            }
+            options.put(parts[0], parts[1]);
+        }
+        new WorkloadSimulator(options).run();
+    }
+
+    void run() throws InterruptedException {
+        System.out.println("[Symulator] Parametry: " + options);
+        try (AnnotationConfigApplicationContext context = LibraryFixture.startContext(options.get("db-url"))) {
+            bookRepo = context.getBean(BookRepository.class);
+            reservationRepo = context.getBean(ReservationRepository.class);
+            libraryService = context.getBean(LibraryService.class);
+            authService = context.getBean(AuthService.class);
+            stats = context.getBean(LibraryStatistics.class);
+
+            long seed = Long.parseLong(options.get("seed"));
+            long started = System.nanoTime();
+            SyntheticDataGenerator generator = new SyntheticDataGenerator(context, seed);
+            userRange = generator.addUsers(intOption("users"));
+            bookRange = generator.addBooks(intOption("books"));
+            int[] historyUsers = new int[Math.min(1000, userRange[1] - userRange[0] + 1)];
+            for (int i = 0; i < historyUsers.length; i++) {
+                historyUsers[i] = userRange[0] + i;
+            }
+            generator.addLoanHistory(intOption("loans"), historyUsers, bookRange);
+            System.out.printf("[Symulator] Dane wygenerowane w %.1f s%n", (System.nanoTime() - started) / 1e9);
+
+            long elapsed = runWorkers(seed);
+            printReport(elapsed);
+        }
+    }
+
+    private long runWorkers(long seed) throws InterruptedException {
+        int patrons = intOption("patrons");
+        int clerks = intOption("clerks");
+        long opsPerWorker = Long.parseLong(options.get("ops-per-worker"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration-seconds")));
+        Operation[] patronMix = parseMix(options.get("patron-mix"));
+        Operation[] clerkMix = parseMix(options.get("clerk-mix"));
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < patrons + clerks; i++) {
+            Operation[] mix = i < patrons ? patronMix : clerkMix;
+            Random random = new Random(seed + i);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long n = 0; opsPerWorker > 0 ? n < opsPerWorker : System.nanoTime() < deadline; n++) {
+                    execute(mix[random.nextInt(mix.length)], random);
+                }
+            }, (i < patrons ? "patron-" : "clerk-") + i);
+            workers.add(worker);
+            worker.start();
+        }
+
+        long started = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - started;
+    }
+
+    private void execute(Operation operation, Random random) {
+        OperationStats stat = results.get(operation);
+        long started = System.nanoTime();
+        try {
+            if (perform(operation, random)) {
+                stat.ok.increment();
+            } else {
+                stat.conflicts.increment();
+            }
+        } catch (RuntimeException e) {
+            stat.errors.increment();
+        } finally {
+            stat.latency.record(System.nanoTime() - started);
+        }
+    }
+
+    // Zwraca false, gdy operacja nie powiodła się z powodów biznesowych (np. książka już wypożyczona).
+    private boolean perform(Operation operation, Random random) {
+        switch (operation) {
+            case SEARCH -> {
+                if (random.nextBoolean()) {
+                    bookRepo.searchBooks(SyntheticDataGenerator.WORDS[random.nextInt(SyntheticDataGenerator.WORDS.length)]);
+                } else {
+                    bookRepo.searchPage(SearchCriteria.builder()
+                            .author(SyntheticDataGenerator.SURNAMES[random.nextInt(SyntheticDataGenerator.SURNAMES.length)])
+                            .sortBy("title").sortOrder("ASC").page(random.nextInt(3)).pageSize(20)
+                            .build());
+                }
+                return true;
+            }
+            case RENT -> {
+                int userId = randomUser(random);
+                int bookId = SyntheticDataGenerator.skewedBook(random, bookRange);
+                if (!libraryService.rentBook(userId, bookId).success()) {
+                    return false;
+                }
+                outstanding.add(new Rental(userId, bookId));
+                return true;
+            }
+            case RESERVE -> {
+                int bookId = SyntheticDataGenerator.skewedBook(random, bookRange);
+                Optional<Book> book = bookRepo.findById(bookId);
+                if (book.isEmpty() || !"LOANED".equals(book.get().getStatus())) {
+                    return false;
+                }
+                reservationRepo.addReservation(randomUser(random), bookId);
+                return true;
+            }
+            case RETURN -> {
+                Rental rental = outstanding.poll();
+                return rental != null && libraryService.returnBook(rental.bookId(), rental.userId());
+            }
+            case LOGIN -> {
+                Optional<String> token = authService.login("sim" + randomUser(random), SyntheticDataGenerator.PASSWORD);
+                token.ifPresent(authService::logout);
+                return token.isPresent();
+            }
+            case STATS -> {
+                stats.getTotalBooks();
+                stats.getLoanedBooks();
+                stats.getActiveUsers();
+                stats.getMostLoanedBooks(5);
+                stats.getMostLoanedBooks(5, 7);
+                return true;
+            }
+            default -> throw new IllegalStateException("Nieobsługiwana operacja: " + operation);
+        }
+    }
+
+    private int randomUser(Random random) {
+        return userRange[0] + random.nextInt(userRange[1] - userRange[0] + 1);
+    }
+
+    private void printReport(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+        System.out.printf("%n[Symulator] Czas pomiaru: %.1f s%n", seconds);
+        System.out.printf("%-8s %9s %9s %9s %7s %10s %9s %9s %9s %9s%n",
+                "operacja", "liczba", "ok", "konflikty", "błędy", "op/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Map.Entry<Operation, OperationStats> entry : results.entrySet()) {
+            OperationStats stat = entry.getValue();
+            LatencyHistogram latency = stat.latency;
+            long count = latency.getCount();
+            total += count;
+            if (count == 0) {
+                continue;
+            }
+            System.out.printf("%-8s %9d %9d %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(), count, stat.ok.sum(), stat.conflicts.sum(), stat.errors.sum(), count / seconds,
+                    latency.percentileNanos(50) / 1e6, latency.percentileNanos(95) / 1e6,
+                    latency.percentileNanos(99) / 1e6, latency.getMaxNanos() / 1e6);
+        }
+        System.out.printf("RAZEM    %9d %50.1f op/s%n", total, total / seconds);
+    }
+
+    private int intOption(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+
+    // "search=50,rent=20" -> tablica, w której każda operacja występuje tyle razy, ile wynosi jej waga.
+    static Operation[] parseMix(String mix) {
+        List<Operation> weighted = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] entry = part.trim().split("=");
+            Operation operation = Operation.valueOf(entry[0].trim().toUpperCase());
+            int weight = Integer.parseInt(entry[1].trim());
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+        }
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("Pusta mieszanka operacji: " + mix);
+        }
+        return weighted.toArray(new Operation[0]);
+    }
+}
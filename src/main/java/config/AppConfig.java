@@ -1,22 +1,35 @@
 package config;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import metrics.MetricsRegistry;
+import metrics.PoolMetrics;
+import metrics.ProfilingDataSource;
+import metrics.SqlProfiler;
+import metrics.TimingBeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
 import org.springframework.jdbc.datasource.init.DataSourceInitializer;
-import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import repository.BookRepository;
+import repository.CategoryRepository;
+import repository.LoanRepository;
+import repository.ReservationRepository;
+import repository.UserRepository;
+import service.LibraryService;
 
 import javax.sql.DataSource;
+import java.util.List;
 
 @Configuration
-@ComponentScan(basePackages = {"repository", "service", "config"})
+@ComponentScan(basePackages = {"repository", "service", "security", "stats", "journal", "web", "config"})
 @EnableTransactionManagement
 @PropertySource("classpath:application.properties")
 public class AppConfig {
@@ -27,14 +40,59 @@ public class AppConfig {
         this.env = env;
     }
 
+    @Bean(destroyMethod = "close")
+    public static MetricsRegistry metricsRegistry() {
+        return new MetricsRegistry();
+    }
+
+    // Statyczne, bo post-processor musi powstać przed pozostałymi beanami.
+    @Bean
+    public static TimingBeanPostProcessor timingBeanPostProcessor(MetricsRegistry metricsRegistry) {
+        return new TimingBeanPostProcessor(metricsRegistry, List.of(
+                BookRepository.class, LoanRepository.class, ReservationRepository.class,
+                UserRepository.class, CategoryRepository.class, LibraryService.class));
+    }
+
+    @Bean
+    public PoolMetrics poolMetrics() {
+        return new PoolMetrics();
+    }
+
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(env.getProperty("db.driver"));
-        dataSource.setUrl(env.getProperty("db.url"));
-        dataSource.setUsername(env.getProperty("db.user"));
-        dataSource.setPassword(env.getProperty("db.password"));
-        return dataSource;
+    public SqlProfiler sqlProfiler() {
+        return new SqlProfiler(env.getProperty("db.profiler.slow-threshold-ms", Long.class, 200L),
+                env.getProperty("db.profiler.explain", Boolean.class, true));
+    }
+
+    // Repozytoria dostają proxy: wewnątrz @Transactional korzystają z połączenia związanego z transakcją.
+    // Przy db.profiler.enabled=true między pulą a proxy transakcyjnym działa profiler zapytań.
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource poolDataSource, SqlProfiler sqlProfiler) {
+        DataSource target = env.getProperty("db.profiler.enabled", Boolean.class, false)
+                ? new ProfilingDataSource(poolDataSource, sqlProfiler)
+                : poolDataSource;
+        return new TransactionAwareDataSourceProxy(target);
+    }
+
+    @Bean
+    public HikariDataSource poolDataSource(PoolMetrics poolMetrics) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("library-pool");
+        config.setDriverClassName(env.getProperty("db.driver"));
+        config.setJdbcUrl(env.getProperty("db.url"));
+        config.setUsername(env.getProperty("db.user"));
+        config.setPassword(env.getProperty("db.password"));
+        config.setMaximumPoolSize(env.getProperty("db.pool.max-size", Integer.class, 10));
+        config.setMinimumIdle(env.getProperty("db.pool.min-idle", Integer.class, 2));
+        config.setConnectionTimeout(env.getProperty("db.pool.borrow-timeout-ms", Long.class, 5000L));
+        config.setIdleTimeout(env.getProperty("db.pool.idle-timeout-ms", Long.class, 300000L));
+        config.setMaxLifetime(env.getProperty("db.pool.max-lifetime-ms", Long.class, 1800000L));
+        config.setValidationTimeout(env.getProperty("db.pool.validation-timeout-ms", Long.class, 2000L));
+        config.setKeepaliveTime(env.getProperty("db.pool.keepalive-ms", Long.class, 120000L));
+        config.setMetricsTrackerFactory(poolMetrics);
+        config.setRegisterMbeans(true);
+        return new HikariDataSource(config);
     }
 
     @Bean
@@ -44,12 +102,9 @@ public class AppConfig {
 
     @Bean
     public DataSourceInitializer dataSourceInitializer(DataSource dataSource) {
-        ResourceDatabasePopulator populator = new ResourceDatabasePopulator();
-        populator.addScript(new ClassPathResource("schema.sql"));
-
         DataSourceInitializer initializer = new DataSourceInitializer();
         initializer.setDataSource(dataSource);
-        initializer.setDatabasePopulator(populator);
+        initializer.setDatabasePopulator(new SchemaMigrator("classpath:db/migration"));
         return initializer;
     }
 }
\ No newline at end of file
@@ -9,6 +9,8 @@ import repository.UserRepository;
 import service.LibraryService;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import jakarta.annotation.PostConstruct;
 import java.util.Optional;
@@ -21,12 +23,15 @@ public class DataInitializer {
     private final BookRepository bookRepo;
     private final CategoryRepository catRepo;
     private final LibraryService libraryService;
+    private final TransactionTemplate transactionTemplate;
 
-    public DataInitializer(UserRepository userRepo, BookRepository bookRepo, CategoryRepository catRepo, LibraryService libraryService) {
+    public DataInitializer(UserRepository userRepo, BookRepository bookRepo, CategoryRepository catRepo, LibraryService libraryService,
+                           PlatformTransactionManager transactionManager) {
         this.userRepo = userRepo;
         this.bookRepo = bookRepo;
         this.catRepo = catRepo;
         this.libraryService = libraryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @PostConstruct
@@ -76,12 +81,15 @@ public class DataInitializer {
             int crimeId = catRepo.findByName("Kryminał").get().getId();
             int historyId = catRepo.findByName("Historia").get().getId();
 
-            bookRepo.addBook(Book.builder().title("Władca Pierścieni").author("J.R.R. Tolkien").publicationYear(1954).categoryId(fantasyId).status("AVAILABLE").build());
-            bookRepo.addBook(Book.builder().title("Diuna").author("Frank Herbert").publicationYear(1965).categoryId(scifiId).status("AVAILABLE").build());
-            bookRepo.addBook(Book.builder().title("Morderstwo w Orient Expressie").author("Agatha Christie").publicationYear(1934).categoryId(crimeId).status("AVAILABLE").build());
-            bookRepo.addBook(Book.builder().title("Sapiens: Od zwierząt do bogów").author("Yuval Noah Harari").publicationYear(2011).categoryId(historyId).status("AVAILABLE").build());
-            bookRepo.addBook(Book.builder().title("Hobbit, czyli tam i z powrotem").author("J.R.R. Tolkien").publicationYear(1937).categoryId(fantasyId).status("AVAILABLE").build());
-            bookRepo.addBook(Book.builder().title("Folwark zwierzęcy").author("George Orwell").publicationYear(1945).categoryId(scifiId).status("AVAILABLE").build());
+            // Książki w transakcji, jak zapisy z menu: statystyki liczą je wtedy bez ryzyka podwójnego zliczenia przy uzgadnianiu.
+            transactionTemplate.executeWithoutResult(status -> {
+                bookRepo.addBook(Book.builder().title("Władca Pierścieni").author("J.R.R. Tolkien").publicationYear(1954).categoryId(fantasyId).status("AVAILABLE").build());
+                bookRepo.addBook(Book.builder().title("Diuna").author("Frank Herbert").publicationYear(1965).categoryId(scifiId).status("AVAILABLE").build());
+                bookRepo.addBook(Book.builder().title("Morderstwo w Orient Expressie").author("Agatha Christie").publicationYear(1934).categoryId(crimeId).status("AVAILABLE").build());
+                bookRepo.addBook(Book.builder().title("Sapiens: Od zwierząt do bogów").author("Yuval Noah Harari").publicationYear(2011).categoryId(historyId).status("AVAILABLE").build());
+                bookRepo.addBook(Book.builder().title("Hobbit, czyli tam i z powrotem").author("J.R.R. Tolkien").publicationYear(1937).categoryId(fantasyId).status("AVAILABLE").build());
+                bookRepo.addBook(Book.builder().title("Folwark zwierzęcy").author("George Orwell").publicationYear(1945).categoryId(scifiId).status("AVAILABLE").build());
+            });
 
             Optional<User> user1 = userRepo.findByUsername("user");
             Optional<User> user2 = userRepo.findByUsername("user2");
@@ -0,0 +1,180 @@
+package journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Segment dziennika: plik events-{pierwsza sekwencja}.log o stałym rozmiarze, mapowany w pamięć.
+ * Rekord ma 32 bajty: sekwencja (8), czas w ms (8), użytkownik (4), książka (4), typ (1),
+ * wypełnienie (3) i CRC32C bajtów 0..27 (4). Rekord o numerze i leży pod przesunięciem 32 * i,
+ * a nieużyte miejsce zawiera zera, więc pierwszy rekord z niepasującą sekwencją lub sumą
+ * kontrolną wyznacza koniec zapisanych danych.
+ */
+final class JournalSegment {
+
+    static final int RECORD_SIZE = 32;
+
+    private static final int SEQUENCE = 0;
+    private static final int TIMESTAMP = 8;
+    private static final int USER = 16;
+    private static final int BOOK = 20;
+    private static final int TYPE = 24;
+    private static final int CHECKSUM = 28;
+
+    private static final Pattern FILE_NAME = Pattern.compile("events-(\\d+)\\.log");
+
+    private final Path file;
+    private final long firstSequence;
+    private final int capacity;
+    private final MappedByteBuffer buffer;
+    // Osobny widok do liczenia CRC przy zapisie; odczyty dostają własne widoki z view().
+    private final ByteBuffer checksumView;
+    private final CRC32C crc = new CRC32C();
+
+    private JournalSegment(Path file, long firstSequence, int capacity, MappedByteBuffer buffer) {
+        this.file = file;
+        this.firstSequence = firstSequence;
+        this.capacity = capacity;
+        this.buffer = buffer;
+        this.checksumView = buffer.duplicate();
+    }
+
+    static JournalSegment create(Path directory, long firstSequence, int capacity) {
+        return map(directory.resolve(String.format("events-%020d.log", firstSequence)), firstSequence, capacity);
+    }
+
+    static JournalSegment open(Path file) {
+        try {
+            return map(file, firstSequenceOf(file), (int) (Files.size(file) / RECORD_SIZE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas otwierania segmentu dziennika " + file, e);
+        }
+    }
+
+    // Plik jest od razu powiększany do pełnego rozmiaru, więc zapis nie zmienia już jego długości.
+    private static JournalSegment map(Path file, long firstSequence, int capacity) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = (long) capacity * RECORD_SIZE;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new JournalSegment(file, firstSequence, capacity, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas mapowania segmentu dziennika " + file, e);
+        }
+    }
+
+    static List<Path> files(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> stream = Files.list(directory)) {
+            List<Path> files = new ArrayList<>(stream.filter(path -> FILE_NAME.matcher(path.getFileName().toString()).matches()).toList());
+            files.sort(Comparator.comparingLong(JournalSegment::firstSequenceOf));
+            return files;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas listowania dziennika " + directory, e);
+        }
+    }
+
+    static long firstSequenceOf(Path file) {
+        Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Nieprawidłowa nazwa segmentu dziennika: " + file);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long firstSequence() {
+        return firstSequence;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    ByteBuffer view() {
+        return buffer.duplicate();
+    }
+
+    /**
+     * Liczba poprawnych rekordów od początku segmentu, czyli indeks pierwszego wolnego miejsca.
+     */
+    int countValid() {
+        ByteBuffer view = view();
+        CRC32C check = new CRC32C();
+        int index = 0;
+        while (index < capacity && isValid(view, check, index, firstSequence + index)) {
+            index++;
+        }
+        return index;
+    }
+
+    void write(int index, long sequence, long timestampMillis, LoanEventType type, int userId, int bookId) {
+        int offset = index * RECORD_SIZE;
+        buffer.putLong(offset + SEQUENCE, sequence);
+        buffer.putLong(offset + TIMESTAMP, timestampMillis);
+        buffer.putInt(offset + USER, userId);
+        buffer.putInt(offset + BOOK, bookId);
+        buffer.put(offset + TYPE, type.code());
+        buffer.putInt(offset + CHECKSUM, checksum(checksumView, crc, offset));
+    }
+
+    // Po awarii za ostatnim poprawnym rekordem mogą zostać resztki urwanego zapisu.
+    void clear(int fromIndex) {
+        for (int offset = fromIndex * RECORD_SIZE; offset < capacity * RECORD_SIZE; offset += 8) {
+            buffer.putLong(offset, 0L);
+        }
+    }
+
+    void force(int index) {
+        buffer.force(index * RECORD_SIZE, RECORD_SIZE);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Przekazuje rekord do odbiorcy, jeśli ma oczekiwaną sekwencję i poprawną sumę kontrolną.
+     */
+    static boolean read(ByteBuffer view, CRC32C check, int index, long expectedSequence, LoanEventHandler handler) {
+        if (!isValid(view, check, index, expectedSequence)) {
+            return false;
+        }
+        int offset = index * RECORD_SIZE;
+        handler.onEvent(expectedSequence, view.getLong(offset + TIMESTAMP), LoanEventType.fromCode(view.get(offset + TYPE)),
+                view.getInt(offset + USER), view.getInt(offset + BOOK));
+        return true;
+    }
+
+    private static boolean isValid(ByteBuffer view, CRC32C check, int index, long expectedSequence) {
+        int offset = index * RECORD_SIZE;
+        return view.getLong(offset + SEQUENCE) == expectedSequence
+                && LoanEventType.fromCode(view.get(offset + TYPE)) != null
+                && view.getInt(offset + CHECKSUM) == checksum(view, check, offset);
+    }
+
+    private static int checksum(ByteBuffer view, CRC32C check, int offset) {
+        check.reset();
+        view.limit(offset + CHECKSUM).position(offset);
+        check.update(view);
+        view.clear();
+        return (int) check.getValue();
+    }
+}
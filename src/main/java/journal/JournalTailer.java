@@ -0,0 +1,30 @@
+package journal;
+
+/**
+ * Czytelnik podążający za dziennikiem, np. dla projekcji aktualizowanej w tle. Nie jest
+ * bezpieczny wątkowo; każdy konsument powinien mieć własny egzemplarz.
+ */
+public final class JournalTailer {
+
+    private final LoanEventJournal journal;
+    private long nextSequence;
+
+    JournalTailer(LoanEventJournal journal, long fromSequence) {
+        this.journal = journal;
+        this.nextSequence = Math.max(fromSequence, 1);
+    }
+
+    /**
+     * Przekazuje co najwyżej maxEvents zdarzeń zapisanych od poprzedniego wywołania
+     * i zwraca ich liczbę; 0 oznacza, że czytelnik dogonił dziennik.
+     */
+    public int poll(LoanEventHandler handler, int maxEvents) {
+        int read = (int) journal.read(nextSequence, maxEvents, handler);
+        nextSequence += read;
+        return read;
+    }
+
+    public long getNextSequence() {
+        return nextSequence;
+    }
+}
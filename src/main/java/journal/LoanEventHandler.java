@@ -0,0 +1,10 @@
+package journal;
+
+/**
+ * Odbiorca zdarzeń czytanych z dziennika. Pola są odczytywane wprost z mapowanego pliku,
+ * bez tworzenia obiektu dla każdego rekordu.
+ */
+@FunctionalInterface
+public interface LoanEventHandler {
+    void onEvent(long sequence, long timestampMillis, LoanEventType type, int userId, int bookId);
+}
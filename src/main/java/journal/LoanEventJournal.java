@@ -0,0 +1,185 @@
+package journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import transaction.TransactionHooks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32C;
+
+/**
+ * Dziennik zdarzeń wypożyczeń: wypożyczenia, zwroty i zmiany rezerwacji dopisywane po
+ * zatwierdzeniu transakcji do mapowanych w pamięć segmentów o stałym rozmiarze (journal.dir).
+ * Każde zdarzenie dostaje kolejny numer sekwencji, a odczyt (replay, tail) podaje pola wprost
+ * z mapowanego pliku. Dziennik jest wyłączony domyślnie (journal.enabled=false) i obejmuje
+ * tylko zdarzenia od chwili włączenia.
+ */
+@Component
+public class LoanEventJournal {
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentRecords;
+    private final boolean fsync;
+
+    // Posortowane po pierwszej sekwencji; ostatni segment przyjmuje zapisy.
+    private final List<JournalSegment> segments = new CopyOnWriteArrayList<>();
+    private JournalSegment active;
+    private int activeIndex;
+    // Ostatnia zapisana sekwencja; zapis pola publikuje rekord dla czytelników.
+    private volatile long lastSequence;
+
+    public LoanEventJournal(@Value("${journal.enabled:false}") boolean enabled,
+                            @Value("${journal.dir:./library_journal}") String directory,
+                            @Value("${journal.segment-records:2097152}") int segmentRecords,
+                            @Value("${journal.fsync:false}") boolean fsync) {
+        if (segmentRecords <= 0 || segmentRecords > Integer.MAX_VALUE / JournalSegment.RECORD_SIZE) {
+            throw new IllegalArgumentException("Nieprawidłowy rozmiar segmentu dziennika: " + segmentRecords);
+        }
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentRecords = segmentRecords;
+        this.fsync = fsync;
+    }
+
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas tworzenia katalogu dziennika " + directory, e);
+        }
+        for (Path file : JournalSegment.files(directory)) {
+            segments.add(JournalSegment.open(file));
+        }
+        if (segments.isEmpty()) {
+            segments.add(JournalSegment.create(directory, 1, segmentRecords));
+        }
+        // Wcześniejsze segmenty są pełne; koniec danych wyznacza tylko ostatni.
+        active = segments.getLast();
+        activeIndex = active.countValid();
+        active.clear(activeIndex);
+        lastSequence = active.firstSequence() + activeIndex - 1;
+        System.out.println("[System] Dziennik zdarzeń: " + segments.size() + " segmentów, ostatnia sekwencja " + lastSequence);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (active != null) {
+            active.force();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Zapisuje zdarzenie po zatwierdzeniu bieżącej transakcji, więc wycofana operacja
+     * nie trafia do dziennika. Poza transakcją zapis jest natychmiastowy.
+     */
+    public void record(LoanEventType type, int userId, int bookId) {
+        if (!enabled) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> append(type, userId, bookId));
+    }
+
+    /**
+     * Dopisuje zdarzenie od razu i zwraca jego numer sekwencji.
+     */
+    public synchronized long append(LoanEventType type, int userId, int bookId) {
+        if (active == null) {
+            throw new IllegalStateException("Dziennik zdarzeń jest wyłączony");
+        }
+        if (activeIndex == active.capacity()) {
+            roll();
+        }
+        long sequence = lastSequence + 1;
+        active.write(activeIndex, sequence, System.currentTimeMillis(), type, userId, bookId);
+        if (fsync) {
+            active.force(activeIndex);
+        }
+        activeIndex++;
+        lastSequence = sequence;
+        return sequence;
+    }
+
+    private void roll() {
+        active.force();
+        active = JournalSegment.create(directory, lastSequence + 1, segmentRecords);
+        activeIndex = 0;
+        segments.add(active);
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Odtwarza wszystkie zapisane zdarzenia od podanej sekwencji. Zwraca liczbę odczytanych zdarzeń.
+     */
+    public long replay(long fromSequence, LoanEventHandler handler) {
+        return read(fromSequence, Long.MAX_VALUE, handler);
+    }
+
+    /**
+     * Czytelnik podążający za dziennikiem od podanej sekwencji.
+     */
+    public JournalTailer tail(long fromSequence) {
+        return new JournalTailer(this, fromSequence);
+    }
+
+    long read(long fromSequence, long maxEvents, LoanEventHandler handler) {
+        long sequence = Math.max(fromSequence, 1);
+        long upTo = lastSequence;
+        if (upTo - sequence + 1 > maxEvents) {
+            upTo = sequence + maxEvents - 1;
+        }
+        if (sequence > upTo) {
+            return 0;
+        }
+        CRC32C check = new CRC32C();
+        long count = 0;
+        for (int i = segmentOf(segments, sequence); i < segments.size() && sequence <= upTo; i++) {
+            JournalSegment segment = segments.get(i);
+            ByteBuffer view = segment.view();
+            int index = (int) (sequence - segment.firstSequence());
+            while (index < segment.capacity() && sequence <= upTo) {
+                if (!JournalSegment.read(view, check, index, sequence, handler)) {
+                    throw new IllegalStateException("Uszkodzony rekord " + sequence + " w " + segment.file());
+                }
+                index++;
+                sequence++;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int segmentOf(List<JournalSegment> segments, long sequence) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segments.get(middle).firstSequence() <= sequence) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
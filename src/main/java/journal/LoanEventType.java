@@ -0,0 +1,35 @@
+package journal;
+
+/**
+ * Przejścia stanu wypożyczeń zapisywane w dzienniku zdarzeń. Kod jest zapisywany
+ * w rekordzie, więc istniejących wartości nie wolno zmieniać.
+ */
+public enum LoanEventType {
+    LOANED(1),
+    RETURNED(2),
+    RESERVED(3),
+    RESERVATION_CLEARED(4);
+
+    private static final LoanEventType[] BY_CODE = new LoanEventType[5];
+
+    static {
+        for (LoanEventType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    LoanEventType(int code) {
+        this.code = (byte) code;
+    }
+
+    byte code() {
+        return code;
+    }
+
+    // null dla nieznanego kodu, np. z uszkodzonego rekordu.
+    static LoanEventType fromCode(byte code) {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
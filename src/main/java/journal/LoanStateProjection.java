@@ -0,0 +1,54 @@
+package journal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stan wypożyczeń odtworzony z dziennika: aktywne wypożyczenia, liczba wypożyczeń każdej
+ * książki i kolejki rezerwacji. Odzwierciedla tylko zdarzenia zapisane w dzienniku.
+ */
+public class LoanStateProjection implements LoanEventHandler {
+
+    private final Map<Integer, Integer> borrowerByBook = new HashMap<>();
+    private final Map<Integer, Long> loansByBook = new HashMap<>();
+    private final Map<Integer, List<Integer>> queuesByBook = new HashMap<>();
+    private long lastSequence;
+
+    @Override
+    public void onEvent(long sequence, long timestampMillis, LoanEventType type, int userId, int bookId) {
+        switch (type) {
+            case LOANED -> {
+                borrowerByBook.put(bookId, userId);
+                loansByBook.merge(bookId, 1L, Long::sum);
+            }
+            case RETURNED -> borrowerByBook.remove(bookId, userId);
+            case RESERVED -> queuesByBook.computeIfAbsent(bookId, id -> new ArrayList<>()).add(userId);
+            case RESERVATION_CLEARED -> {
+                List<Integer> queue = queuesByBook.get(bookId);
+                if (queue != null && queue.remove(Integer.valueOf(userId)) && queue.isEmpty()) {
+                    queuesByBook.remove(bookId);
+                }
+            }
+        }
+        lastSequence = sequence;
+    }
+
+    public Map<Integer, Integer> getActiveLoans() {
+        return Collections.unmodifiableMap(borrowerByBook);
+    }
+
+    public long getLoanCount(int bookId) {
+        return loansByBook.getOrDefault(bookId, 0L);
+    }
+
+    public List<Integer> getReservationQueue(int bookId) {
+        return Collections.unmodifiableList(queuesByBook.getOrDefault(bookId, List.of()));
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+}
@@ -2,25 +2,52 @@ package main;
 
 import config.AppConfig;
 import model.Book;
+import model.BookReturn;
+import model.BookSummary;
 import model.Category;
+import model.CirculationOutcome;
+import model.ImportReport;
 import model.SearchCriteria;
+import model.SearchCursor;
+import model.SearchResult;
+import metrics.MethodMetrics;
+import metrics.MetricsRegistry;
+import metrics.PoolMetrics;
+import metrics.SqlProfiler;
 import model.User;
 import repository.*;
+import security.PasswordHasher;
 import service.AuthService;
+import service.CatalogImportService;
 import service.LibraryService;
+import stats.LibraryStatistics;
+import web.HttpApiServer;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 public class Main {
 
     private static final Scanner scanner = new Scanner(System.in);
     private static final int PAGE_SIZE = 5;
+    private static String sessionToken;
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("--http")) {
+            runHttpServer();
+            return;
+        }
 
-    public static void main(String[] args) {
         AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(AppConfig.class);
 
         BookRepository bookRepo = context.getBean(BookRepository.class);
@@ -30,20 +57,31 @@ public class Main {
         AuthService authService = context.getBean(AuthService.class);
         LibraryService libraryService = context.getBean(LibraryService.class);
         UserRepository userRepo = context.getBean(UserRepository.class);
+        CatalogImportService importService = context.getBean(CatalogImportService.class);
+        LibraryStatistics stats = context.getBean(LibraryStatistics.class);
 
         System.out.println("==========================================");
         System.out.println("   TERMINALOWY MENEDŻER BIBLIOTEKI JDBC   ");
         System.out.println("==========================================");
 
-        while (authService.getCurrentUser() == null) {
+        while (sessionToken == null) {
             handleLogin(authService, reservationRepo);
         }
 
-        runMainMenu(authService, libraryService, bookRepo, catRepo, loanRepo, reservationRepo, userRepo);
+        runMainMenu(authService, libraryService, bookRepo, catRepo, loanRepo, reservationRepo, userRepo, importService, stats, context);
 
         context.close();
     }
 
+    // Tryb serwerowy bez konsoli: działa do zatrzymania procesu (np. Ctrl+C).
+    private static void runHttpServer() throws InterruptedException {
+        System.setProperty("http.enabled", "true");
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(AppConfig.class);
+        context.registerShutdownHook();
+        System.out.println("API dostępne pod adresem http://localhost:" + context.getBean(HttpApiServer.class).getPort() + "/api/books");
+        Thread.currentThread().join();
+    }
+
     private static void handleLogin(AuthService authService, ReservationRepository reservationRepo) {
         System.out.println("\n>>> LOGOWANIE");
         System.out.print("Login: ");
@@ -51,8 +89,16 @@ public class Main {
         System.out.print("Hasło: ");
         String pass = scanner.nextLine();
 
-        if (authService.login(login, pass)) {
-            User user = authService.getCurrentUser();
+        Optional<String> token;
+        try {
+            token = authService.login(login, pass);
+        } catch (IllegalStateException e) {
+            System.out.println("BŁĄD: " + e.getMessage());
+            return;
+        }
+        if (token.isPresent()) {
+            sessionToken = token.get();
+            User user = currentUser(authService);
             System.out.println("\nWitaj " + user.getFirstName() + "! Zalogowano jako: " + user.getRole());
             checkNotifications(reservationRepo, user.getId());
         } else {
@@ -70,29 +116,43 @@ public class Main {
         }
     }
 
-    private static void runMainMenu(AuthService authService, LibraryService libraryService, BookRepository bookRepo, CategoryRepository catRepo, LoanRepository loanRepo, ReservationRepository reservationRepo, UserRepository userRepo) {
+    private static void runMainMenu(AuthService authService, LibraryService libraryService, BookRepository bookRepo, CategoryRepository catRepo, LoanRepository loanRepo, ReservationRepository reservationRepo, UserRepository userRepo, CatalogImportService importService, LibraryStatistics stats, AnnotationConfigApplicationContext context) {
+        // Zapisy katalogu idą w transakcji, żeby statystyki wiedziały, czy zmianę widzi trwające uzgadnianie.
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
         boolean running = true;
         while (running) {
-            User user = authService.getCurrentUser();
-            boolean isAdmin = authService.isAdmin();
+            Optional<User> userOpt = authService.getCurrentUser(sessionToken);
+            if (userOpt.isEmpty()) {
+                System.out.println("Sesja wygasła. Zaloguj się ponownie.");
+                sessionToken = null;
+                while (sessionToken == null) {
+                    handleLogin(authService, reservationRepo);
+                }
+                continue;
+            }
+            User user = userOpt.get();
+            boolean isAdmin = authService.isAdmin(sessionToken);
 
             printMenu(user.getRole());
             int choice = readInt();
 
             switch (choice) {
-                case 1 -> bookRepo.getAllBooks().forEach(System.out::println);
+                case 1 -> { try (Stream<BookSummary> books = bookRepo.streamBookSummaries()) { books.forEach(book -> printBook(book, catRepo)); } }
                 case 2 -> handleSearch(bookRepo, catRepo);
                 case 3 -> handleCategoryFilter(bookRepo, catRepo);
-                case 4 -> handleReserveBook(authService, bookRepo, reservationRepo);
+                case 4 -> handleReserveBook(authService, libraryService);
                 case 5 -> handleMyReservations(reservationRepo, authService);
                 case 6 -> handleLoan(libraryService, authService);
                 case 7 -> handleReturn(libraryService, loanRepo, authService);
-                case 8 -> { if(isAdmin) handleAddBook(bookRepo, catRepo); else accessDenied(); }
-                case 9 -> { if(isAdmin) handleDeleteBook(bookRepo); else accessDenied(); }
+                case 8 -> { if(isAdmin) handleAddBook(bookRepo, catRepo, tx); else accessDenied(); }
+                case 9 -> { if(isAdmin) handleDeleteBook(bookRepo, tx); else accessDenied(); }
                 case 10 -> { if(isAdmin) handleManageCategories(catRepo); else accessDenied(); }
-                case 11 -> { if(isAdmin) handleStats(bookRepo, loanRepo, userRepo); else accessDenied(); }
+                case 11 -> { if(isAdmin) handleStats(stats); else accessDenied(); }
+                case 12 -> { if(isAdmin) handleImport(importService); else accessDenied(); }
+                case 13 -> { if(isAdmin) handleMetrics(context); else accessDenied(); }
+                case 14 -> { if(isAdmin) handleDesk(libraryService, userRepo); else accessDenied(); }
                 case 0 -> {
-                    authService.logout();
+                    authService.logout(sessionToken);
                     running = false;
                     System.out.println("Wylogowano pomyślnie.");
                 }
@@ -116,6 +176,9 @@ public class Main {
             System.out.println("[ADMIN] 9. Usuń książkę");
             System.out.println("[ADMIN] 10. Zarządzaj kategoriami");
             System.out.println("[ADMIN] 11. Statystyki");
+            System.out.println("[ADMIN] 12. Importuj katalog z pliku CSV/TSV");
+            System.out.println("[ADMIN] 13. Metryki wydajności");
+            System.out.println("[ADMIN] 14. Obsługa lady (zbiorcze wypożyczenia i zwroty)");
         }
         System.out.println("0. Wyloguj i wyjdź");
         System.out.print("Wybór: ");
@@ -131,7 +194,7 @@ public class Main {
         if (choice == 1) {
             System.out.print("Wpisz frazę: ");
             String query = scanner.nextLine();
-            List<Book> result = bookRepo.searchBooks(query);
+            List<BookSummary> result = bookRepo.searchBookSummaries(query);
             if (result.isEmpty()) System.out.println("Nie znaleziono książek pasujących do zapytania.");
             else result.forEach(System.out::println);
         } else if (choice == 2) {
@@ -146,12 +209,14 @@ public class Main {
         String title = scanner.nextLine();
         System.out.print("Autor: ");
         String author = scanner.nextLine();
-        System.out.print("Rok wydania: ");
-        String yearStr = scanner.nextLine();
+        System.out.print("Rok wydania (np. 1999 lub 1990-2000): ");
+        String yearStr = scanner.nextLine().trim();
         System.out.println("Kategoria:");
         catRepo.getAllCategories().forEach(System.out::println);
-        System.out.print("Wybierz ID kategorii: ");
-        String categoryIdStr = scanner.nextLine();
+        System.out.print("Wybierz ID kategorii (kilka oddziel przecinkami): ");
+        String categoryIdStr = scanner.nextLine().trim();
+        System.out.print("Tylko dostępne? (t/N): ");
+        boolean onlyAvailable = scanner.nextLine().trim().equalsIgnoreCase("t");
 
         System.out.println("\nSortuj według:");
         System.out.println("1. Tytułu | 2. Autora | 3. Roku wydania (domyślnie)");
@@ -167,11 +232,19 @@ public class Main {
                 .sortBy(sortBy).sortOrder(sortOrder).pageSize(PAGE_SIZE);
         if (!title.isEmpty()) builder.title(title);
         if (!author.isEmpty()) builder.author(author);
-        if (!yearStr.isEmpty()) builder.year(Integer.parseInt(yearStr));
-        if (!categoryIdStr.isEmpty()) builder.categoryId(Integer.parseInt(categoryIdStr));
+        if (yearStr.matches("\\d+\\s*-\\s*\\d+")) {
+            String[] range = yearStr.split("-");
+            builder.yearFrom(Integer.parseInt(range[0].trim())).yearTo(Integer.parseInt(range[1].trim()));
+        } else if (!yearStr.isEmpty()) {
+            builder.year(Integer.parseInt(yearStr));
+        }
+        if (!categoryIdStr.isEmpty()) {
+            builder.categoryIds(Arrays.stream(categoryIdStr.split(",")).map(String::trim).map(Integer::parseInt).toList());
+        }
+        if (onlyAvailable) builder.statuses(List.of("AVAILABLE"));
 
-        SearchCriteria initialCriteria = builder.build();
-        int totalResults = bookRepo.countBooks(initialCriteria);
+        SearchResult result = bookRepo.searchPage(builder.build());
+        int totalResults = result.totalCount();
         if (totalResults == 0) {
             System.out.println("Nie znaleziono książek pasujących do podanych kryteriów.");
             return;
@@ -179,13 +252,10 @@ public class Main {
 
         int totalPages = (int) Math.ceil((double) totalResults / PAGE_SIZE);
         int currentPage = 1;
+        List<Book> books = result.books();
         boolean searching = true;
 
         while(searching) {
-            builder.page(currentPage);
-            SearchCriteria currentCriteria = builder.build();
-            List<Book> books = bookRepo.searchBooks(currentCriteria);
-
             System.out.println("\n--- WYNIKI WYSZUKIWANIA (Strona " + currentPage + "/" + totalPages + ") ---");
             books.forEach(System.out::println);
             System.out.println("----------------------------------------------------");
@@ -194,8 +264,22 @@ public class Main {
             System.out.println("\nOpcje: [N]astępna strona | [P]oprzednia strona | [Z]akończ");
             String nav = scanner.nextLine().toUpperCase();
             switch (nav) {
-                case "N" -> { if (currentPage < totalPages) currentPage++; }
-                case "P" -> { if (currentPage > 1) currentPage--; }
+                case "N" -> {
+                    if (currentPage < totalPages && !books.isEmpty()) {
+                        result = bookRepo.searchPage(builder
+                                .cursor(SearchCursor.of(sortBy, books.get(books.size() - 1)).encode())
+                                .backward(false).build());
+                        if (!result.books().isEmpty()) { books = result.books(); currentPage++; }
+                    }
+                }
+                case "P" -> {
+                    if (currentPage > 1 && !books.isEmpty()) {
+                        result = bookRepo.searchPage(builder
+                                .cursor(SearchCursor.of(sortBy, books.get(0)).encode())
+                                .backward(true).build());
+                        if (!result.books().isEmpty()) { books = result.books(); currentPage--; }
+                    }
+                }
                 case "Z" -> searching = false;
             }
         }
@@ -208,28 +292,23 @@ public class Main {
         cats.forEach(c -> System.out.println(c.getId() + ". " + c.getName()));
         System.out.print("Podaj ID kategorii: ");
         int id = readInt();
-        bookRepo.getBooksByCategory(id).forEach(System.out::println);
+        bookRepo.getBookSummariesByCategory(id).forEach(book -> printBook(book, catRepo));
     }
 
-    private static void handleReserveBook(AuthService authService, BookRepository bookRepo, ReservationRepository reservationRepo) {
+    private static void handleReserveBook(AuthService authService, LibraryService libraryService) {
         System.out.print("Podaj ID książki, którą chcesz zarezerwować: ");
         int bookId = readInt();
-        Optional<Book> bookOpt = bookRepo.findById(bookId);
-        if (bookOpt.isEmpty()) {
-            System.out.println("Książka o podanym ID nie istnieje.");
-            return;
-        }
-        if (!bookOpt.get().getStatus().equals("LOANED")) {
-            System.out.println("Można rezerwować tylko wypożyczone książki.");
-            return;
+        CirculationOutcome outcome = libraryService.reserveBook(currentUser(authService).getId(), bookId);
+        if (outcome.success()) {
+            System.out.println("Książka została zarezerwowana. Zostaniesz powiadomiony, gdy będzie dostępna.");
+        } else {
+            System.out.println(outcome.message());
         }
-        reservationRepo.addReservation(authService.getCurrentUser().getId(), bookId);
-        System.out.println("Książka została zarezerwowana. Zostaniesz powiadomiony, gdy będzie dostępna.");
     }
 
     private static void handleMyReservations(ReservationRepository reservationRepo, AuthService authService) {
         System.out.println("\n--- KSIĄŻKI OCZEKUJĄCE NA ODBIÓR ---");
-        List<Book> reservedBooks = reservationRepo.findBooksReservedByUser(authService.getCurrentUser().getId());
+        List<Book> reservedBooks = reservationRepo.findBooksReservedByUser(currentUser(authService).getId());
         if (reservedBooks.isEmpty()) {
             System.out.println("Brak książek oczekujących na odbiór.");
         } else {
@@ -240,13 +319,16 @@ public class Main {
     private static void handleLoan(LibraryService libraryService, AuthService authService) {
         System.out.print("Podaj ID książki do wypożyczenia: ");
         int bookId = readInt();
-        if (libraryService.rentBook(authService.getCurrentUser().getId(), bookId)) {
+        CirculationOutcome outcome = libraryService.rentBook(currentUser(authService).getId(), bookId);
+        if (outcome.success()) {
             System.out.println("Sukces: Wypożyczono książkę.");
+        } else {
+            System.out.println(outcome.message());
         }
     }
 
     private static void handleReturn(LibraryService libraryService, LoanRepository loanRepo, AuthService authService) {
-        int userId = authService.getCurrentUser().getId();
+        int userId = currentUser(authService).getId();
         System.out.println("Twoje aktywne wypożyczenia:");
         loanRepo.getActiveLoansByUser(userId).forEach(System.out::println);
 
@@ -259,7 +341,7 @@ public class Main {
         }
     }
 
-    private static void handleAddBook(BookRepository bookRepo, CategoryRepository catRepo) {
+    private static void handleAddBook(BookRepository bookRepo, CategoryRepository catRepo, TransactionTemplate tx) {
         System.out.print("Tytuł: "); String t = scanner.nextLine();
         System.out.print("Autor: "); String a = scanner.nextLine();
         System.out.print("Rok: "); int y = readInt();
@@ -271,13 +353,13 @@ public class Main {
                 .title(t).author(a).publicationYear(y)
                 .categoryId(cId)
                 .status("AVAILABLE").build();
-        bookRepo.addBook(b);
+        tx.executeWithoutResult(status -> bookRepo.addBook(b));
     }
 
-    private static void handleDeleteBook(BookRepository bookRepo) {
+    private static void handleDeleteBook(BookRepository bookRepo, TransactionTemplate tx) {
         System.out.print("Podaj ID książki do usunięcia: ");
         int id = readInt();
-        if (bookRepo.deleteBook(id)) System.out.println("Książka usunięta.");
+        if (Boolean.TRUE.equals(tx.execute(status -> bookRepo.deleteBook(id)))) System.out.println("Książka usunięta.");
     }
 
     private static void handleManageCategories(CategoryRepository catRepo) {
@@ -304,13 +386,77 @@ public class Main {
         }
     }
 
-    private static void handleStats(BookRepository bookRepo, LoanRepository loanRepo, UserRepository userRepo) {
+    private static void handleStats(LibraryStatistics stats) {
         System.out.println("\n--- STATYSTYKI ---");
-        System.out.println("Liczba wszystkich książek: " + bookRepo.countAllBooks());
-        System.out.println("Liczba wypożyczonych książek: " + bookRepo.countByStatus("LOANED"));
-        System.out.println("Liczba aktywnych użytkowników: " + userRepo.countActiveUsers());
-        System.out.println("\nNajpopularniejsze książki (TOP 5):");
-        List<Map.Entry<String, Long>> topBooks = loanRepo.getMostLoanedBooks(5);
+        System.out.println("Liczba wszystkich książek: " + stats.getTotalBooks());
+        System.out.println("Liczba wypożyczonych książek: " + stats.getLoanedBooks());
+        System.out.println("Liczba aktywnych użytkowników: " + stats.getActiveUsers());
+        printTopBooks("\nNajpopularniejsze książki (TOP 5):", stats.getMostLoanedBooks(5));
+        printTopBooks("\nNajpopularniejsze w ostatnim tygodniu:", stats.getMostLoanedBooks(5, 7));
+        printTopBooks("\nNajpopularniejsze w ostatnim miesiącu:", stats.getMostLoanedBooks(5, 30));
+    }
+
+    private static void handleDesk(LibraryService libraryService, UserRepository userRepo) {
+        System.out.print("Login czytelnika: ");
+        Optional<User> reader = userRepo.findByUsername(scanner.nextLine().trim());
+        if (reader.isEmpty()) {
+            System.out.println("Nie znaleziono użytkownika.");
+            return;
+        }
+        int userId = reader.get().getId();
+        System.out.println("1. Wypożyczenie");
+        System.out.println("2. Zwrot");
+        System.out.print("Wybór: ");
+        int choice = readInt();
+        System.out.print("ID książek (oddzielone spacją lub przecinkiem): ");
+        List<Integer> bookIds = new ArrayList<>();
+        for (String token : scanner.nextLine().split("[\\s,;]+")) {
+            if (!token.isEmpty()) {
+                try {
+                    bookIds.add(Integer.parseInt(token));
+                } catch (NumberFormatException e) {
+                    System.out.println("Pominięto niepoprawny identyfikator: " + token);
+                }
+            }
+        }
+
+        List<CirculationOutcome> outcomes;
+        if (choice == 1) {
+            outcomes = libraryService.rentBooks(userId, bookIds);
+        } else if (choice == 2) {
+            outcomes = libraryService.returnBooks(bookIds.stream().map(bookId -> new BookReturn(bookId, userId)).toList());
+        } else {
+            System.out.println("Nieprawidłowa opcja.");
+            return;
+        }
+        outcomes.forEach(System.out::println);
+        long succeeded = outcomes.stream().filter(CirculationOutcome::success).count();
+        System.out.println("Zrealizowano " + succeeded + " z " + outcomes.size() + " pozycji.");
+    }
+
+    private static void handleMetrics(AnnotationConfigApplicationContext context) {
+        System.out.println("\n--- METRYKI ---");
+        System.out.println(context.getBean(PoolMetrics.class));
+        System.out.println(context.getBean(PasswordHasher.class));
+        System.out.printf("%n%-60s %8s %6s %10s %10s %10s %10s%n", "metoda", "wywołania", "błędy", "śr. us", "p95 us", "p99 us", "max us");
+        for (MethodMetrics metrics : context.getBean(MetricsRegistry.class).snapshot()) {
+            if (metrics.getCount() == 0) {
+                continue;
+            }
+            System.out.printf("%-60s %8d %6d %10.1f %10.1f %10.1f %10.1f%n",
+                    metrics.getComponent() + "." + metrics.getMethod(), metrics.getCount(), metrics.getErrors(),
+                    metrics.getMeanMicros(), metrics.getP95Micros(), metrics.getP99Micros(), metrics.getMaxMicros());
+        }
+
+        List<SqlProfiler.StatementStats> statements = context.getBean(SqlProfiler.class).snapshot();
+        if (!statements.isEmpty()) {
+            System.out.println("\nZapytania SQL (TOP 15 wg łącznego czasu):");
+            statements.stream().limit(15).forEach(stats -> System.out.println("- " + stats));
+        }
+    }
+
+    private static void printTopBooks(String header, List<Map.Entry<String, Long>> topBooks) {
+        System.out.println(header);
         if (topBooks.isEmpty()) {
             System.out.println("Brak danych o wypożyczeniach.");
         } else {
@@ -318,6 +464,40 @@ public class Main {
         }
     }
 
+    private static void handleImport(CatalogImportService importService) {
+        System.out.print("Ścieżka do pliku: ");
+        Path file = Path.of(scanner.nextLine().trim());
+        if (!Files.isReadable(file)) {
+            System.out.println("Nie można odczytać pliku.");
+            return;
+        }
+        System.out.print("Wznów od wiersza (puste = od początku): ");
+        String resume = scanner.nextLine().trim();
+        long resumeFromRow;
+        try {
+            resumeFromRow = resume.isEmpty() ? 0 : Long.parseLong(resume);
+        } catch (NumberFormatException e) {
+            resumeFromRow = -1;
+        }
+        if (resumeFromRow < 0) {
+            System.out.println("Nieprawidłowy numer wiersza.");
+            return;
+        }
+        ImportReport report = importService.importFile(file, resumeFromRow);
+        if (report.isFailed()) {
+            System.out.println("Import przerwany. Aby kontynuować, wznów od wiersza " + report.getResumeFromRow() + ".");
+        }
+    }
+
+    private static User currentUser(AuthService authService) {
+        return authService.getCurrentUser(sessionToken).orElseThrow(() -> new IllegalStateException("Brak aktywnej sesji"));
+    }
+
+    private static void printBook(BookSummary book, CategoryRepository catRepo) {
+        String category = catRepo.findById(book.categoryId()).map(Category::getName).orElse("-");
+        System.out.println(book + " [" + category + "]");
+    }
+
     private static int readInt() {
         try {
             return Integer.parseInt(scanner.nextLine());
@@ -0,0 +1,88 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Liczba wywołań, błędów i histogram czasu jednej metody. Zapis jest bezblokadowy,
+ * a pamięć stała niezależnie od liczby wywołań.
+ */
+public class MethodMetrics implements MethodMetricsMXBean {
+
+    private final String component;
+    private final String method;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    public MethodMetrics(String component, String method) {
+        this.component = component;
+        this.method = method;
+    }
+
+    public void record(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String getComponent() {
+        return component;
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.getMeanNanos() / 1000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.percentileNanos(50) / 1000.0;
+    }
+
+    @Override
+    public double getP95Micros() {
+        return latency.percentileNanos(95) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.percentileNanos(99) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.getMaxNanos() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+    }
+
+    @Override
+    public String toString() {
+        return component + "." + method + ": błędy=" + getErrors() + " " + latency.summary(TimeUnit.MICROSECONDS);
+    }
+}
@@ -0,0 +1,24 @@
+package metrics;
+
+public interface MethodMetricsMXBean {
+
+    String getComponent();
+
+    String getMethod();
+
+    long getCount();
+
+    long getErrors();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP95Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
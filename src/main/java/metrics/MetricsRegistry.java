@@ -0,0 +1,91 @@
+package metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rejestr metryk metod. Każdy wpis jest publikowany jako MXBean
+ * library:type=MethodMetrics,component=...,method=... w platformowym serwerze MBean.
+ */
+public class MetricsRegistry {
+
+    // Obiekt zarejestrowany pod daną nazwą w serwerze platformowym, wspólny dla wszystkich rejestrów w JVM.
+    private static final Map<ObjectName, MethodMetrics> OWNERS = new HashMap<>();
+
+    private final Map<String, MethodMetrics> metrics = new ConcurrentHashMap<>();
+    private final Map<ObjectName, MethodMetrics> registered = new HashMap<>();
+    private final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    public MethodMetrics forMethod(String component, String method) {
+        return metrics.computeIfAbsent(component + "." + method, key -> {
+            MethodMetrics created = new MethodMetrics(component, method);
+            register(created);
+            return created;
+        });
+    }
+
+    /**
+     * Zwraca metryki posortowane malejąco po łącznym czasie wywołań.
+     */
+    public List<MethodMetrics> snapshot() {
+        List<MethodMetrics> list = new ArrayList<>(metrics.values());
+        list.sort(Comparator.comparingDouble((MethodMetrics m) -> m.getLatency().getMeanNanos() * m.getCount()).reversed());
+        return list;
+    }
+
+    public void reset() {
+        metrics.values().forEach(MethodMetrics::reset);
+    }
+
+    // Kolejny kontekst w tej samej JVM (np. w testach) przejmuje nazwy po poprzednim.
+    private void register(MethodMetrics methodMetrics) {
+        try {
+            ObjectName name = new ObjectName("library:type=MethodMetrics,component=" + methodMetrics.getComponent()
+                    + ",method=" + ObjectName.quote(methodMetrics.getMethod()));
+            synchronized (OWNERS) {
+                try {
+                    mbeanServer.registerMBean(methodMetrics, name);
+                } catch (InstanceAlreadyExistsException e) {
+                    mbeanServer.unregisterMBean(name);
+                    mbeanServer.registerMBean(methodMetrics, name);
+                }
+                OWNERS.put(name, methodMetrics);
+                registered.put(name, methodMetrics);
+            }
+        } catch (JMException e) {
+            System.err.println("[System] Nie udało się zarejestrować MBean dla " + methodMetrics.getMethod() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wyrejestrowuje tylko nazwy, pod którymi nadal są metryki tego rejestru; nazwy przejęte
+     * przez nowszy kontekst zostają nietknięte.
+     */
+    public void close() {
+        synchronized (OWNERS) {
+            for (Map.Entry<ObjectName, MethodMetrics> entry : registered.entrySet()) {
+                if (OWNERS.get(entry.getKey()) != entry.getValue()) {
+                    continue;
+                }
+                OWNERS.remove(entry.getKey());
+                try {
+                    if (mbeanServer.isRegistered(entry.getKey())) {
+                        mbeanServer.unregisterMBean(entry.getKey());
+                    }
+                } catch (JMException e) {
+                    // MBean mógł zostać już wyrejestrowany
+                }
+            }
+            registered.clear();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * DataSource owijający połączenia i zapytania w proxy, które mierzą czas
+ * wykonania i przekazują go do {@link SqlProfiler}. Zapytania wolniejsze od progu
+ * są wypisywane razem z parametrami i planem wykonania (EXPLAIN w H2).
+ */
+public class ProfilingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> EXPLAINABLE = Set.of("SELECT", "WITH", "UPDATE", "DELETE", "INSERT", "MERGE");
+
+    private final SqlProfiler profiler;
+
+    public ProfilingDataSource(DataSource target, SqlProfiler profiler) {
+        super(target);
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    // Spring porównuje połączenia przy zwalnianiu, więc proxy musi być równe samemu sobie.
+                    if (name.equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    if (name.equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof CallableStatement statement) {
+                        return wrapStatement(statement, CallableStatement.class, (String) args[0], connection);
+                    }
+                    if (result instanceof PreparedStatement statement) {
+                        return wrapStatement(statement, PreparedStatement.class, (String) args[0], connection);
+                    }
+                    if (result instanceof Statement statement && name.equals("createStatement")) {
+                        return wrapStatement(statement, Statement.class, null, connection);
+                    }
+                    return result;
+                });
+    }
+
+    private Statement wrapStatement(Statement statement, Class<? extends Statement> type, String preparedSql, Connection connection) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type},
+                new StatementHandler(statement, preparedSql, connection));
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String preparedSql;
+        private final Connection connection;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private int batchSize;
+        private SqlProfiler.StatementStats lastStats;
+
+        private StatementHandler(Statement target, String preparedSql, Connection connection) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            }
+
+            if (!name.startsWith("execute")) {
+                Object result = ProfilingDataSource.invoke(target, method, args);
+                if (name.equals("getResultSet") && result instanceof ResultSet resultSet && lastStats != null) {
+                    return wrapResultSet(resultSet, lastStats);
+                }
+                return result;
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+            if (sql == null) {
+                return ProfilingDataSource.invoke(target, method, args);
+            }
+            SqlProfiler.StatementStats stats = profiler.statsFor(sql);
+            lastStats = stats;
+            long started = System.nanoTime();
+            Object result = ProfilingDataSource.invoke(target, method, args);
+            long elapsed = System.nanoTime() - started;
+            stats.recordExecution(elapsed);
+
+            if (result instanceof Integer count) {
+                stats.addRows(Math.max(count, 0));
+            } else if (result instanceof Long count) {
+                stats.addRows(Math.max(count, 0));
+            } else if (result instanceof int[] counts) {
+                for (int count : counts) {
+                    stats.addRows(Math.max(count, 0));
+                }
+            }
+            if (profiler.isSlow(elapsed)) {
+                logSlowStatement(sql, elapsed, name.contains("Batch"));
+            }
+            if (name.contains("Batch")) {
+                batchSize = 0;
+            }
+            return result instanceof ResultSet resultSet ? wrapResultSet(resultSet, stats) : result;
+        }
+
+        private void logSlowStatement(String sql, long elapsedNanos, boolean batch) {
+            StringBuilder message = new StringBuilder()
+                    .append(String.format("[SQL] Wolne zapytanie (%.1f ms): ", elapsedNanos / 1e6))
+                    .append(SqlProfiler.normalize(sql));
+            if (batch) {
+                message.append("\n  wsad: ").append(batchSize).append(" wierszy, ostatnie parametry: ").append(parameters.values());
+            } else if (!parameters.isEmpty()) {
+                message.append("\n  parametry: ").append(parameters.values());
+            }
+            if (profiler.isExplainSlowQueries() && !batch) {
+                message.append("\n  plan: ").append(explain(sql).replace("\n", "\n        "));
+            }
+            System.err.println(message);
+        }
+
+        private String explain(String sql) {
+            String trimmed = sql.stripLeading();
+            int end = 0;
+            while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+                end++;
+            }
+            if (!EXPLAINABLE.contains(trimmed.substring(0, end).toUpperCase())) {
+                return "(niedostępny dla tego typu zapytania)";
+            }
+            try (PreparedStatement stmt = connection.prepareStatement("EXPLAIN " + trimmed)) {
+                for (Map.Entry<Integer, Object> parameter : parameters.entrySet()) {
+                    stmt.setObject(parameter.getKey(), parameter.getValue());
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1));
+                    }
+                }
+                return plan.toString();
+            } catch (SQLException e) {
+                return "(nie udało się pobrać planu: " + e.getMessage() + ")";
+            }
+        }
+    }
+
+    private static ResultSet wrapResultSet(ResultSet resultSet, SqlProfiler.StatementStats stats) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(resultSet, method, args);
+                    if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                        stats.addRows(1);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Agreguje czasy wykonania zapytań SQL po znormalizowanym tekście (literały
+ * zastąpione znakiem ?). Dla zapytań z ResultSet liczone są zwrócone wiersze,
+ * dla modyfikacji - zmienione wiersze.
+ */
+public class SqlProfiler {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_RAW_SQL_ENTRIES = 10_000;
+
+    private final long slowThresholdNanos;
+    private final boolean explainSlowQueries;
+    private final Map<String, StatementStats> byNormalizedSql = new ConcurrentHashMap<>();
+    // Skrót, żeby nie normalizować tego samego tekstu przy każdym wykonaniu.
+    private final Map<String, StatementStats> byRawSql = new ConcurrentHashMap<>();
+
+    public SqlProfiler(long slowThresholdMillis, boolean explainSlowQueries) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.explainSlowQueries = explainSlowQueries;
+    }
+
+    public StatementStats statsFor(String sql) {
+        StatementStats stats = byRawSql.get(sql);
+        if (stats == null) {
+            stats = byNormalizedSql.computeIfAbsent(normalize(sql), StatementStats::new);
+            if (byRawSql.size() < MAX_RAW_SQL_ENTRIES) {
+                byRawSql.put(sql, stats);
+            }
+        }
+        return stats;
+    }
+
+    public boolean isSlow(long nanos) {
+        return nanos >= slowThresholdNanos;
+    }
+
+    public boolean isExplainSlowQueries() {
+        return explainSlowQueries;
+    }
+
+    /**
+     * Zwraca statystyki posortowane malejąco po łącznym czasie wykonania.
+     */
+    public List<StatementStats> snapshot() {
+        List<StatementStats> list = new ArrayList<>(byNormalizedSql.values());
+        list.sort(Comparator.comparingLong(StatementStats::getTotalNanos).reversed());
+        return list;
+    }
+
+    public void reset() {
+        byNormalizedSql.clear();
+        byRawSql.clear();
+    }
+
+    public static String normalize(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("(?)");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    public static class StatementStats {
+
+        private final String sql;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        void recordExecution(long nanos) {
+            latency.record(nanos);
+            totalNanos.add(nanos);
+        }
+
+        void addRows(long count) {
+            rows.add(count);
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public double getMeanMillis() {
+            return latency.getMeanNanos() / 1e6;
+        }
+
+        public double getMaxMillis() {
+            return latency.getMaxNanos() / 1e6;
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d suma=%.1fms śr=%.2fms max=%.2fms wiersze=%d  %s",
+                    getCount(), getTotalNanos() / 1e6, getMeanMillis(), getMaxMillis(), getRows(), sql);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package metrics;
+
+import org.aopalliance.aop.Advice;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.AbstractPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owija beany implementujące podane typy w proxy mierzące czas każdej publicznej
+ * metody tych typów. Jeśli bean jest już proxy (np. transakcyjnym), pomiar jest
+ * dokładany do istniejącego proxy jako pierwszy, więc obejmuje też transakcję.
+ */
+public class TimingBeanPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    public TimingBeanPostProcessor(MetricsRegistry registry, List<Class<?>> instrumentedTypes) {
+        setProxyTargetClass(true);
+        setBeforeExistingAdvisors(true);
+        this.advisor = new TimingAdvisor(registry, instrumentedTypes);
+    }
+
+    private static final class TimingAdvisor extends AbstractPointcutAdvisor {
+
+        private final List<Class<?>> instrumentedTypes;
+        private final Map<Method, MethodMetrics> metricsByMethod = new ConcurrentHashMap<>();
+        private final MetricsRegistry registry;
+
+        private TimingAdvisor(MetricsRegistry registry, List<Class<?>> instrumentedTypes) {
+            this.registry = registry;
+            this.instrumentedTypes = instrumentedTypes;
+        }
+
+        @Override
+        public Pointcut getPointcut() {
+            return new StaticMethodMatcherPointcut() {
+                @Override
+                public ClassFilter getClassFilter() {
+                    return clazz -> instrumentedTypes.stream().anyMatch(type -> type.isAssignableFrom(clazz));
+                }
+
+                @Override
+                public boolean matches(Method method, Class<?> targetClass) {
+                    return Modifier.isPublic(method.getModifiers()) && instrumentedTypes.stream()
+                            .anyMatch(type -> type.isAssignableFrom(targetClass) && ClassUtils.hasMethod(type, method.getName(), method.getParameterTypes()));
+                }
+            };
+        }
+
+        @Override
+        public Advice getAdvice() {
+            return (MethodInterceptor) invocation -> {
+                MethodMetrics metrics = metricsByMethod.computeIfAbsent(invocation.getMethod(),
+                        method -> registry.forMethod(ClassUtils.getUserClass(invocation.getThis()).getSimpleName(), describe(method)));
+                long started = System.nanoTime();
+                boolean failed = true;
+                try {
+                    Object result = invocation.proceed();
+                    failed = false;
+                    return result;
+                } finally {
+                    metrics.record(System.nanoTime() - started, failed);
+                }
+            };
+        }
+
+        private static String describe(Method method) {
+            StringBuilder sb = new StringBuilder(method.getName()).append('(');
+            Class<?>[] parameters = method.getParameterTypes();
+            for (int i = 0; i < parameters.length; i++) {
+                sb.append(i > 0 ? "," : "").append(parameters[i].getSimpleName());
+            }
+            return sb.append(')').toString();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package model;
+
+/**
+ * Pozycja zwrotu przy ladzie: książka i użytkownik, który ją oddaje.
+ */
+public record BookReturn(int bookId, int userId) {
+}
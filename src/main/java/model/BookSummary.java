@@ -0,0 +1,13 @@
+package model;
+
+/**
+ * Lekka projekcja książki do list i wyników wyszukiwania: tylko kolumny,
+ * które są faktycznie wyświetlane.
+ */
+public record BookSummary(int id, String title, String author, int categoryId, String status) {
+
+    @Override
+    public String toString() {
+        return "#" + id + " \"" + title + "\" - " + author + " (" + status + ")";
+    }
+}
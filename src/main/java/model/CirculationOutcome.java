@@ -0,0 +1,20 @@
+package model;
+
+/**
+ * Wynik wypożyczenia, rezerwacji lub zwrotu jednej książki; przy odmowie {@code message} podaje powód.
+ */
+public record CirculationOutcome(int bookId, int userId, boolean success, String message) {
+
+    public static CirculationOutcome ok(int bookId, int userId) {
+        return new CirculationOutcome(bookId, userId, true, null);
+    }
+
+    public static CirculationOutcome failed(int bookId, int userId, String message) {
+        return new CirculationOutcome(bookId, userId, false, message);
+    }
+
+    @Override
+    public String toString() {
+        return "#" + bookId + (success ? ": OK" : ": " + message);
+    }
+}
@@ -0,0 +1,23 @@
+package model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportReport {
+    private long importedRows;
+    private long rejectedRows;
+    private long resumeFromRow;
+    private long elapsedMillis;
+    private boolean failed;
+    private String failureMessage;
+
+    public double getRowsPerSecond() {
+        return elapsedMillis > 0 ? importedRows * 1000.0 / elapsedMillis : importedRows;
+    }
+}
@@ -3,6 +3,8 @@ package model;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 @Builder
 public class SearchCriteria {
@@ -11,9 +13,19 @@ public class SearchCriteria {
     private Integer year;
     private Integer categoryId;
 
+    // Filtry rozstrzygane indeksem bitmapowym: dowolna z kategorii, zakres lat (obustronnie domknięty), dowolny ze statusów.
+    private List<Integer> categoryIds;
+    private Integer yearFrom;
+    private Integer yearTo;
+    private List<String> statuses;
+
     private String sortBy;
     private String sortOrder;
 
     private int page;
     private int pageSize;
+
+    // Tryb kursorowy: strona zaczyna się za (lub przed, gdy backward) wierszem zakodowanym w kursorze.
+    private String cursor;
+    private boolean backward;
 }
\ No newline at end of file
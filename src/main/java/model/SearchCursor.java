@@ -0,0 +1,38 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public record SearchCursor(String sortBy, String sortValue, int id) {
+
+    private static final char SEPARATOR = '\u0000';
+
+    public static SearchCursor of(String sortBy, Book book) {
+        String value = switch (sortBy == null ? "" : sortBy) {
+            case "title" -> book.getTitle();
+            case "author" -> book.getAuthor();
+            case "publication_year" -> String.valueOf(book.getPublicationYear());
+            default -> "";
+        };
+        return new SearchCursor(sortBy == null ? "" : sortBy, value, book.getId());
+    }
+
+    public String encode() {
+        String raw = sortBy + SEPARATOR + sortValue + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            int last = raw.lastIndexOf(SEPARATOR);
+            if (first < 0 || first == last) {
+                throw new IllegalArgumentException("Nieprawidłowy kursor wyszukiwania");
+            }
+            return new SearchCursor(raw.substring(0, first), raw.substring(first + 1, last), Integer.parseInt(raw.substring(last + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Nieprawidłowy kursor wyszukiwania", e);
+        }
+    }
+}
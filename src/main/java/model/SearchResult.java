@@ -0,0 +1,11 @@
+package model;
+
+import java.util.List;
+
+// Niezmienny wynik strony; repozytoria mogą go przechowywać w cache i oddawać wielu wywołującym.
+public record SearchResult(List<Book> books, int totalCount) {
+
+    public SearchResult {
+        books = List.copyOf(books);
+    }
+}
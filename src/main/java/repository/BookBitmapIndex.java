@@ -0,0 +1,312 @@
+package repository;
+
+import jakarta.annotation.PostConstruct;
+import model.Book;
+import model.SearchCriteria;
+import model.SearchCursor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * Indeksy bitmapowe katalogu: zbiór identyfikatorów książek dla każdej kategorii, statusu
+ * i roku wydania oraz zbiór książek nieusuniętych. Filtry wyszukiwania bez tytułu i autora
+ * są rozstrzygane przecięciami i sumami tych zbiorów, liczba wyników to liczność wyniku,
+ * a strona sortowana po id lub roku wydania jest wybierana z bitmapy bez zapytania do bazy.
+ * Repozytoria aktualizują indeks po zatwierdzeniu transakcji, tak jak BookSearchIndex.
+ * Wywołania po zatwierdzeniu z różnych wątków mogą przyjść w innej kolejności niż same
+ * zatwierdzenia, dlatego zmiany z bazy niosą wersję wiersza (kolumna books.version),
+ * a magazyn w pamięci jest odczytywany ponownie pod blokadą indeksu.
+ */
+@Component
+@DependsOn("dataSourceInitializer")
+public class BookBitmapIndex {
+
+    private final DataSource dataSource;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private CompressedBitmap live = new CompressedBitmap();
+    private final Map<Integer, CompressedBitmap> byCategory = new HashMap<>();
+    private final Map<String, CompressedBitmap> byStatus = new HashMap<>();
+    private final TreeMap<Integer, CompressedBitmap> byYear = new TreeMap<>();
+    // Ostatnia zastosowana wersja wiersza według id książki, -1 gdy nieznana.
+    private long[] versions = new long[0];
+
+    public BookBitmapIndex(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        // Wersje usuniętych książek też są zapamiętywane, żeby spóźniona zmiana ich nie przywróciła.
+        String sql = "SELECT id, category_id, publication_year, status, is_deleted, version FROM books";
+        lock.writeLock().lock();
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            clearUnlocked();
+            while (rs.next()) {
+                int bookId = rs.getInt("id");
+                int categoryId = rs.getInt("category_id");
+                Integer category = rs.wasNull() ? null : categoryId;
+                setVersionUnlocked(bookId, rs.getLong("version"));
+                if (!rs.getBoolean("is_deleted")) {
+                    addUnlocked(bookId, category, rs.getInt("publication_year"), rs.getString("status"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas budowania indeksu bitmapowego", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Przebudowa z magazynu w pamięci zamiast z tabeli books.
+    public void rebuild(Iterable<Book> books) {
+        lock.writeLock().lock();
+        try {
+            clearUnlocked();
+            for (Book book : books) {
+                if (!book.isDeleted()) {
+                    addUnlocked(book.getId(), book.getCategoryId(), book.getPublicationYear(), book.getStatus());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(int bookId, Integer categoryId, int publicationYear, String status) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(bookId);
+            addUnlocked(bookId, categoryId, publicationYear, status);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int bookId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Zapisuje zatwierdzony stan wiersza books w danej wersji. Zmiana starsza od już
+     * zastosowanej (spóźnione wywołanie po zatwierdzeniu z innego wątku) jest pomijana.
+     */
+    public void apply(int bookId, Integer categoryId, int publicationYear, String status, boolean deleted, long version) {
+        lock.writeLock().lock();
+        try {
+            if (version <= versionUnlocked(bookId)) {
+                return;
+            }
+            setVersionUnlocked(bookId, version);
+            removeUnlocked(bookId);
+            if (!deleted) {
+                addUnlocked(bookId, categoryId, publicationYear, status);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Przepisuje książkę ze stanu źródła odczytanego pod blokadą indeksu. Ostatnie odświeżenie
+     * widzi więc najnowsze zatwierdzenie, w jakiejkolwiek kolejności przyszły wywołania.
+     */
+    public void refresh(int bookId, IntFunction<Book> committed) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(bookId);
+            Book book = committed.apply(bookId);
+            if (book != null && !book.isDeleted()) {
+                addUnlocked(bookId, book.getCategoryId(), book.getPublicationYear(), book.getStatus());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Czy kryteria da się w całości rozstrzygnąć indeksem; tytuł i autor wymagają
+     * dopasowania fragmentu tekstu, więc wtedy trzeba sięgnąć do wierszy.
+     */
+    public static boolean covers(SearchCriteria criteria) {
+        return isBlank(criteria.getTitle()) && isBlank(criteria.getAuthor());
+    }
+
+    // Kolejność po id lub po roku (z id jako drugim kluczem) odpowiada układowi indeksu.
+    public static boolean canPage(SearchCriteria criteria) {
+        return covers(criteria) && (isBlank(criteria.getSortBy()) || "publication_year".equals(criteria.getSortBy()));
+    }
+
+    public int count(SearchCriteria criteria) {
+        lock.readLock().lock();
+        try {
+            return (int) matchUnlocked(criteria).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Identyfikatory nieusuniętych książek spełniających filtry kategorii, roku i statusu,
+     * rosnąco. Tytuł i autor są pomijane.
+     */
+    public List<Integer> matchingIds(SearchCriteria criteria) {
+        List<Integer> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            matchUnlocked(criteria).collect(false, -1, 0, Integer.MAX_VALUE, ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ids;
+    }
+
+    /**
+     * Identyfikatory jednej strony wyników w kolejności strony, dla kryteriów, dla których
+     * canPage zwraca true. Obsługuje numer strony i kursor (także wstecz) jak zapytanie SQL.
+     */
+    public List<Integer> page(SearchCriteria criteria) {
+        boolean keyset = criteria.getCursor() != null && !criteria.getCursor().isEmpty();
+        boolean reverse = keyset && criteria.isBackward();
+        boolean descending = "DESC".equalsIgnoreCase(criteria.getSortOrder()) != reverse;
+        boolean yearOrder = !isBlank(criteria.getSortBy());
+        SearchCursor cursor = keyset ? SearchCursor.decode(criteria.getCursor()) : null;
+        if (cursor != null && yearOrder && !"publication_year".equals(cursor.sortBy())) {
+            throw new IllegalArgumentException("Kursor nie pasuje do kolumny sortowania: publication_year");
+        }
+        int limit = criteria.getPageSize() > 0 ? criteria.getPageSize() : Integer.MAX_VALUE;
+        long skip = !keyset && criteria.getPageSize() > 0 ? (long) (Math.max(criteria.getPage(), 1) - 1) * criteria.getPageSize() : 0;
+
+        List<Integer> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            CompressedBitmap matches = matchUnlocked(criteria);
+            if (!yearOrder) {
+                matches.collect(descending, cursor != null ? cursor.id() : -1, skip, limit, ids);
+            } else {
+                Integer cursorYear = cursor != null ? Integer.valueOf(cursor.sortValue()) : null;
+                NavigableMap<Integer, CompressedBitmap> years = cursorYear == null ? byYear
+                        : descending ? byYear.headMap(cursorYear, true) : byYear.tailMap(cursorYear, true);
+                for (Map.Entry<Integer, CompressedBitmap> year : (descending ? years.descendingMap() : years).entrySet()) {
+                    if (ids.size() >= limit) {
+                        break;
+                    }
+                    int after = year.getKey().equals(cursorYear) ? cursor.id() : -1;
+                    skip = matches.and(year.getValue()).collect(descending, after, skip, limit, ids);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (reverse) {
+            Collections.reverse(ids);
+        }
+        return ids;
+    }
+
+    // Bez filtrów zwraca sam zbiór live, więc wyniku nie wolno modyfikować ani używać poza blokadą.
+    private CompressedBitmap matchUnlocked(SearchCriteria criteria) {
+        CompressedBitmap result = live;
+        if (criteria.getCategoryId() != null) {
+            result = result.and(byCategory.getOrDefault(criteria.getCategoryId(), new CompressedBitmap()));
+        }
+        if (criteria.getCategoryIds() != null && !criteria.getCategoryIds().isEmpty()) {
+            List<CompressedBitmap> categories = new ArrayList<>();
+            for (Integer categoryId : criteria.getCategoryIds()) {
+                categories.add(byCategory.getOrDefault(categoryId, new CompressedBitmap()));
+            }
+            result = result.and(CompressedBitmap.orAll(categories));
+        }
+        if (criteria.getYear() != null) {
+            result = result.and(byYear.getOrDefault(criteria.getYear(), new CompressedBitmap()));
+        }
+        if (criteria.getYearFrom() != null || criteria.getYearTo() != null) {
+            int from = criteria.getYearFrom() != null ? criteria.getYearFrom() : Integer.MIN_VALUE;
+            int to = criteria.getYearTo() != null ? criteria.getYearTo() : Integer.MAX_VALUE;
+            result = result.and(from > to ? new CompressedBitmap() : CompressedBitmap.orAll(byYear.subMap(from, true, to, true).values()));
+        }
+        if (criteria.getStatuses() != null && !criteria.getStatuses().isEmpty()) {
+            List<CompressedBitmap> statuses = new ArrayList<>();
+            for (String status : criteria.getStatuses()) {
+                statuses.add(byStatus.getOrDefault(status, new CompressedBitmap()));
+            }
+            result = result.and(CompressedBitmap.orAll(statuses));
+        }
+        return result;
+    }
+
+    private void addUnlocked(int bookId, Integer categoryId, int publicationYear, String status) {
+        live.add(bookId);
+        if (categoryId != null) {
+            byCategory.computeIfAbsent(categoryId, id -> new CompressedBitmap()).add(bookId);
+        }
+        if (status != null) {
+            byStatus.computeIfAbsent(status, s -> new CompressedBitmap()).add(bookId);
+        }
+        byYear.computeIfAbsent(publicationYear, year -> new CompressedBitmap()).add(bookId);
+    }
+
+    // Usunięta książka znika ze wszystkich zbiorów, więc puste zbiory nie zostają w mapach.
+    private void removeUnlocked(int bookId) {
+        if (!live.contains(bookId)) {
+            return;
+        }
+        live.remove(bookId);
+        byCategory.values().removeIf(ids -> removeAndCheckEmpty(ids, bookId));
+        byStatus.values().removeIf(ids -> removeAndCheckEmpty(ids, bookId));
+        byYear.values().removeIf(ids -> removeAndCheckEmpty(ids, bookId));
+    }
+
+    private long versionUnlocked(int bookId) {
+        return bookId < versions.length ? versions[bookId] : -1;
+    }
+
+    private void setVersionUnlocked(int bookId, long version) {
+        if (bookId >= versions.length) {
+            int previous = versions.length;
+            versions = Arrays.copyOf(versions, Math.max(bookId + 1, previous * 2));
+            Arrays.fill(versions, previous, versions.length, -1);
+        }
+        versions[bookId] = version;
+    }
+
+    private static boolean removeAndCheckEmpty(CompressedBitmap ids, int bookId) {
+        ids.remove(bookId);
+        return ids.isEmpty();
+    }
+
+    private void clearUnlocked() {
+        live = new CompressedBitmap();
+        byCategory.clear();
+        byStatus.clear();
+        byYear.clear();
+        versions = new long[0];
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.isEmpty();
+    }
+}
@@ -0,0 +1,76 @@
+package repository;
+
+import model.Book;
+import model.BookSummary;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Mapowanie wierszy tabeli books. Indeksy kolumn są wyznaczane raz, przy pierwszym
+ * wierszu, więc każdy ResultSet potrzebuje własnej instancji mappera.
+ */
+final class BookMappers {
+
+    static final String BOOK_COLUMNS = "id, title, author, publication_year, isbn, category_id, status, reserved_for_user_id, is_deleted";
+    static final String SUMMARY_COLUMNS = "id, title, author, category_id, status";
+
+    private BookMappers() {
+    }
+
+    static Book copy(Book book) {
+        return new Book(book.getId(), book.getTitle(), book.getAuthor(), book.getPublicationYear(), book.getIsbn(),
+                book.getCategoryId(), book.getStatus(), book.getReservedForUserId(), book.isDeleted());
+    }
+
+    static RowMapper<Book> book() {
+        return new RowMapper<>() {
+            private int[] columns;
+
+            @Override
+            public Book mapRow(ResultSet rs, int rowNum) throws SQLException {
+                if (columns == null) {
+                    columns = resolve(rs, "id", "title", "author", "publication_year", "isbn",
+                            "category_id", "status", "reserved_for_user_id", "is_deleted");
+                }
+                int reservedFor = rs.getInt(columns[7]);
+                Integer reservedForUserId = rs.wasNull() ? null : reservedFor;
+                return Book.builder()
+                        .id(rs.getInt(columns[0]))
+                        .title(rs.getString(columns[1]))
+                        .author(rs.getString(columns[2]))
+                        .publicationYear(rs.getInt(columns[3]))
+                        .isbn(rs.getString(columns[4]))
+                        .categoryId(rs.getInt(columns[5]))
+                        .status(rs.getString(columns[6]))
+                        .reservedForUserId(reservedForUserId)
+                        .isDeleted(rs.getBoolean(columns[8]))
+                        .build();
+            }
+        };
+    }
+
+    static RowMapper<BookSummary> summary() {
+        return new RowMapper<>() {
+            private int[] columns;
+
+            @Override
+            public BookSummary mapRow(ResultSet rs, int rowNum) throws SQLException {
+                if (columns == null) {
+                    columns = resolve(rs, "id", "title", "author", "category_id", "status");
+                }
+                return new BookSummary(rs.getInt(columns[0]), rs.getString(columns[1]), rs.getString(columns[2]),
+                        rs.getInt(columns[3]), rs.getString(columns[4]));
+            }
+        };
+    }
+
+    private static int[] resolve(ResultSet rs, String... names) throws SQLException {
+        int[] columns = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            columns[i] = rs.findColumn(names[i]);
+        }
+        return columns;
+    }
+}
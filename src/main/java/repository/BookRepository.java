@@ -1,21 +1,39 @@
 package repository;
 
 import model.Book;
+import model.BookSummary;
 import model.SearchCriteria;
+import model.SearchResult;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookRepository {
     void addBook(Book book);
+    int addBooks(Iterable<Book> books);
     List<Book> getAllBooks();
+    Stream<Book> streamAllBooks();
+    Stream<BookSummary> streamBookSummaries();
     Optional<Book> findById(int id);
+    List<Book> findByIds(List<Integer> ids);
     List<Book> searchBooks(String query);
+    List<BookSummary> searchBookSummaries(String query);
     List<Book> searchBooks(SearchCriteria criteria);
+    SearchResult searchPage(SearchCriteria criteria);
+    // Strona wyników wyszukiwania pełnotekstowego w kolejności trafności; totalCount to liczba wszystkich trafień.
+    SearchResult searchPage(String query, int page, int pageSize);
     int countBooks(SearchCriteria criteria);
     List<Book> getBooksByCategory(int categoryId);
+    List<BookSummary> getBookSummariesByCategory(int categoryId);
     boolean deleteBook(int bookId);
     void updateBookStatus(int bookId, String status, Integer reservedForUserId);
+    boolean markLoaned(int bookId, int userId);
+    boolean[] markLoaned(List<Integer> bookIds, int userId);
+    void releaseBook(int bookId);
+    void releaseBooks(List<Integer> bookIds);
+    // Odłącza książki od usuwanej kategorii (jak ON DELETE SET NULL) i zwraca ich identyfikatory.
+    List<Integer> detachCategory(int categoryId);
     int countAllBooks();
     int countByStatus(String status);
 }
\ No newline at end of file
@@ -1,29 +1,73 @@
 package repository;
 
+import cache.TtlLruCache;
 import model.Book;
+import model.BookSummary;
 import model.SearchCriteria;
+import model.SearchCursor;
+import model.SearchResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import stats.LibraryStatistics;
+import transaction.TransactionHooks;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
 
 @Repository
+@Profile("!inmemory")
 public class BookRepositoryImpl implements BookRepository {
 
+    // Zwolniona książka trafia do pierwszej osoby z kolejki rezerwacji albo wraca na półkę.
+    private static final String NEXT_RESERVATION = "(SELECT r.user_id FROM reservations r WHERE r.book_id = books.id " +
+                                                   "ORDER BY r.reservation_date ASC, r.id ASC LIMIT 1)";
+    private static final String RELEASE_ASSIGNMENTS = "reserved_for_user_id = " + NEXT_RESERVATION + ", " +
+            "status = CASE WHEN " + NEXT_RESERVATION + " IS NULL THEN 'AVAILABLE' ELSE 'RESERVED' END, " +
+            "version = version + 1";
+    // Wypożyczyć można książkę dostępną albo zarezerwowaną dla tego użytkownika.
+    private static final String MARK_LOANED = "UPDATE books SET status = 'LOANED', reserved_for_user_id = NULL, version = version + 1 ";
+    private static final String RENTABLE = "AND is_deleted = FALSE " +
+            "AND (status = 'AVAILABLE' OR (status = 'RESERVED' AND reserved_for_user_id = ?))";
+    // Zmiany wierszy books zwracają przez FINAL TABLE nowy stan z wersją dla indeksu bitmapowego.
+    private static final String INDEXED_COLUMNS = "id, category_id, publication_year, status, is_deleted, version";
+
     private final DataSource dataSource;
+    private final BookSearchIndex searchIndex;
+    private final BookBitmapIndex bitmapIndex;
+    private final LibraryStatistics statistics;
+    private final TtlLruCache<String, SearchResult> pageCache;
+    private final TtlLruCache<String, Integer> countCache;
+    private final AtomicLong invalidations = new AtomicLong();
 
-    public BookRepositoryImpl(DataSource dataSource) {
+    public BookRepositoryImpl(DataSource dataSource, BookSearchIndex searchIndex, BookBitmapIndex bitmapIndex, LibraryStatistics statistics,
+                              @Value("${search.cache.max-entries:256}") int cacheEntries,
+                              @Value("${search.cache.ttl-seconds:30}") long cacheTtlSeconds) {
         this.dataSource = dataSource;
+        this.searchIndex = searchIndex;
+        this.bitmapIndex = bitmapIndex;
+        this.statistics = statistics;
+        this.pageCache = new TtlLruCache<>(cacheEntries, cacheTtlSeconds * 1000);
+        this.countCache = new TtlLruCache<>(cacheEntries, cacheTtlSeconds * 1000);
     }
 
     @Override
     public void addBook(Book book) {
         String sql = "INSERT INTO books (title, author, publication_year, isbn, category_id, status) VALUES (?, ?, ?, ?, ?, ?)";
         try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setString(1, book.getTitle());
             stmt.setString(2, book.getAuthor());
             stmt.setInt(3, book.getPublicationYear());
@@ -31,21 +75,80 @@ public class BookRepositoryImpl implements BookRepository {
             stmt.setInt(5, book.getCategoryId());
             stmt.setString(6, book.getStatus() != null ? book.getStatus() : "AVAILABLE");
             stmt.executeUpdate();
+            invalidateSearchCaches();
+            statistics.bookAdded(1);
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    int id = keys.getInt(1);
+                    String status = book.getStatus() != null ? book.getStatus() : "AVAILABLE";
+                    TransactionHooks.afterCommit(() -> {
+                        searchIndex.add(id, book.getTitle(), book.getAuthor());
+                        bitmapIndex.apply(id, book.getCategoryId(), book.getPublicationYear(), status, false, 0);
+                    });
+                }
+            }
             System.out.println("Dodano książkę: " + book.getTitle());
         } catch (SQLException e) {
             throw new RuntimeException("Błąd podczas dodawania książki", e);
         }
     }
 
+    @Override
+    public int addBooks(Iterable<Book> books) {
+        String sql = "INSERT INTO books (title, author, publication_year, isbn, category_id, status) VALUES (?, ?, ?, ?, ?, ?)";
+        List<Book> batch = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (Book book : books) {
+                stmt.setString(1, book.getTitle());
+                stmt.setString(2, book.getAuthor());
+                stmt.setInt(3, book.getPublicationYear());
+                stmt.setString(4, book.getIsbn());
+                if (book.getCategoryId() > 0) {
+                    stmt.setInt(5, book.getCategoryId());
+                } else {
+                    stmt.setNull(5, Types.INTEGER);
+                }
+                stmt.setString(6, book.getStatus() != null ? book.getStatus() : "AVAILABLE");
+                stmt.addBatch();
+                batch.add(book);
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            stmt.executeBatch();
+            invalidateSearchCaches();
+            statistics.bookAdded(batch.size());
+            List<Integer> ids = new ArrayList<>(batch.size());
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                while (keys.next()) {
+                    ids.add(keys.getInt(1));
+                }
+            }
+            TransactionHooks.afterCommit(() -> {
+                for (int i = 0; i < ids.size(); i++) {
+                    Book book = batch.get(i);
+                    searchIndex.add(ids.get(i), book.getTitle(), book.getAuthor());
+                    bitmapIndex.apply(ids.get(i), book.getCategoryId() > 0 ? book.getCategoryId() : null, book.getPublicationYear(),
+                            book.getStatus() != null ? book.getStatus() : "AVAILABLE", false, 0);
+                }
+            });
+            return batch.size();
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas wsadowego dodawania książek", e);
+        }
+    }
+
     @Override
     public List<Book> getAllBooks() {
         List<Book> books = new ArrayList<>();
-        String sql = "SELECT * FROM books WHERE is_deleted = FALSE";
+        String sql = "SELECT " + BookMappers.BOOK_COLUMNS + " FROM books WHERE is_deleted = FALSE";
         try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
+            RowMapper<Book> mapper = BookMappers.book();
             while (rs.next()) {
-                books.add(mapResultSetToBook(rs));
+                books.add(mapper.mapRow(rs, books.size()));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Błąd podczas pobierania wszystkich książek", e);
@@ -53,15 +156,27 @@ public class BookRepositoryImpl implements BookRepository {
         return books;
     }
 
+    @Override
+    public Stream<Book> streamAllBooks() {
+        return ResultSetStreams.stream(dataSource, "SELECT " + BookMappers.BOOK_COLUMNS + " FROM books WHERE is_deleted = FALSE ORDER BY id",
+                BookMappers.book());
+    }
+
+    @Override
+    public Stream<BookSummary> streamBookSummaries() {
+        return ResultSetStreams.stream(dataSource, "SELECT " + BookMappers.SUMMARY_COLUMNS + " FROM books WHERE is_deleted = FALSE ORDER BY id",
+                BookMappers.summary());
+    }
+
     @Override
     public Optional<Book> findById(int id) {
-        String sql = "SELECT * FROM books WHERE id = ? AND is_deleted = FALSE";
+        String sql = "SELECT " + BookMappers.BOOK_COLUMNS + " FROM books WHERE id = ? AND is_deleted = FALSE";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, id);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                return Optional.of(mapResultSetToBook(rs));
+                return Optional.of(BookMappers.book().mapRow(rs, 0));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Błąd podczas wyszukiwania książki po ID", e);
@@ -71,58 +186,216 @@ public class BookRepositoryImpl implements BookRepository {
 
     @Override
     public List<Book> searchBooks(String query) {
-        List<Book> books = new ArrayList<>();
-        String sql = "SELECT * FROM books WHERE (LOWER(title) LIKE LOWER(?) OR LOWER(author) LIKE LOWER(?)) AND is_deleted = FALSE";
+        if (BookSearchIndex.tokenize(query).isEmpty()) {
+            return getAllBooks();
+        }
+        return findAllByIds(searchIndex.search(query), BookMappers.BOOK_COLUMNS, BookMappers.book(), Book::getId);
+    }
+
+    @Override
+    public List<BookSummary> searchBookSummaries(String query) {
+        if (BookSearchIndex.tokenize(query).isEmpty()) {
+            try (Stream<BookSummary> summaries = streamBookSummaries()) {
+                return summaries.toList();
+            }
+        }
+        return findAllByIds(searchIndex.search(query), BookMappers.SUMMARY_COLUMNS, BookMappers.summary(), BookSummary::id);
+    }
+
+    @Override
+    public List<Book> findByIds(List<Integer> ids) {
+        return findAllByIds(ids, BookMappers.BOOK_COLUMNS, BookMappers.book(), Book::getId);
+    }
+
+    // Zachowuje kolejność identyfikatorów z indeksu (ranking trafności).
+    private <T> List<T> findAllByIds(List<Integer> ids, String columns, RowMapper<T> mapper, ToIntFunction<T> idOf) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, T> byId = new HashMap<>(ids.size() * 2);
+        String sql = "SELECT " + columns + " FROM books WHERE id = ANY(?) AND is_deleted = FALSE";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            String pattern = "%" + query + "%";
-            stmt.setString(1, pattern);
-            stmt.setString(2, pattern);
+            stmt.setArray(1, conn.createArrayOf("INTEGER", ids.toArray()));
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                books.add(mapResultSetToBook(rs));
+                T row = mapper.mapRow(rs, byId.size());
+                byId.put(idOf.applyAsInt(row), row);
             }
         } catch (SQLException e) {
-            throw new RuntimeException("Błąd podczas prostego wyszukiwania książek", e);
+            throw new RuntimeException("Błąd podczas pobierania książek po ID", e);
         }
-        return books;
+        List<T> rows = new ArrayList<>(byId.size());
+        for (Integer id : ids) {
+            T row = byId.get(id);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
     }
 
     @Override
     public List<Book> searchBooks(SearchCriteria criteria) {
+        return runSearch(criteria, false).books();
+    }
+
+    @Override
+    public SearchResult searchPage(SearchCriteria criteria) {
+        String pageKey = pageKey(criteria);
+        SearchResult cached = pageCache.get(pageKey);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+
+        long generation = invalidations.get();
+        String filterKey = filterKey(criteria);
+        Integer total = countCache.get(filterKey);
+        boolean keyset = criteria.getCursor() != null && !criteria.getCursor().isEmpty();
+        SearchResult result = runSearch(criteria, total == null && !keyset);
+        int totalCount = total != null ? total : result.totalCount() >= 0 ? result.totalCount() : countBooks(criteria);
+        SearchResult page = new SearchResult(result.books(), totalCount);
+        // Jak w CachingBookRepository: w transakcji wynik może zawierać niezatwierdzone wiersze,
+        // a równoległe unieważnienie oznacza, że odczyt sprzed zatwierdzenia jest już nieaktualny.
+        if (!TransactionHooks.inTransaction() && generation == invalidations.get()) {
+            countCache.put(filterKey, totalCount);
+            // Cache trzyma własne kopie książek, więc zmiana obiektów przez wywołującego nie psuje kolejnych wyników.
+            pageCache.put(pageKey, copyOf(page));
+        }
+        return page;
+    }
+
+    @Override
+    public SearchResult searchPage(String query, int page, int pageSize) {
+        if (BookSearchIndex.tokenize(query).isEmpty()) {
+            return searchPage(SearchCriteria.builder().page(page).pageSize(pageSize).build());
+        }
+        List<Integer> ids = searchIndex.search(query);
+        int from = (int) Math.min((long) (Math.max(page, 1) - 1) * pageSize, ids.size());
+        List<Integer> pageIds = ids.subList(from, Math.min(from + pageSize, ids.size()));
+        return new SearchResult(findAllByIds(pageIds, BookMappers.BOOK_COLUMNS, BookMappers.book(), Book::getId), ids.size());
+    }
+
+    private static SearchResult copyOf(SearchResult result) {
+        return new SearchResult(result.books().stream().map(BookMappers::copy).toList(), result.totalCount());
+    }
+
+    private SearchResult runSearch(SearchCriteria criteria, boolean withTotal) {
+        if (BookBitmapIndex.canPage(criteria)) {
+            // Strona wybrana z bitmapy; z bazy czytamy tylko jej wiersze.
+            List<Book> books = findAllByIds(bitmapIndex.page(criteria), BookMappers.BOOK_COLUMNS, BookMappers.book(), Book::getId);
+            return new SearchResult(books, withTotal ? bitmapIndex.count(criteria) : -1);
+        }
         List<Book> books = new ArrayList<>();
         List<Object> params = new ArrayList<>();
-        StringBuilder sql = new StringBuilder("SELECT * FROM books");
+        StringBuilder sql = new StringBuilder(withTotal
+                ? "SELECT " + BookMappers.BOOK_COLUMNS + ", COUNT(*) OVER () AS total_count FROM books"
+                : "SELECT " + BookMappers.BOOK_COLUMNS + " FROM books");
         sql.append(buildWhereClause(criteria, params));
 
-        if (criteria.getSortBy() != null && !criteria.getSortBy().isEmpty()) {
-            sql.append(" ORDER BY ").append(criteria.getSortBy());
-            if (criteria.getSortOrder() != null && !criteria.getSortOrder().isEmpty()) {
-                sql.append(" ").append(criteria.getSortOrder());
-            }
+        String sortColumn = sortColumn(criteria.getSortBy());
+        boolean keyset = criteria.getCursor() != null && !criteria.getCursor().isEmpty();
+        boolean reverse = keyset && criteria.isBackward();
+        boolean descending = "DESC".equalsIgnoreCase(criteria.getSortOrder()) != reverse;
+
+        if (keyset) {
+            sql.append(buildSeekClause(SearchCursor.decode(criteria.getCursor()), sortColumn, descending, params));
         }
+        sql.append(" ORDER BY ");
+        if (sortColumn != null) {
+            sql.append(sortColumn).append(descending ? " DESC, " : " ASC, ");
+        }
+        sql.append(descending ? "id DESC" : "id ASC");
 
         if (criteria.getPageSize() > 0) {
-            sql.append(" LIMIT ? OFFSET ?");
+            sql.append(" LIMIT ?");
             params.add(criteria.getPageSize());
-            params.add((criteria.getPage() - 1) * criteria.getPageSize());
+            if (!keyset) {
+                sql.append(" OFFSET ?");
+                params.add((Math.max(criteria.getPage(), 1) - 1) * criteria.getPageSize());
+            }
         }
 
+        int total = -1;
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
             setStatementParams(stmt, params);
             ResultSet rs = stmt.executeQuery();
+            RowMapper<Book> mapper = BookMappers.book();
+            int totalColumn = withTotal ? rs.findColumn("total_count") : 0;
             while (rs.next()) {
-                books.add(mapResultSetToBook(rs));
+                books.add(mapper.mapRow(rs, books.size()));
+                if (withTotal) {
+                    total = rs.getInt(totalColumn);
+                }
             }
         } catch (SQLException e) {
             throw new RuntimeException("Błąd podczas zaawansowanego wyszukiwania książek", e);
         }
-        return books;
+        if (reverse) {
+            Collections.reverse(books);
+        }
+        return new SearchResult(books, total);
+    }
+
+    private String filterKey(SearchCriteria criteria) {
+        return keyPart(criteria.getTitle()) + keyPart(criteria.getAuthor())
+                + criteria.getYear() + '|' + criteria.getCategoryId() + '|' + criteria.getCategoryIds() + '|'
+                + criteria.getYearFrom() + '|' + criteria.getYearTo() + '|' + criteria.getStatuses();
+    }
+
+    private String pageKey(SearchCriteria criteria) {
+        boolean keyset = criteria.getCursor() != null && !criteria.getCursor().isEmpty();
+        return filterKey(criteria) + '|' + criteria.getSortBy() + '|' + String.valueOf(criteria.getSortOrder()).toUpperCase()
+                + '|' + criteria.getPageSize() + '|' + (keyset ? criteria.getCursor() + '|' + criteria.isBackward() : Math.max(criteria.getPage(), 1));
+    }
+
+    // Tytuł i autor trafiają do klucza dokładnie w postaci wiązanej w LIKE, z długością, żeby separator w tekście nie sklejał kluczy.
+    private static String keyPart(String text) {
+        String value = text == null ? "" : text;
+        return value.length() + ":" + value + '|';
+    }
+
+    private void invalidateSearchCaches() {
+        invalidations.incrementAndGet();
+        pageCache.invalidateAll();
+        countCache.invalidateAll();
+        TransactionHooks.afterCommit(() -> {
+            invalidations.incrementAndGet();
+            pageCache.invalidateAll();
+            countCache.invalidateAll();
+        });
+    }
+
+    private String sortColumn(String sortBy) {
+        if (sortBy == null || sortBy.isEmpty()) {
+            return null;
+        }
+        return switch (sortBy) {
+            case "title", "author", "publication_year" -> sortBy;
+            default -> throw new IllegalArgumentException("Nieobsługiwana kolumna sortowania: " + sortBy);
+        };
+    }
+
+    private String buildSeekClause(SearchCursor cursor, String sortColumn, boolean descending, List<Object> params) {
+        String comparison = descending ? " < " : " > ";
+        if (sortColumn == null) {
+            params.add(cursor.id());
+            return " AND id" + comparison + "?";
+        }
+        if (!sortColumn.equals(cursor.sortBy())) {
+            throw new IllegalArgumentException("Kursor nie pasuje do kolumny sortowania: " + sortColumn);
+        }
+        params.add("publication_year".equals(sortColumn) ? (Object) Integer.parseInt(cursor.sortValue()) : cursor.sortValue());
+        params.add(cursor.id());
+        return " AND (" + sortColumn + ", id)" + comparison + "(?, ?)";
     }
 
     @Override
     public int countBooks(SearchCriteria criteria) {
+        if (BookBitmapIndex.covers(criteria)) {
+            return bitmapIndex.count(criteria);
+        }
         List<Object> params = new ArrayList<>();
         StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM books");
         sql.append(buildWhereClause(criteria, params));
@@ -158,40 +431,75 @@ public class BookRepositoryImpl implements BookRepository {
             where.append(" AND category_id = ?");
             params.add(criteria.getCategoryId());
         }
+        if (criteria.getCategoryIds() != null && !criteria.getCategoryIds().isEmpty()) {
+            where.append(" AND category_id = ANY(?)");
+            params.add(criteria.getCategoryIds().toArray(new Integer[0]));
+        }
+        if (criteria.getYearFrom() != null) {
+            where.append(" AND publication_year >= ?");
+            params.add(criteria.getYearFrom());
+        }
+        if (criteria.getYearTo() != null) {
+            where.append(" AND publication_year <= ?");
+            params.add(criteria.getYearTo());
+        }
+        if (criteria.getStatuses() != null && !criteria.getStatuses().isEmpty()) {
+            where.append(" AND status = ANY(?)");
+            params.add(criteria.getStatuses().toArray(new String[0]));
+        }
         return where.toString();
     }
 
     private void setStatementParams(PreparedStatement stmt, List<Object> params) throws SQLException {
         for (int i = 0; i < params.size(); i++) {
-            stmt.setObject(i + 1, params.get(i));
+            if (params.get(i) instanceof Object[] values) {
+                stmt.setArray(i + 1, stmt.getConnection().createArrayOf(values instanceof String[] ? "VARCHAR" : "INTEGER", values));
+            } else {
+                stmt.setObject(i + 1, params.get(i));
+            }
         }
     }
 
     @Override
     public List<Book> getBooksByCategory(int categoryId) {
-        List<Book> books = new ArrayList<>();
-        String sql = "SELECT * FROM books WHERE category_id = ? AND is_deleted = FALSE";
+        return findByCategory(categoryId, BookMappers.BOOK_COLUMNS, BookMappers.book());
+    }
+
+    @Override
+    public List<BookSummary> getBookSummariesByCategory(int categoryId) {
+        return findByCategory(categoryId, BookMappers.SUMMARY_COLUMNS, BookMappers.summary());
+    }
+
+    private <T> List<T> findByCategory(int categoryId, String columns, RowMapper<T> mapper) {
+        List<T> rows = new ArrayList<>();
+        String sql = "SELECT " + columns + " FROM books WHERE category_id = ? AND is_deleted = FALSE";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, categoryId);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                books.add(mapResultSetToBook(rs));
+                rows.add(mapper.mapRow(rs, rows.size()));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Błąd podczas pobierania książek po kategorii", e);
         }
-        return books;
+        return rows;
     }
 
     @Override
     public boolean deleteBook(int bookId) {
-        String sql = "UPDATE books SET is_deleted = TRUE WHERE id = ?";
+        String sql = "SELECT " + INDEXED_COLUMNS + " FROM FINAL TABLE (UPDATE books SET is_deleted = TRUE, version = version + 1 " +
+                     "WHERE id = ? AND is_deleted = FALSE)";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, bookId);
-            int affectedRows = stmt.executeUpdate();
-            return affectedRows > 0;
+            boolean deleted = !indexChanged(stmt.executeQuery()).isEmpty();
+            if (deleted) {
+                invalidateSearchCaches();
+                statistics.bookDeleted(bookId);
+                TransactionHooks.afterCommit(() -> searchIndex.remove(bookId));
+            }
+            return deleted;
         } catch (SQLException e) {
             throw new RuntimeException("Błąd podczas usuwania książki", e);
         }
@@ -199,7 +507,8 @@ public class BookRepositoryImpl implements BookRepository {
 
     @Override
     public void updateBookStatus(int bookId, String status, Integer reservedForUserId) {
-        String sql = "UPDATE books SET status = ?, reserved_for_user_id = ? WHERE id = ?";
+        String sql = "SELECT " + INDEXED_COLUMNS + " FROM FINAL TABLE (UPDATE books SET status = ?, reserved_for_user_id = ?, " +
+                     "version = version + 1 WHERE id = ?)";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, status);
@@ -209,12 +518,132 @@ public class BookRepositoryImpl implements BookRepository {
                 stmt.setNull(2, Types.INTEGER);
             }
             stmt.setInt(3, bookId);
-            stmt.executeUpdate();
+            if (!indexChanged(stmt.executeQuery()).isEmpty()) {
+                statistics.bookStatusChanged(bookId, status);
+            }
+            invalidateSearchCaches();
         } catch (SQLException e) {
             throw new RuntimeException("Błąd podczas aktualizacji statusu książki", e);
         }
     }
 
+    @Override
+    public boolean markLoaned(int bookId, int userId) {
+        String sql = "SELECT " + INDEXED_COLUMNS + " FROM FINAL TABLE (" + MARK_LOANED + "WHERE id = ? " + RENTABLE + ")";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, bookId);
+            stmt.setInt(2, userId);
+            boolean updated = !indexChanged(stmt.executeQuery()).isEmpty();
+            if (updated) {
+                invalidateSearchCaches();
+                statistics.bookStatusChanged(bookId, "LOANED");
+            }
+            return updated;
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas oznaczania książki jako wypożyczonej", e);
+        }
+    }
+
+    // Jedno zapytanie dla całego stosu; powtórzony identyfikator jest wypożyczany tylko raz, jak przy osobnych UPDATE.
+    @Override
+    public boolean[] markLoaned(List<Integer> bookIds, int userId) {
+        String sql = "SELECT " + INDEXED_COLUMNS + " FROM FINAL TABLE (" + MARK_LOANED + "WHERE id = ANY(?) " + RENTABLE + ")";
+        boolean[] marked = new boolean[bookIds.size()];
+        if (bookIds.isEmpty()) {
+            return marked;
+        }
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("INTEGER", bookIds.toArray()));
+            stmt.setInt(2, userId);
+            Set<Integer> loaned = new HashSet<>(indexChanged(stmt.executeQuery()));
+            for (int i = 0; i < marked.length; i++) {
+                marked[i] = loaned.remove(bookIds.get(i));
+                if (marked[i]) {
+                    statistics.bookStatusChanged(bookIds.get(i), "LOANED");
+                }
+            }
+            invalidateSearchCaches();
+            return marked;
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas wsadowego oznaczania książek jako wypożyczonych", e);
+        }
+    }
+
+    // Nowy status (AVAILABLE albo RESERVED) zależy od kolejki, więc indeks bitmapowy bierze go z FINAL TABLE.
+    @Override
+    public void releaseBook(int bookId) {
+        String sql = "SELECT " + INDEXED_COLUMNS + " FROM FINAL TABLE (UPDATE books SET " + RELEASE_ASSIGNMENTS + " WHERE id = ?)";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, bookId);
+            if (!indexChanged(stmt.executeQuery()).isEmpty()) {
+                statistics.bookStatusChanged(bookId, "AVAILABLE");
+            }
+            invalidateSearchCaches();
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas zwalniania książki", e);
+        }
+    }
+
+    // Kolejkę rezerwacji wszystkich zwalnianych książek rozstrzyga jedno zapytanie.
+    @Override
+    public void releaseBooks(List<Integer> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        String sql = "SELECT " + INDEXED_COLUMNS + " FROM FINAL TABLE (UPDATE books SET " + RELEASE_ASSIGNMENTS + " WHERE id = ANY(?))";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("INTEGER", bookIds.toArray()));
+            if (!indexChanged(stmt.executeQuery()).isEmpty()) {
+                bookIds.forEach(bookId -> statistics.bookStatusChanged(bookId, "AVAILABLE"));
+            }
+            invalidateSearchCaches();
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas wsadowego zwalniania książek", e);
+        }
+    }
+
+    @Override
+    public List<Integer> detachCategory(int categoryId) {
+        String sql = "SELECT " + INDEXED_COLUMNS + " FROM FINAL TABLE (UPDATE books SET category_id = NULL, version = version + 1 " +
+                     "WHERE category_id = ?)";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, categoryId);
+            List<Integer> detached = indexChanged(stmt.executeQuery());
+            if (!detached.isEmpty()) {
+                invalidateSearchCaches();
+            }
+            return detached;
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas odłączania książek od kategorii", e);
+        }
+    }
+
+    // Przekazuje zmienione wiersze do indeksu bitmapowego po zatwierdzeniu i zwraca ich identyfikatory.
+    private List<Integer> indexChanged(ResultSet rs) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        List<Runnable> changes = new ArrayList<>();
+        while (rs.next()) {
+            int bookId = rs.getInt("id");
+            int categoryId = rs.getInt("category_id");
+            Integer category = rs.wasNull() ? null : categoryId;
+            int year = rs.getInt("publication_year");
+            String status = rs.getString("status");
+            boolean deleted = rs.getBoolean("is_deleted");
+            long version = rs.getLong("version");
+            ids.add(bookId);
+            changes.add(() -> bitmapIndex.apply(bookId, category, year, status, deleted, version));
+        }
+        if (!changes.isEmpty()) {
+            TransactionHooks.afterCommit(() -> changes.forEach(Runnable::run));
+        }
+        return ids;
+    }
+
     @Override
     public int countAllBooks() {
         String sql = "SELECT COUNT(*) FROM books WHERE is_deleted = FALSE";
@@ -245,18 +674,4 @@ public class BookRepositoryImpl implements BookRepository {
         }
         return 0;
     }
-
-    private Book mapResultSetToBook(ResultSet rs) throws SQLException {
-        return Book.builder()
-                .id(rs.getInt("id"))
-                .title(rs.getString("title"))
-                .author(rs.getString("author"))
-                .publicationYear(rs.getInt("publication_year"))
-                .isbn(rs.getString("isbn"))
-                .categoryId(rs.getInt("category_id"))
-                .status(rs.getString("status"))
-                .reservedForUserId((Integer) rs.getObject("reserved_for_user_id"))
-                .isDeleted(rs.getBoolean("is_deleted"))
-                .build();
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,228 @@
+package repository;
+
+import jakarta.annotation.PostConstruct;
+import model.Book;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Indeks odwrócony tokenów tytułu i autora. Tokeny są zapisywane małymi literami
+ * i bez polskich znaków diakrytycznych, a każdy człon zapytania dopasowuje tokeny
+ * po prefiksie. Wyniki to przecięcie list wystąpień wszystkich członów.
+ */
+@Component
+@DependsOn("dataSourceInitializer")
+public class BookSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final DataSource dataSource;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, BitSet> postings = new TreeMap<>();
+    private final Map<Integer, String[]> documents = new HashMap<>();
+
+    public BookSearchIndex(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        String sql = "SELECT id, title, author FROM books WHERE is_deleted = FALSE";
+        lock.writeLock().lock();
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            postings.clear();
+            documents.clear();
+            while (rs.next()) {
+                addUnlocked(rs.getInt("id"), rs.getString("title"), rs.getString("author"));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas budowania indeksu wyszukiwania", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Przebudowa z magazynu w pamięci zamiast z tabeli books.
+    public void rebuild(Iterable<Book> books) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            for (Book book : books) {
+                if (!book.isDeleted()) {
+                    addUnlocked(book.getId(), book.getTitle(), book.getAuthor());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(int bookId, String title, String author) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(bookId);
+            addUnlocked(bookId, title, author);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int bookId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Zwraca identyfikatory książek pasujących do wszystkich członów zapytania,
+     * od najlepiej dopasowanych (pełne tokeny liczą się podwójnie, tytuł przed autorem).
+     */
+    public List<Integer> search(String query) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet result = null;
+            for (String term : terms) {
+                BitSet matches = new BitSet();
+                for (BitSet posting : prefixRange(term).values()) {
+                    matches.or(posting);
+                }
+                if (result == null) {
+                    result = matches;
+                } else {
+                    result.and(matches);
+                }
+                if (result.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<int[]> scored = new ArrayList<>(result.cardinality());
+            for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+                scored.add(new int[]{id, score(documents.get(id), terms)});
+            }
+            scored.sort((a, b) -> a[1] != b[1] ? Integer.compare(b[1], a[1]) : Integer.compare(a[0], b[0]));
+
+            List<Integer> ids = new ArrayList<>(scored.size());
+            for (int[] entry : scored) {
+                ids.add(entry[0]);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        folded = DIACRITICS.matcher(folded).replaceAll("").replace('ł', 'l');
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void addUnlocked(int bookId, String title, String author) {
+        List<String> titleTokens = tokenize(title);
+        List<String> authorTokens = tokenize(author);
+        String[] fields = new String[titleTokens.size() + authorTokens.size() + 1];
+        int i = 0;
+        for (String token : titleTokens) fields[i++] = token;
+        fields[i++] = null;
+        for (String token : authorTokens) fields[i++] = token;
+        documents.put(bookId, fields);
+
+        Set<String> unique = new LinkedHashSet<>(titleTokens);
+        unique.addAll(authorTokens);
+        for (String token : unique) {
+            postings.computeIfAbsent(token, t -> new BitSet()).set(bookId);
+        }
+    }
+
+    private void removeUnlocked(int bookId) {
+        String[] fields = documents.remove(bookId);
+        if (fields == null) {
+            return;
+        }
+        for (String token : fields) {
+            if (token == null) continue;
+            BitSet posting = postings.get(token);
+            if (posting != null) {
+                posting.clear(bookId);
+                if (posting.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    private NavigableMap<String, BitSet> prefixRange(String term) {
+        return postings.subMap(term, true, term + Character.MAX_VALUE, false);
+    }
+
+    private static int score(String[] fields, List<String> terms) {
+        int score = 0;
+        for (String term : terms) {
+            boolean inTitle = true;
+            int best = 0;
+            for (String token : fields) {
+                if (token == null) {
+                    inTitle = false;
+                    continue;
+                }
+                if (token.startsWith(term)) {
+                    int points = (token.length() == term.length() ? 2 : 1) + (inTitle ? 1 : 0);
+                    best = Math.max(best, points);
+                }
+            }
+            score += best;
+        }
+        return score;
+    }
+}
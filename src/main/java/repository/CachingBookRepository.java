@@ -0,0 +1,190 @@
+package repository;
+
+import cache.TtlLruCache;
+import model.Book;
+import model.BookSummary;
+import model.SearchCriteria;
+import model.SearchResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import transaction.TransactionHooks;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Dekorator BookRepository z cache odczytów findById. Każdy zapis zmieniający książkę
+ * usuwa ją z cache od razu i ponownie po zakończeniu transakcji.
+ */
+@Repository
+@Primary
+@Profile("!inmemory")
+public class CachingBookRepository implements BookRepository {
+
+    private final BookRepository delegate;
+    private final TtlLruCache<Integer, Book> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingBookRepository(BookRepositoryImpl delegate,
+                                 @Value("${book.cache.max-entries:10000}") int maxEntries,
+                                 @Value("${book.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.delegate = delegate;
+        this.cache = new TtlLruCache<>(maxEntries, ttlSeconds * 1000);
+    }
+
+    @Override
+    public Optional<Book> findById(int id) {
+        Book cached = cache.get(id);
+        if (cached != null) {
+            return Optional.of(BookMappers.copy(cached));
+        }
+        long generation = invalidations.get();
+        Optional<Book> loaded = delegate.findById(id);
+        // W transakcji odczyt może widzieć niezatwierdzony stan, a równoległe unieważnienie oznacza, że wczytana wersja jest już stara.
+        if (loaded.isPresent() && !TransactionHooks.inTransaction() && generation == invalidations.get()) {
+            cache.put(id, BookMappers.copy(loaded.get()));
+        }
+        return loaded;
+    }
+
+    // Odczyt zbiorczy służy do walidacji przed zapisem, więc zawsze idzie do bazy.
+    @Override
+    public List<Book> findByIds(List<Integer> ids) {
+        return delegate.findByIds(ids);
+    }
+
+    @Override
+    public void addBook(Book book) {
+        delegate.addBook(book);
+    }
+
+    @Override
+    public int addBooks(Iterable<Book> books) {
+        return delegate.addBooks(books);
+    }
+
+    @Override
+    public List<Book> getAllBooks() {
+        return delegate.getAllBooks();
+    }
+
+    @Override
+    public Stream<Book> streamAllBooks() {
+        return delegate.streamAllBooks();
+    }
+
+    @Override
+    public Stream<BookSummary> streamBookSummaries() {
+        return delegate.streamBookSummaries();
+    }
+
+    @Override
+    public List<Book> searchBooks(String query) {
+        return delegate.searchBooks(query);
+    }
+
+    @Override
+    public List<BookSummary> searchBookSummaries(String query) {
+        return delegate.searchBookSummaries(query);
+    }
+
+    @Override
+    public List<Book> searchBooks(SearchCriteria criteria) {
+        return delegate.searchBooks(criteria);
+    }
+
+    @Override
+    public SearchResult searchPage(SearchCriteria criteria) {
+        return delegate.searchPage(criteria);
+    }
+
+    @Override
+    public SearchResult searchPage(String query, int page, int pageSize) {
+        return delegate.searchPage(query, page, pageSize);
+    }
+
+    @Override
+    public int countBooks(SearchCriteria criteria) {
+        return delegate.countBooks(criteria);
+    }
+
+    @Override
+    public List<Book> getBooksByCategory(int categoryId) {
+        return delegate.getBooksByCategory(categoryId);
+    }
+
+    @Override
+    public List<BookSummary> getBookSummariesByCategory(int categoryId) {
+        return delegate.getBookSummariesByCategory(categoryId);
+    }
+
+    @Override
+    public boolean deleteBook(int bookId) {
+        evict(bookId);
+        return delegate.deleteBook(bookId);
+    }
+
+    @Override
+    public void updateBookStatus(int bookId, String status, Integer reservedForUserId) {
+        evict(bookId);
+        delegate.updateBookStatus(bookId, status, reservedForUserId);
+    }
+
+    @Override
+    public boolean markLoaned(int bookId, int userId) {
+        evict(bookId);
+        return delegate.markLoaned(bookId, userId);
+    }
+
+    @Override
+    public boolean[] markLoaned(List<Integer> bookIds, int userId) {
+        bookIds.forEach(this::evict);
+        return delegate.markLoaned(bookIds, userId);
+    }
+
+    @Override
+    public void releaseBook(int bookId) {
+        evict(bookId);
+        delegate.releaseBook(bookId);
+    }
+
+    @Override
+    public void releaseBooks(List<Integer> bookIds) {
+        bookIds.forEach(this::evict);
+        delegate.releaseBooks(bookIds);
+    }
+
+    @Override
+    public List<Integer> detachCategory(int categoryId) {
+        List<Integer> detached = delegate.detachCategory(categoryId);
+        detached.forEach(this::evict);
+        return detached;
+    }
+
+    @Override
+    public int countAllBooks() {
+        return delegate.countAllBooks();
+    }
+
+    @Override
+    public int countByStatus(String status) {
+        return delegate.countByStatus(status);
+    }
+
+    public TtlLruCache<Integer, Book> getCache() {
+        return cache;
+    }
+
+    private void evict(int bookId) {
+        invalidations.incrementAndGet();
+        cache.invalidate(bookId);
+        TransactionHooks.afterCompletion(() -> {
+            invalidations.incrementAndGet();
+            cache.invalidate(bookId);
+        });
+    }
+}
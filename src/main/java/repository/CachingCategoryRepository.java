@@ -0,0 +1,115 @@
+package repository;
+
+import jakarta.annotation.PostConstruct;
+import model.Category;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import transaction.TransactionHooks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Słownik kategorii w pamięci. Odczyty korzystają z niezmiennej migawki bez blokad i bez
+ * alokacji: migawka trzyma kategorie tylko do odczytu i gotowe wyniki, które oddaje wprost.
+ * Każdy zapis buduje nową migawkę i podmienia ją atomowo.
+ */
+@Repository
+@Primary
+@DependsOn("dataSourceInitializer")
+public class CachingCategoryRepository implements CategoryRepository {
+
+    private final CategoryRepository delegate;
+    private volatile Snapshot snapshot = Snapshot.of(List.of());
+
+    public CachingCategoryRepository(CategoryRepositoryImpl delegate) {
+        this.delegate = delegate;
+    }
+
+    // Przeładowania z kolejnych zatwierdzeń idą po kolei, więc starszy odczyt nie nadpisze nowszej migawki.
+    @PostConstruct
+    public synchronized void reload() {
+        snapshot = Snapshot.of(delegate.getAllCategories());
+    }
+
+    @Override
+    public void addCategory(String name) {
+        delegate.addCategory(name);
+        TransactionHooks.afterCommit(this::reload);
+    }
+
+    @Override
+    public List<Category> getAllCategories() {
+        return snapshot.all();
+    }
+
+    @Override
+    public void deleteCategory(int id) {
+        delegate.deleteCategory(id);
+        TransactionHooks.afterCommit(this::reload);
+    }
+
+    @Override
+    public void updateCategory(Category category) {
+        delegate.updateCategory(category);
+        TransactionHooks.afterCommit(this::reload);
+    }
+
+    @Override
+    public Optional<Category> findByName(String name) {
+        return snapshot.byName().getOrDefault(name, Optional.empty());
+    }
+
+    @Override
+    public Optional<Category> findById(int id) {
+        Optional<Category>[] byId = snapshot.byId();
+        return id >= 0 && id < byId.length ? byId[id] : Optional.empty();
+    }
+
+    /**
+     * Kategoria z migawki, współdzielona przez wszystkich wywołujących, więc nie daje się zmienić.
+     */
+    private static final class ReadOnlyCategory extends Category {
+
+        ReadOnlyCategory(Category category) {
+            super(category.getId(), category.getName());
+        }
+
+        @Override
+        public void setId(int id) {
+            throw new UnsupportedOperationException("Kategoria z pamięci podręcznej jest tylko do odczytu");
+        }
+
+        @Override
+        public void setName(String name) {
+            throw new UnsupportedOperationException("Kategoria z pamięci podręcznej jest tylko do odczytu");
+        }
+    }
+
+    private record Snapshot(Optional<Category>[] byId, Map<String, Optional<Category>> byName, List<Category> all) {
+
+        @SuppressWarnings("unchecked")
+        static Snapshot of(List<Category> categories) {
+            int maxId = 0;
+            for (Category category : categories) {
+                maxId = Math.max(maxId, category.getId());
+            }
+            Optional<Category>[] byId = new Optional[maxId + 1];
+            Arrays.fill(byId, Optional.empty());
+            Map<String, Optional<Category>> byName = new HashMap<>(categories.size() * 2);
+            List<Category> all = new ArrayList<>(categories.size());
+            for (Category category : categories) {
+                Category readOnly = new ReadOnlyCategory(category);
+                byId[readOnly.getId()] = Optional.of(readOnly);
+                byName.put(readOnly.getName(), byId[readOnly.getId()]);
+                all.add(readOnly);
+            }
+            return new Snapshot(byId, Map.copyOf(byName), List.copyOf(all));
+        }
+    }
+}
@@ -10,4 +10,5 @@ public interface CategoryRepository {
     void deleteCategory(int id);
     void updateCategory(Category category);
     Optional<Category> findByName(String name);
+    Optional<Category> findById(int id);
 }
\ No newline at end of file
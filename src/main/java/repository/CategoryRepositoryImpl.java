@@ -13,9 +13,11 @@ import java.util.Optional;
 public class CategoryRepositoryImpl implements CategoryRepository {
 
     private final DataSource dataSource;
+    private final BookRepository bookRepository;
 
-    public CategoryRepositoryImpl(DataSource dataSource) {
+    public CategoryRepositoryImpl(DataSource dataSource, BookRepository bookRepository) {
         this.dataSource = dataSource;
+        this.bookRepository = bookRepository;
     }
 
     @Override
@@ -46,8 +48,10 @@ public class CategoryRepositoryImpl implements CategoryRepository {
         return list;
     }
 
+    // Książki są odłączane przez repozytorium, żeby indeksy i cache zobaczyły zmianę, której ON DELETE SET NULL by nie zgłosił.
     @Override
     public void deleteCategory(int id) {
+        bookRepository.detachCategory(id);
         String sql = "DELETE FROM categories WHERE id = ?";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -86,4 +90,20 @@ public class CategoryRepositoryImpl implements CategoryRepository {
         }
         return Optional.empty();
     }
+
+    @Override
+    public Optional<Category> findById(int id) {
+        String sql = "SELECT * FROM categories WHERE id = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return Optional.of(new Category(rs.getInt("id"), rs.getString("name")));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas wyszukiwania kategorii po ID", e);
+        }
+        return Optional.empty();
+    }
 }
\ No newline at end of file
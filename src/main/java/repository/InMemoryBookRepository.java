@@ -0,0 +1,394 @@
+package repository;
+
+import jakarta.annotation.PostConstruct;
+import model.Book;
+import model.BookSummary;
+import model.Reservation;
+import model.SearchCriteria;
+import model.SearchCursor;
+import model.SearchResult;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import stats.LibraryStatistics;
+import transaction.TransactionHooks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * BookRepository na magazynie w pamięci. Zachowuje semantykę BookRepositoryImpl
+ * (warunki zapisów, filtry, sortowanie i kursory), ale bez połączenia z bazą.
+ */
+@Repository
+@Profile("inmemory")
+public class InMemoryBookRepository implements BookRepository {
+
+    private static final Comparator<Book> BY_ID = Comparator.comparingInt(Book::getId);
+
+    private final InMemoryStore store;
+    private final BookSearchIndex searchIndex;
+    private final BookBitmapIndex bitmapIndex;
+    private final LibraryStatistics statistics;
+
+    InMemoryBookRepository(InMemoryStore store, BookSearchIndex searchIndex, BookBitmapIndex bitmapIndex, LibraryStatistics statistics) {
+        this.store = store;
+        this.searchIndex = searchIndex;
+        this.bitmapIndex = bitmapIndex;
+        this.statistics = statistics;
+    }
+
+    @PostConstruct
+    public void indexBooks() {
+        searchIndex.rebuild(store.books());
+        bitmapIndex.rebuild(store.books());
+    }
+
+    @Override
+    public void addBook(Book book) {
+        Book stored = store.insertBook(newBook(book));
+        statistics.bookAdded(1);
+        TransactionHooks.afterCommit(() -> index(stored));
+        System.out.println("Dodano książkę: " + book.getTitle());
+    }
+
+    @Override
+    public int addBooks(Iterable<Book> books) {
+        List<Book> added = new ArrayList<>();
+        for (Book book : books) {
+            added.add(store.insertBook(newBook(book)));
+        }
+        if (added.isEmpty()) {
+            return 0;
+        }
+        statistics.bookAdded(added.size());
+        TransactionHooks.afterCommit(() -> added.forEach(this::index));
+        return added.size();
+    }
+
+    private void index(Book book) {
+        searchIndex.add(book.getId(), book.getTitle(), book.getAuthor());
+        bitmapIndex.refresh(book.getId(), store::book);
+    }
+
+    // Jak INSERT w BookRepositoryImpl: status domyślnie AVAILABLE, bez rezerwacji i usunięcia.
+    private static Book newBook(Book book) {
+        return new Book(0, book.getTitle(), book.getAuthor(), book.getPublicationYear(), book.getIsbn(),
+                book.getCategoryId(), book.getStatus() != null ? book.getStatus() : "AVAILABLE", null, false);
+    }
+
+    @Override
+    public List<Book> getAllBooks() {
+        return liveBooks().map(InMemoryStore::copy).toList();
+    }
+
+    @Override
+    public Stream<Book> streamAllBooks() {
+        return liveBooks().map(InMemoryStore::copy);
+    }
+
+    @Override
+    public Stream<BookSummary> streamBookSummaries() {
+        return liveBooks().map(InMemoryBookRepository::summary);
+    }
+
+    private Stream<Book> liveBooks() {
+        return store.books().stream().filter(book -> !book.isDeleted()).sorted(BY_ID);
+    }
+
+    @Override
+    public Optional<Book> findById(int id) {
+        Book book = store.book(id);
+        return book != null && !book.isDeleted() ? Optional.of(InMemoryStore.copy(book)) : Optional.empty();
+    }
+
+    @Override
+    public List<Book> findByIds(List<Integer> ids) {
+        return liveBooks(ids, InMemoryStore::copy);
+    }
+
+    @Override
+    public List<Book> searchBooks(String query) {
+        if (BookSearchIndex.tokenize(query).isEmpty()) {
+            return getAllBooks();
+        }
+        return liveBooks(searchIndex.search(query), InMemoryStore::copy);
+    }
+
+    @Override
+    public List<BookSummary> searchBookSummaries(String query) {
+        if (BookSearchIndex.tokenize(query).isEmpty()) {
+            return streamBookSummaries().toList();
+        }
+        return liveBooks(searchIndex.search(query), InMemoryBookRepository::summary);
+    }
+
+    // Zachowuje kolejność identyfikatorów z indeksu (ranking trafności).
+    private <T> List<T> liveBooks(Collection<Integer> ids, Function<Book, T> mapper) {
+        List<T> rows = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            Book book = store.book(id);
+            if (book != null && !book.isDeleted()) {
+                rows.add(mapper.apply(book));
+            }
+        }
+        return rows;
+    }
+
+    private static BookSummary summary(Book book) {
+        return new BookSummary(book.getId(), book.getTitle(), book.getAuthor(), book.getCategoryId(), book.getStatus());
+    }
+
+    @Override
+    public List<Book> searchBooks(SearchCriteria criteria) {
+        return runSearch(criteria);
+    }
+
+    @Override
+    public SearchResult searchPage(SearchCriteria criteria) {
+        List<Book> books = runSearch(criteria);
+        return new SearchResult(books, countBooks(criteria));
+    }
+
+    @Override
+    public SearchResult searchPage(String query, int page, int pageSize) {
+        if (BookSearchIndex.tokenize(query).isEmpty()) {
+            return searchPage(SearchCriteria.builder().page(page).pageSize(pageSize).build());
+        }
+        List<Integer> ids = searchIndex.search(query);
+        int from = (int) Math.min((long) (Math.max(page, 1) - 1) * pageSize, ids.size());
+        return new SearchResult(liveBooks(ids.subList(from, Math.min(from + pageSize, ids.size())), InMemoryStore::copy), ids.size());
+    }
+
+    private List<Book> runSearch(SearchCriteria criteria) {
+        if (BookBitmapIndex.canPage(criteria)) {
+            return liveBooks(bitmapIndex.page(criteria), InMemoryStore::copy);
+        }
+        String sortColumn = sortColumn(criteria.getSortBy());
+        boolean keyset = criteria.getCursor() != null && !criteria.getCursor().isEmpty();
+        boolean reverse = keyset && criteria.isBackward();
+        boolean descending = "DESC".equalsIgnoreCase(criteria.getSortOrder()) != reverse;
+
+        Comparator<Book> order = sortColumn != null ? sortKey(sortColumn).thenComparing(BY_ID) : BY_ID;
+        if (descending) {
+            order = order.reversed();
+        }
+        Stream<Book> matching = filtered(criteria);
+        if (keyset) {
+            matching = matching.filter(seekFilter(SearchCursor.decode(criteria.getCursor()), sortColumn, order));
+        }
+        matching = matching.sorted(order);
+        if (criteria.getPageSize() > 0) {
+            if (!keyset) {
+                matching = matching.skip((long) (Math.max(criteria.getPage(), 1) - 1) * criteria.getPageSize());
+            }
+            matching = matching.limit(criteria.getPageSize());
+        }
+        List<Book> books = new ArrayList<>(matching.map(InMemoryStore::copy).toList());
+        if (reverse) {
+            Collections.reverse(books);
+        }
+        return books;
+    }
+
+    private String sortColumn(String sortBy) {
+        if (sortBy == null || sortBy.isEmpty()) {
+            return null;
+        }
+        return switch (sortBy) {
+            case "title", "author", "publication_year" -> sortBy;
+            default -> throw new IllegalArgumentException("Nieobsługiwana kolumna sortowania: " + sortBy);
+        };
+    }
+
+    private static Comparator<Book> sortKey(String sortColumn) {
+        return switch (sortColumn) {
+            case "title" -> Comparator.comparing(Book::getTitle, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "author" -> Comparator.comparing(Book::getAuthor, Comparator.nullsFirst(Comparator.naturalOrder()));
+            default -> Comparator.comparingInt(Book::getPublicationYear);
+        };
+    }
+
+    // Wiersze leżące za kursorem w kolejności strony, jak warunek (kolumna, id) > (?, ?) w SQL.
+    private static Predicate<Book> seekFilter(SearchCursor cursor, String sortColumn, Comparator<Book> order) {
+        if (sortColumn != null && !sortColumn.equals(cursor.sortBy())) {
+            throw new IllegalArgumentException("Kursor nie pasuje do kolumny sortowania: " + sortColumn);
+        }
+        Book boundary = new Book();
+        boundary.setId(cursor.id());
+        if ("title".equals(sortColumn)) {
+            boundary.setTitle(cursor.sortValue());
+        } else if ("author".equals(sortColumn)) {
+            boundary.setAuthor(cursor.sortValue());
+        } else if ("publication_year".equals(sortColumn)) {
+            boundary.setPublicationYear(Integer.parseInt(cursor.sortValue()));
+        }
+        return book -> order.compare(book, boundary) > 0;
+    }
+
+    @Override
+    public int countBooks(SearchCriteria criteria) {
+        if (BookBitmapIndex.covers(criteria)) {
+            return bitmapIndex.count(criteria);
+        }
+        return (int) filtered(criteria).count();
+    }
+
+    // Kandydaci z indeksu bitmapowego; tytuł i autor są sprawdzane na wierszach.
+    private Stream<Book> filtered(SearchCriteria criteria) {
+        String title = normalize(criteria.getTitle());
+        String author = normalize(criteria.getAuthor());
+        return bitmapIndex.matchingIds(criteria).stream().map(store::book)
+                .filter(book -> book != null && !book.isDeleted()
+                        && (title.isEmpty() || contains(book.getTitle(), title))
+                        && (author.isEmpty() || contains(book.getAuthor(), author)));
+    }
+
+    private static boolean contains(String text, String lowerCasePart) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(lowerCasePart);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public List<Book> getBooksByCategory(int categoryId) {
+        return liveBooks(store.liveBookIdsInCategory(categoryId), InMemoryStore::copy);
+    }
+
+    @Override
+    public List<BookSummary> getBookSummariesByCategory(int categoryId) {
+        return liveBooks(store.liveBookIdsInCategory(categoryId), InMemoryBookRepository::summary);
+    }
+
+    @Override
+    public boolean deleteBook(int bookId) {
+        Book deleted = store.updateBook(bookId, book -> {
+            if (book.isDeleted()) {
+                return null;
+            }
+            Book next = InMemoryStore.copy(book);
+            next.setDeleted(true);
+            return next;
+        });
+        if (deleted == null) {
+            return false;
+        }
+        statistics.bookDeleted(bookId);
+        TransactionHooks.afterCommit(() -> {
+            searchIndex.remove(bookId);
+            bitmapIndex.refresh(bookId, store::book);
+        });
+        return true;
+    }
+
+    @Override
+    public void updateBookStatus(int bookId, String status, Integer reservedForUserId) {
+        Book updated = store.updateBook(bookId, book -> {
+            Book next = InMemoryStore.copy(book);
+            next.setStatus(status);
+            next.setReservedForUserId(reservedForUserId);
+            return next;
+        });
+        if (updated != null) {
+            statistics.bookStatusChanged(bookId, status);
+            TransactionHooks.afterCommit(() -> bitmapIndex.refresh(bookId, store::book));
+        }
+    }
+
+    @Override
+    public boolean markLoaned(int bookId, int userId) {
+        Book updated = store.updateBook(bookId, book -> {
+            boolean rentable = !book.isDeleted() && ("AVAILABLE".equals(book.getStatus())
+                    || ("RESERVED".equals(book.getStatus()) && Integer.valueOf(userId).equals(book.getReservedForUserId())));
+            if (!rentable) {
+                return null;
+            }
+            Book next = InMemoryStore.copy(book);
+            next.setStatus("LOANED");
+            next.setReservedForUserId(null);
+            return next;
+        });
+        if (updated != null) {
+            statistics.bookStatusChanged(bookId, "LOANED");
+            TransactionHooks.afterCommit(() -> bitmapIndex.refresh(bookId, store::book));
+        }
+        return updated != null;
+    }
+
+    @Override
+    public boolean[] markLoaned(List<Integer> bookIds, int userId) {
+        boolean[] marked = new boolean[bookIds.size()];
+        for (int i = 0; i < marked.length; i++) {
+            marked[i] = markLoaned(bookIds.get(i), userId);
+        }
+        return marked;
+    }
+
+    // Zwolniona książka trafia do pierwszej osoby z kolejki rezerwacji albo wraca na półkę.
+    @Override
+    public void releaseBook(int bookId) {
+        Book updated = store.updateBook(bookId, book -> {
+            Integer nextUserId = nextReservationUser(bookId);
+            Book released = InMemoryStore.copy(book);
+            released.setReservedForUserId(nextUserId);
+            released.setStatus(nextUserId == null ? "AVAILABLE" : "RESERVED");
+            return released;
+        });
+        if (updated != null) {
+            statistics.bookStatusChanged(bookId, "AVAILABLE");
+            TransactionHooks.afterCommit(() -> bitmapIndex.refresh(bookId, store::book));
+        }
+    }
+
+    @Override
+    public void releaseBooks(List<Integer> bookIds) {
+        bookIds.forEach(this::releaseBook);
+    }
+
+    // Książka bez kategorii ma tu categoryId 0, tak jak NULL odczytany z bazy.
+    @Override
+    public List<Integer> detachCategory(int categoryId) {
+        List<Integer> detached = new ArrayList<>();
+        for (int bookId : List.copyOf(store.liveBookIdsInCategory(categoryId))) {
+            Book updated = store.updateBook(bookId, book -> {
+                if (book.getCategoryId() != categoryId) {
+                    return null;
+                }
+                Book next = InMemoryStore.copy(book);
+                next.setCategoryId(0);
+                return next;
+            });
+            if (updated != null) {
+                detached.add(bookId);
+                TransactionHooks.afterCommit(() -> bitmapIndex.refresh(bookId, store::book));
+            }
+        }
+        return detached;
+    }
+
+    @Override
+    public int countAllBooks() {
+        return (int) store.liveBookCount();
+    }
+
+    @Override
+    public int countByStatus(String status) {
+        return (int) store.liveBookCount(status);
+    }
+
+    private Integer nextReservationUser(int bookId) {
+        for (Reservation reservation : store.reservationQueue(bookId)) {
+            return reservation.getUserId();
+        }
+        return null;
+    }
+}
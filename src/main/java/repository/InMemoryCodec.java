@@ -0,0 +1,142 @@
+package repository;
+
+import model.Book;
+import model.Loan;
+import model.Reservation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binarny zapis encji magazynu w pamięci, wspólny dla dziennika WAL i migawek.
+ * Rekord dziennika to znacznik typu i pełny stan encji, więc jego odtworzenie jest idempotentne.
+ */
+final class InMemoryCodec {
+
+    static final byte BOOK = 1;
+    static final byte LOAN = 2;
+    static final byte RESERVATION = 3;
+    static final byte RESERVATION_DELETED = 4;
+    // Książki i wypożyczenia nie są usuwane przez aplikację; te rekordy zapisuje wycofanie opublikowanego wstawienia.
+    static final byte BOOK_DELETED = 5;
+    static final byte LOAN_DELETED = 6;
+
+    private InMemoryCodec() {
+    }
+
+    static byte[] bookRecord(Book book) {
+        return record(BOOK, out -> writeBook(out, book));
+    }
+
+    static byte[] loanRecord(Loan loan) {
+        return record(LOAN, out -> writeLoan(out, loan));
+    }
+
+    static byte[] reservationRecord(Reservation reservation) {
+        return record(RESERVATION, out -> writeReservation(out, reservation));
+    }
+
+    static byte[] reservationDeletedRecord(int reservationId) {
+        return record(RESERVATION_DELETED, out -> out.writeInt(reservationId));
+    }
+
+    static byte[] bookDeletedRecord(int bookId) {
+        return record(BOOK_DELETED, out -> out.writeInt(bookId));
+    }
+
+    static byte[] loanDeletedRecord(int loanId) {
+        return record(LOAN_DELETED, out -> out.writeInt(loanId));
+    }
+
+    static void writeBook(DataOutput out, Book book) throws IOException {
+        out.writeInt(book.getId());
+        writeString(out, book.getTitle());
+        writeString(out, book.getAuthor());
+        out.writeInt(book.getPublicationYear());
+        writeString(out, book.getIsbn());
+        out.writeInt(book.getCategoryId());
+        writeString(out, book.getStatus());
+        out.writeInt(book.getReservedForUserId() != null ? book.getReservedForUserId() : -1);
+        out.writeBoolean(book.isDeleted());
+    }
+
+    static Book readBook(DataInput in) throws IOException {
+        int id = in.readInt();
+        String title = readString(in);
+        String author = readString(in);
+        int year = in.readInt();
+        String isbn = readString(in);
+        int categoryId = in.readInt();
+        String status = readString(in);
+        int reservedFor = in.readInt();
+        boolean deleted = in.readBoolean();
+        return new Book(id, title, author, year, isbn, categoryId, status, reservedFor >= 0 ? reservedFor : null, deleted);
+    }
+
+    static void writeLoan(DataOutput out, Loan loan) throws IOException {
+        out.writeInt(loan.getId());
+        out.writeInt(loan.getUserId());
+        out.writeInt(loan.getBookId());
+        writeTime(out, loan.getLoanDate());
+        writeTime(out, loan.getReturnDate());
+    }
+
+    static Loan readLoan(DataInput in) throws IOException {
+        return new Loan(in.readInt(), in.readInt(), in.readInt(), readTime(in), readTime(in));
+    }
+
+    static void writeReservation(DataOutput out, Reservation reservation) throws IOException {
+        out.writeInt(reservation.getId());
+        out.writeInt(reservation.getUserId());
+        out.writeInt(reservation.getBookId());
+        writeTime(out, reservation.getReservationDate());
+    }
+
+    static Reservation readReservation(DataInput in) throws IOException {
+        return new Reservation(in.readInt(), in.readInt(), in.readInt(), readTime(in));
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeTime(DataOutput out, LocalDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(DataInput in) throws IOException {
+        return in.readBoolean() ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+    }
+
+    private static byte[] record(byte type, Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface Writer {
+        void write(DataOutput out) throws IOException;
+    }
+}
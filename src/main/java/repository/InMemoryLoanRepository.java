@@ -0,0 +1,129 @@
+package repository;
+
+import model.BookReturn;
+import model.Loan;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import stats.LibraryStatistics;
+
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryLoanRepository implements LoanRepository {
+
+    private final InMemoryStore store;
+    private final LibraryStatistics statistics;
+
+    InMemoryLoanRepository(InMemoryStore store, LibraryStatistics statistics) {
+        this.store = store;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void createLoan(int userId, int bookId) {
+        store.insertLoan(userId, bookId, LocalDateTime.now());
+        statistics.loanCreated(userId, bookId);
+    }
+
+    @Override
+    public void createLoans(int userId, List<Integer> bookIds) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int bookId : bookIds) {
+            store.insertLoan(userId, bookId, now);
+            statistics.loanCreated(userId, bookId);
+        }
+    }
+
+    @Override
+    public boolean returnLoan(int bookId, int userId) {
+        return returnLoan(bookId, userId, LocalDateTime.now());
+    }
+
+    private boolean returnLoan(int bookId, int userId, LocalDateTime returnDate) {
+        boolean updated = false;
+        for (int loanId : List.copyOf(store.activeLoanIds(userId))) {
+            Loan returned = store.updateLoan(loanId, loan -> {
+                if (loan.getBookId() != bookId || loan.getReturnDate() != null) {
+                    return null;
+                }
+                Loan next = InMemoryStore.copy(loan);
+                next.setReturnDate(returnDate);
+                return next;
+            });
+            updated |= returned != null;
+        }
+        if (updated) {
+            statistics.loanReturned(userId);
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean[] returnLoans(List<BookReturn> returns) {
+        boolean[] returned = new boolean[returns.size()];
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < returned.length; i++) {
+            returned[i] = returnLoan(returns.get(i).bookId(), returns.get(i).userId(), now);
+        }
+        return returned;
+    }
+
+    @Override
+    public List<Loan> getAllLoans() {
+        return streamAllLoans().toList();
+    }
+
+    @Override
+    public Stream<Loan> streamAllLoans() {
+        return store.loans().stream().sorted(Comparator.comparingInt(Loan::getId)).map(InMemoryStore::copy);
+    }
+
+    @Override
+    public List<Loan> getActiveLoansByUser(int userId) {
+        List<Loan> active = new ArrayList<>();
+        for (int loanId : store.activeLoanIds(userId)) {
+            Loan loan = store.loan(loanId);
+            if (loan != null && loan.getReturnDate() == null) {
+                active.add(InMemoryStore.copy(loan));
+            }
+        }
+        active.sort(Comparator.comparingInt(Loan::getId));
+        return active;
+    }
+
+    @Override
+    public List<Map.Entry<String, Long>> getMostLoanedBooks(int limit) {
+        return topBooks(loan -> true, limit);
+    }
+
+    @Override
+    public List<Map.Entry<String, Long>> getMostLoanedBooksSince(LocalDateTime since, int limit) {
+        return topBooks(loan -> !loan.getLoanDate().isBefore(since), limit);
+    }
+
+    // Jak GROUP BY book_id z JOIN books: wypożyczenia nieistniejących książek są pomijane.
+    private List<Map.Entry<String, Long>> topBooks(Predicate<Loan> filter, int limit) {
+        Map<Integer, Long> counts = new HashMap<>();
+        for (Loan loan : store.loans()) {
+            if (filter.test(loan)) {
+                counts.merge(loan.getBookId(), 1L, Long::sum);
+            }
+        }
+        List<Map.Entry<String, Long>> topBooks = new ArrayList<>();
+        counts.entrySet().stream()
+                .filter(entry -> store.book(entry.getKey()) != null)
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .forEach(entry -> topBooks.add(new AbstractMap.SimpleEntry<>(store.book(entry.getKey()).getTitle(), entry.getValue())));
+        return topBooks;
+    }
+}
@@ -0,0 +1,81 @@
+package repository;
+
+import model.Book;
+import model.Reservation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@Profile("inmemory")
+public class InMemoryReservationRepository implements ReservationRepository {
+
+    private final InMemoryStore store;
+
+    InMemoryReservationRepository(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void addReservation(int userId, int bookId) {
+        store.insertReservation(userId, bookId, LocalDateTime.now());
+    }
+
+    @Override
+    public Optional<Reservation> findNextReservationForBook(int bookId) {
+        for (Reservation reservation : store.reservationQueue(bookId)) {
+            return Optional.of(InMemoryStore.copy(reservation));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void deleteReservation(int reservationId) {
+        store.deleteReservation(reservationId);
+    }
+
+    @Override
+    public boolean deleteReservationForUser(int bookId, int userId) {
+        for (Reservation reservation : store.reservationQueue(bookId)) {
+            if (reservation.getUserId() == userId) {
+                store.deleteReservation(reservation.getId());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<Integer> deleteReservationsForUser(List<Integer> bookIds, int userId) {
+        List<Integer> cleared = new ArrayList<>();
+        for (int bookId : bookIds) {
+            if (deleteReservationForUser(bookId, userId)) {
+                cleared.add(bookId);
+            }
+        }
+        return cleared;
+    }
+
+    @Override
+    public List<Reservation> findReservationsByBookId(int bookId) {
+        return store.reservationQueue(bookId).stream().map(InMemoryStore::copy).toList();
+    }
+
+    @Override
+    public List<Book> findBooksReservedByUser(int userId) {
+        List<Book> books = new ArrayList<>();
+        for (int bookId : store.bookIdsReservedFor(userId)) {
+            Book book = store.book(bookId);
+            if (book != null && "RESERVED".equals(book.getStatus()) && Integer.valueOf(userId).equals(book.getReservedForUserId())) {
+                books.add(InMemoryStore.copy(book));
+            }
+        }
+        books.sort(Comparator.comparingInt(Book::getId));
+        return books;
+    }
+}
@@ -0,0 +1,90 @@
+package repository;
+
+import model.Book;
+import model.Loan;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import stats.StatisticsSource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@Profile("inmemory")
+public class InMemoryStatisticsSource implements StatisticsSource {
+
+    private final InMemoryStore store;
+
+    InMemoryStatisticsSource(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Snapshot openSnapshot() {
+        return new Snapshot() {
+            private List<Book> books = List.of();
+            private List<Loan> loans = List.of();
+
+            // Kopia wartości map jest tania w porównaniu z agregacją, która idzie już poza wstrzymaniem zatwierdzeń.
+            @Override
+            public void begin() {
+                books = new ArrayList<>(store.books());
+                loans = new ArrayList<>(store.loans());
+            }
+
+            @Override
+            public void readCounters(LocalDate recentFrom, CounterSink sink) {
+                InMemoryStatisticsSource.readCounters(books, loans, recentFrom, sink);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static void readCounters(List<Book> books, List<Loan> loans, LocalDate recentFrom, CounterSink sink) {
+        long live = 0;
+        for (Book book : books) {
+            if (!book.isDeleted()) {
+                live++;
+                if ("LOANED".equals(book.getStatus())) {
+                    sink.loanedBook(book.getId());
+                }
+            }
+        }
+        sink.totalBooks(live);
+        Map<Integer, Integer> activeByUser = new HashMap<>();
+        Map<Integer, Long> loansByBook = new HashMap<>();
+        Map<LocalDate, Map<Integer, Long>> recentByDay = new HashMap<>();
+        for (Loan loan : loans) {
+            if (loan.getReturnDate() == null) {
+                activeByUser.merge(loan.getUserId(), 1, Integer::sum);
+            }
+            loansByBook.merge(loan.getBookId(), 1L, Long::sum);
+            LocalDate day = loan.getLoanDate().toLocalDate();
+            if (!day.isBefore(recentFrom)) {
+                recentByDay.computeIfAbsent(day, d -> new HashMap<>()).merge(loan.getBookId(), 1L, Long::sum);
+            }
+        }
+        activeByUser.forEach(sink::activeLoans);
+        loansByBook.forEach(sink::loansOfBook);
+        recentByDay.forEach((day, counts) -> counts.forEach((bookId, count) -> sink.dailyLoans(day, bookId, count)));
+    }
+
+    @Override
+    public Map<Integer, String> findTitles(Collection<Integer> bookIds) {
+        Map<Integer, String> titles = new HashMap<>();
+        for (int bookId : bookIds) {
+            Book book = store.book(bookId);
+            if (book != null) {
+                titles.put(bookId, book.getTitle());
+            }
+        }
+        return titles;
+    }
+}
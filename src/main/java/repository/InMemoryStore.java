@@ -0,0 +1,798 @@
+package repository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import model.Book;
+import model.Loan;
+import model.Reservation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Książki, wypożyczenia i rezerwacje trzymane w pamięci (profil inmemory). Zapisany obiekt
+ * nie jest już modyfikowany: zmiana podmienia go w całości i aktualizuje indeksy pomocnicze
+ * pod blokadą kubełka ConcurrentHashMap, a repozytoria zwracają na zewnątrz kopie.
+ * <p>
+ * Mapy i indeksy zawierają tylko zatwierdzone wersje. Transakcja zapisuje zmiany we własnym
+ * zbiorze pod blokadą encji (jak blokada wiersza, zwalniana po zakończeniu transakcji)
+ * i publikuje je w beforeCommit, więc inne wątki nie widzą niezatwierdzonych zmian
+ * (READ COMMITTED). Odczyt pojedynczej encji, kolejki rezerwacji i aktywnych wypożyczeń
+ * uwzględnia też zapisy bieżącej transakcji; pozostałe zbiory i liczniki pokazują stan zatwierdzony.
+ * <p>
+ * Trwałość zapewnia dziennik WAL i migawki w katalogu inmemory.data-dir. Rekord dziennika
+ * zawiera pełny stan encji, dopisywany przy zatwierdzeniu transakcji (lub od razu poza
+ * transakcją), więc odtworzenie jest idempotentne, a migawka nie musi wstrzymywać zapisów
+ * i nie zawiera niczego, czego nie ma w dzienniku. Przy pierwszym starcie, gdy katalog
+ * jest pusty, dane są wczytywane z tabel H2.
+ */
+@Component
+@Profile("inmemory")
+@DependsOn("dataSourceInitializer")
+class InMemoryStore {
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final int SNAPSHOT_MAGIC = 0x4C494231;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final Comparator<Reservation> QUEUE_ORDER =
+            Comparator.comparing(Reservation::getReservationDate).thenComparingInt(Reservation::getId);
+
+    private final DataSource dataSource;
+    private final Path dataDir;
+    private final long snapshotIntervalSeconds;
+    private final boolean fsync;
+    private final long lockTimeoutMillis;
+
+    private final ConcurrentHashMap<Integer, Book> books = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Loan> loans = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Reservation> reservations = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Integer, Set<Integer>> liveBooksByCategory = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> liveBooksByStatus = new ConcurrentHashMap<>();
+    private final LongAdder liveBooks = new LongAdder();
+    private final ConcurrentHashMap<Integer, Set<Integer>> reservedBooksByUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Set<Integer>> activeLoansByUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, NavigableSet<Reservation>> queuesByBook = new ConcurrentHashMap<>();
+
+    private final AtomicInteger bookSequence = new AtomicInteger(1);
+    private final AtomicInteger loanSequence = new AtomicInteger(1);
+    private final AtomicInteger reservationSequence = new AtomicInteger(1);
+
+    // Właściciel blokady każdej encji zmienianej przez niezakończoną transakcję; strzeżone monitorem mapy.
+    private final Map<Long, Transaction> rowOwners = new HashMap<>();
+
+    private WriteAheadLog wal;
+    private ScheduledExecutorService scheduler;
+
+    InMemoryStore(DataSource dataSource,
+                  @Value("${inmemory.data-dir:./library_data}") String dataDir,
+                  @Value("${inmemory.snapshot-interval-seconds:300}") long snapshotIntervalSeconds,
+                  @Value("${inmemory.wal.fsync:false}") boolean fsync,
+                  @Value("${inmemory.lock-timeout-ms:10000}") long lockTimeoutMillis) {
+        this.dataSource = dataSource;
+        this.dataDir = Paths.get(dataDir);
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+        this.fsync = fsync;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+    }
+
+    @PostConstruct
+    public void open() {
+        try {
+            Files.createDirectories(dataDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas tworzenia katalogu danych " + dataDir, e);
+        }
+        Path snapshot = dataDir.resolve(SNAPSHOT_FILE);
+        long coveredGeneration = Files.exists(snapshot) ? readSnapshot(snapshot) : 0;
+        long lastGeneration = coveredGeneration;
+        int replayed = 0;
+        for (Path file : WriteAheadLog.files(dataDir)) {
+            long generation = WriteAheadLog.generationOf(file);
+            if (generation > coveredGeneration) {
+                replayed += WriteAheadLog.replay(file, this::applyRecord);
+                lastGeneration = generation;
+            }
+        }
+        wal = new WriteAheadLog(dataDir, lastGeneration + 1, fsync);
+
+        String origin;
+        if (Files.exists(snapshot)) {
+            origin = "migawka + " + replayed + " rekordów dziennika";
+        } else if (replayed > 0) {
+            origin = replayed + " rekordów dziennika";
+        } else {
+            loadFromDatabase();
+            origin = "import z bazy danych";
+        }
+        if (replayed > 0 || !Files.exists(snapshot)) {
+            snapshot();
+        }
+        System.out.println("[System] Magazyn w pamięci: " + books.size() + " książek, " + loans.size()
+                + " wypożyczeń, " + reservations.size() + " rezerwacji (" + origin + ")");
+
+        if (snapshotIntervalSeconds > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "inmemory-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        snapshotQuietly();
+        wal.close();
+    }
+
+    // --- odczyty: zwracane obiekty należą do magazynu i nie wolno ich modyfikować ---
+
+    Book book(int id) {
+        return visible(books, Key.BOOK, id);
+    }
+
+    Collection<Book> books() {
+        return Collections.unmodifiableCollection(books.values());
+    }
+
+    Set<Integer> liveBookIdsInCategory(int categoryId) {
+        return Collections.unmodifiableSet(liveBooksByCategory.getOrDefault(categoryId, Set.of()));
+    }
+
+    Set<Integer> bookIdsReservedFor(int userId) {
+        return Collections.unmodifiableSet(reservedBooksByUser.getOrDefault(userId, Set.of()));
+    }
+
+    long liveBookCount() {
+        return liveBooks.sum();
+    }
+
+    long liveBookCount(String status) {
+        LongAdder count = liveBooksByStatus.get(status);
+        return count != null ? count.sum() : 0;
+    }
+
+    Loan loan(int id) {
+        return visible(loans, Key.LOAN, id);
+    }
+
+    Collection<Loan> loans() {
+        return Collections.unmodifiableCollection(loans.values());
+    }
+
+    Set<Integer> activeLoanIds(int userId) {
+        Set<Integer> committed = activeLoansByUser.getOrDefault(userId, Set.of());
+        Map<Integer, Loan> own = currentWrites(Key.LOAN);
+        if (own.isEmpty()) {
+            return Collections.unmodifiableSet(committed);
+        }
+        Set<Integer> ids = new LinkedHashSet<>(committed);
+        own.forEach((id, loan) -> {
+            if (loan != null && loan.getUserId() == userId && loan.getReturnDate() == null) {
+                ids.add(id);
+            } else {
+                ids.remove(id);
+            }
+        });
+        return Collections.unmodifiableSet(ids);
+    }
+
+    // Kolejka rezerwacji książki w kolejności (reservation_date, id).
+    NavigableSet<Reservation> reservationQueue(int bookId) {
+        NavigableSet<Reservation> committed = queuesByBook.getOrDefault(bookId, Collections.emptyNavigableSet());
+        Map<Integer, Reservation> own = currentWrites(Key.RESERVATION);
+        if (own.isEmpty()) {
+            return Collections.unmodifiableNavigableSet(committed);
+        }
+        NavigableSet<Reservation> queue = new TreeSet<>(QUEUE_ORDER);
+        queue.addAll(committed);
+        own.forEach((id, reservation) -> {
+            Reservation previous = reservations.get(id);
+            if (previous != null) {
+                queue.remove(previous);
+            }
+            if (reservation != null && reservation.getBookId() == bookId) {
+                queue.add(reservation);
+            }
+        });
+        return Collections.unmodifiableNavigableSet(queue);
+    }
+
+    // --- zapisy ---
+
+    Book insertBook(Book book) {
+        Book stored = copy(book);
+        stored.setId(bookSequence.getAndIncrement());
+        put(stored.getId(), stored, Key.BOOK);
+        return stored;
+    }
+
+    /**
+     * Podmienia książkę na wynik {@code change}, który dostaje bieżącą wersję (tylko do odczytu)
+     * i zwraca nową albo null, gdy nic nie zmienia. Zwraca zapisaną wersję lub null.
+     */
+    Book updateBook(int id, UnaryOperator<Book> change) {
+        return update(books, id, change, Key.BOOK, false);
+    }
+
+    Loan insertLoan(int userId, int bookId, LocalDateTime loanDate) {
+        Loan stored = new Loan(loanSequence.getAndIncrement(), userId, bookId, loanDate, null);
+        put(stored.getId(), stored, Key.LOAN);
+        return stored;
+    }
+
+    Loan updateLoan(int id, UnaryOperator<Loan> change) {
+        return update(loans, id, change, Key.LOAN, false);
+    }
+
+    Reservation insertReservation(int userId, int bookId, LocalDateTime reservationDate) {
+        Reservation stored = new Reservation(reservationSequence.getAndIncrement(), userId, bookId, reservationDate);
+        put(stored.getId(), stored, Key.RESERVATION);
+        return stored;
+    }
+
+    boolean deleteReservation(int id) {
+        return update(reservations, id, current -> null, Key.RESERVATION, true) != null;
+    }
+
+    static Book copy(Book book) {
+        return BookMappers.copy(book);
+    }
+
+    static Loan copy(Loan loan) {
+        return new Loan(loan.getId(), loan.getUserId(), loan.getBookId(), loan.getLoanDate(), loan.getReturnDate());
+    }
+
+    static Reservation copy(Reservation reservation) {
+        return new Reservation(reservation.getId(), reservation.getUserId(), reservation.getBookId(), reservation.getReservationDate());
+    }
+
+    private <T> void put(int id, T value, byte type) {
+        long key = Key.of(type, id);
+        Transaction transaction = transactionFor(key);
+        boolean written = false;
+        try {
+            transaction.writes.put(key, value);
+            written = true;
+        } finally {
+            transaction.endStatement(written);
+        }
+    }
+
+    // Przy remove=true encja jest usuwana, a zwracana jest jej ostatnia wersja.
+    @SuppressWarnings("unchecked")
+    private <T> T update(ConcurrentHashMap<Integer, T> map, int id, UnaryOperator<T> change, byte type, boolean remove) {
+        long key = Key.of(type, id);
+        Transaction transaction = transactionFor(key);
+        boolean written = false;
+        try {
+            // Pod blokadą encji nikt inny jej nie zmieni, więc bieżąca wersja jest stabilna aż do końca transakcji.
+            T current = transaction.writes.containsKey(key) ? (T) transaction.writes.get(key) : map.get(id);
+            if (current == null) {
+                return null;
+            }
+            T next = remove ? null : change.apply(current);
+            if (next == null && !remove) {
+                return null;
+            }
+            transaction.writes.put(key, next);
+            written = true;
+            return remove ? current : next;
+        } finally {
+            transaction.endStatement(written);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T visible(ConcurrentHashMap<Integer, T> map, byte type, int id) {
+        Transaction transaction = currentTransaction();
+        long key = Key.of(type, id);
+        if (transaction != null && transaction.writes.containsKey(key)) {
+            return (T) transaction.writes.get(key);
+        }
+        return map.get(id);
+    }
+
+    // Zapisy bieżącej transakcji dla danego typu encji (null oznacza usunięcie).
+    @SuppressWarnings("unchecked")
+    private <T> Map<Integer, T> currentWrites(byte type) {
+        Transaction transaction = currentTransaction();
+        if (transaction == null || transaction.writes.isEmpty()) {
+            return Map.of();
+        }
+        Map<Integer, T> own = new HashMap<>();
+        transaction.writes.forEach((key, value) -> {
+            if (Key.type(key) == type) {
+                own.put(Key.id(key), (T) value);
+            }
+        });
+        return own;
+    }
+
+    private void reindexBook(Book old, Book now) {
+        if (old != null) {
+            if (!old.isDeleted()) {
+                removeFrom(liveBooksByCategory.get(old.getCategoryId()), old.getId());
+                liveBooksByStatus.computeIfAbsent(old.getStatus(), status -> new LongAdder()).decrement();
+                liveBooks.decrement();
+            }
+            if (isReserved(old)) {
+                removeFrom(reservedBooksByUser.get(old.getReservedForUserId()), old.getId());
+            }
+        }
+        if (now != null) {
+            if (!now.isDeleted()) {
+                liveBooksByCategory.computeIfAbsent(now.getCategoryId(), category -> ConcurrentHashMap.newKeySet()).add(now.getId());
+                liveBooksByStatus.computeIfAbsent(now.getStatus(), status -> new LongAdder()).increment();
+                liveBooks.increment();
+            }
+            if (isReserved(now)) {
+                reservedBooksByUser.computeIfAbsent(now.getReservedForUserId(), user -> ConcurrentHashMap.newKeySet()).add(now.getId());
+            }
+        }
+    }
+
+    private static <T> void removeFrom(Set<T> index, T value) {
+        if (index != null) {
+            index.remove(value);
+        }
+    }
+
+    private static boolean isReserved(Book book) {
+        return "RESERVED".equals(book.getStatus()) && book.getReservedForUserId() != null;
+    }
+
+    private void reindexLoan(Loan old, Loan now) {
+        if (old != null && old.getReturnDate() == null) {
+            removeFrom(activeLoansByUser.get(old.getUserId()), old.getId());
+        }
+        if (now != null && now.getReturnDate() == null) {
+            activeLoansByUser.computeIfAbsent(now.getUserId(), user -> ConcurrentHashMap.newKeySet()).add(now.getId());
+        }
+    }
+
+    private void reindexReservation(Reservation old, Reservation now) {
+        if (old != null) {
+            removeFrom(queuesByBook.get(old.getBookId()), old);
+        }
+        if (now != null) {
+            queuesByBook.computeIfAbsent(now.getBookId(), book -> new ConcurrentSkipListSet<>(QUEUE_ORDER)).add(now);
+        }
+    }
+
+    // --- transakcje i dziennik ---
+
+    private Transaction currentTransaction() {
+        return TransactionSynchronizationManager.isSynchronizationActive()
+                ? (Transaction) TransactionSynchronizationManager.getResource(this)
+                : null;
+    }
+
+    // Poza transakcją Springa każda zmiana jest osobną, od razu zatwierdzaną transakcją.
+    private Transaction transactionFor(long key) {
+        Transaction transaction;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            transaction = (Transaction) TransactionSynchronizationManager.getResource(this);
+            if (transaction == null) {
+                transaction = new Transaction(false);
+                TransactionSynchronizationManager.bindResource(this, transaction);
+                TransactionSynchronizationManager.registerSynchronization(transaction);
+            }
+        } else {
+            transaction = new Transaction(true);
+        }
+        lockRow(transaction, key);
+        return transaction;
+    }
+
+    private void lockRow(Transaction transaction, long key) {
+        if (transaction.locked.contains(key)) {
+            return;
+        }
+        synchronized (rowOwners) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lockTimeoutMillis);
+            while (rowOwners.containsKey(key)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new CannotAcquireLockException("Przekroczono czas oczekiwania na blokadę encji " + Key.describe(key));
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(rowOwners, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CannotAcquireLockException("Przerwano oczekiwanie na blokadę encji " + Key.describe(key), e);
+                }
+            }
+            rowOwners.put(key, transaction);
+        }
+        transaction.locked.add(key);
+    }
+
+    private void unlockRows(Transaction transaction) {
+        if (transaction.locked.isEmpty()) {
+            return;
+        }
+        synchronized (rowOwners) {
+            transaction.locked.forEach(rowOwners::remove);
+            rowOwners.notifyAll();
+        }
+        transaction.locked.clear();
+    }
+
+    /**
+     * Dopisuje zmiany transakcji do dziennika i dopiero potem podmienia je w mapach, atomowo
+     * względem innych zapisów do dziennika i przełączenia generacji przed migawką. Zwraca
+     * poprzednie wersje encji, potrzebne, gdy zatwierdzenie w bazie się nie powiedzie.
+     */
+    private Map<Long, Object> publish(Map<Long, Object> writes) {
+        Map<Long, Object> previous = new LinkedHashMap<>();
+        synchronized (wal) {
+            wal.append(records(writes));
+            writes.forEach((key, value) -> previous.put(key, apply(key, value)));
+        }
+        return previous;
+    }
+
+    // Bieżący stan encji jest odczytywany i dopisywany atomowo względem innych zapisów do dziennika,
+    // więc ostatni rekord każdej encji zawsze odpowiada jej stanowi w pamięci.
+    private void persist(Collection<Long> keys) {
+        synchronized (wal) {
+            Map<Long, Object> states = new LinkedHashMap<>();
+            for (long key : keys) {
+                int id = Key.id(key);
+                states.put(key, switch (Key.type(key)) {
+                    case Key.BOOK -> books.get(id);
+                    case Key.LOAN -> loans.get(id);
+                    default -> reservations.get(id);
+                });
+            }
+            wal.append(records(states));
+        }
+    }
+
+    private static List<byte[]> records(Map<Long, Object> states) {
+        List<byte[]> records = new ArrayList<>(states.size());
+        states.forEach((key, state) -> {
+            switch (Key.type(key)) {
+                case Key.BOOK -> records.add(state != null
+                        ? InMemoryCodec.bookRecord((Book) state)
+                        : InMemoryCodec.bookDeletedRecord(Key.id(key)));
+                case Key.LOAN -> records.add(state != null
+                        ? InMemoryCodec.loanRecord((Loan) state)
+                        : InMemoryCodec.loanDeletedRecord(Key.id(key)));
+                default -> records.add(state != null
+                        ? InMemoryCodec.reservationRecord((Reservation) state)
+                        : InMemoryCodec.reservationDeletedRecord(Key.id(key)));
+            }
+        });
+        return records;
+    }
+
+    // Podmienia encję w mapie razem z indeksami i zwraca poprzednią wersję.
+    private Object apply(long key, Object value) {
+        int id = Key.id(key);
+        return switch (Key.type(key)) {
+            case Key.BOOK -> applyTo(books, id, (Book) value, this::reindexBook);
+            case Key.LOAN -> applyTo(loans, id, (Loan) value, this::reindexLoan);
+            default -> applyTo(reservations, id, (Reservation) value, this::reindexReservation);
+        };
+    }
+
+    private static <T> T applyTo(ConcurrentHashMap<Integer, T> map, int id, T value, Reindexer<T> reindexer) {
+        List<T> previous = new ArrayList<>(1);
+        map.compute(id, (key, current) -> {
+            reindexer.reindex(current, value);
+            previous.add(current);
+            return value;
+        });
+        return previous.get(0);
+    }
+
+    private void applyRecord(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case InMemoryCodec.BOOK -> restoreBook(InMemoryCodec.readBook(in));
+            case InMemoryCodec.LOAN -> restoreLoan(InMemoryCodec.readLoan(in));
+            case InMemoryCodec.RESERVATION -> restoreReservation(InMemoryCodec.readReservation(in));
+            case InMemoryCodec.RESERVATION_DELETED -> restoreDeleted(reservations, in.readInt(), this::reindexReservation, reservationSequence);
+            case InMemoryCodec.BOOK_DELETED -> restoreDeleted(books, in.readInt(), this::reindexBook, bookSequence);
+            case InMemoryCodec.LOAN_DELETED -> restoreDeleted(loans, in.readInt(), this::reindexLoan, loanSequence);
+            default -> throw new IOException("Nieznany typ rekordu: " + type);
+        }
+    }
+
+    private void restoreBook(Book book) {
+        reindexBook(books.put(book.getId(), book), book);
+        bumpSequence(bookSequence, book.getId());
+    }
+
+    private void restoreLoan(Loan loan) {
+        reindexLoan(loans.put(loan.getId(), loan), loan);
+        bumpSequence(loanSequence, loan.getId());
+    }
+
+    private void restoreReservation(Reservation reservation) {
+        reindexReservation(reservations.put(reservation.getId(), reservation), reservation);
+        bumpSequence(reservationSequence, reservation.getId());
+    }
+
+    // Identyfikator usuniętej encji nie jest używany ponownie, więc sekwencja i tak go pomija.
+    private static <T> void restoreDeleted(ConcurrentHashMap<Integer, T> map, int id, Reindexer<T> reindexer, AtomicInteger sequence) {
+        T removed = map.remove(id);
+        if (removed != null) {
+            reindexer.reindex(removed, null);
+        }
+        bumpSequence(sequence, id);
+    }
+
+    private static void bumpSequence(AtomicInteger sequence, int usedId) {
+        sequence.accumulateAndGet(usedId + 1, Math::max);
+    }
+
+    // --- migawki ---
+
+    /**
+     * Zapisuje migawkę i usuwa pliki dziennika, które obejmuje. Dziennik jest przełączany
+     * przed kopiowaniem map, więc każdy zapis spoza migawki trafia do nowszej generacji.
+     */
+    synchronized void snapshot() {
+        long covered = wal.rotate();
+        List<Book> bookCopy = new ArrayList<>(books.values());
+        List<Loan> loanCopy = new ArrayList<>(loans.values());
+        List<Reservation> reservationCopy = new ArrayList<>(reservations.values());
+
+        Path target = dataDir.resolve(SNAPSHOT_FILE);
+        Path temp = dataDir.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             BufferedOutputStream buffered = new BufferedOutputStream(file, 1 << 16)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(buffered, crc));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(covered);
+            out.writeInt(bookSequence.get());
+            out.writeInt(loanSequence.get());
+            out.writeInt(reservationSequence.get());
+            out.writeInt(bookCopy.size());
+            for (Book book : bookCopy) {
+                InMemoryCodec.writeBook(out, book);
+            }
+            out.writeInt(loanCopy.size());
+            for (Loan loan : loanCopy) {
+                InMemoryCodec.writeLoan(out, loan);
+            }
+            out.writeInt(reservationCopy.size());
+            for (Reservation reservation : reservationCopy) {
+                InMemoryCodec.writeReservation(out, reservation);
+            }
+            out.flush();
+            buffered.write(ByteBuffer.allocate(8).putLong(crc.getValue()).array());
+            buffered.flush();
+            if (fsync) {
+                file.getFD().sync();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas zapisu migawki " + target, e);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas zapisu migawki " + target, e);
+        }
+        wal.deleteUpTo(covered);
+    }
+
+    // Zwraca numer ostatniej generacji dziennika objętej migawką.
+    private long readSnapshot(Path file) {
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            CRC32 crc = new CRC32();
+            DataInputStream in = new DataInputStream(new CheckedInputStream(raw, crc));
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IllegalStateException("Nieobsługiwany format migawki " + file);
+            }
+            long covered = in.readLong();
+            int nextBookId = in.readInt();
+            int nextLoanId = in.readInt();
+            int nextReservationId = in.readInt();
+            for (int i = in.readInt(); i > 0; i--) {
+                restoreBook(InMemoryCodec.readBook(in));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                restoreLoan(InMemoryCodec.readLoan(in));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                restoreReservation(InMemoryCodec.readReservation(in));
+            }
+            long expected = crc.getValue();
+            if (new DataInputStream(raw).readLong() != expected) {
+                throw new IllegalStateException("Uszkodzona migawka " + file + " (suma kontrolna)");
+            }
+            bumpSequence(bookSequence, nextBookId - 1);
+            bumpSequence(loanSequence, nextLoanId - 1);
+            bumpSequence(reservationSequence, nextReservationId - 1);
+            return covered;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas wczytywania migawki " + file, e);
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            System.err.println("[System] Nie udało się zapisać migawki magazynu: " + e.getMessage());
+        }
+    }
+
+    private void loadFromDatabase() {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT " + BookMappers.BOOK_COLUMNS + " FROM books")) {
+                RowMapper<Book> mapper = BookMappers.book();
+                while (rs.next()) {
+                    restoreBook(mapper.mapRow(rs, 0));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT id, user_id, book_id, loan_date, return_date FROM loans")) {
+                while (rs.next()) {
+                    restoreLoan(new Loan(rs.getInt(1), rs.getInt(2), rs.getInt(3), toLocalDateTime(rs.getTimestamp(4)), toLocalDateTime(rs.getTimestamp(5))));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT id, user_id, book_id, reservation_date FROM reservations")) {
+                while (rs.next()) {
+                    restoreReservation(new Reservation(rs.getInt(1), rs.getInt(2), rs.getInt(3), toLocalDateTime(rs.getTimestamp(4))));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas wczytywania danych do magazynu w pamięci", e);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private interface Reindexer<T> {
+        void reindex(T old, T now);
+    }
+
+    // Klucz encji w dzienniku transakcji: typ w starszych 32 bitach, identyfikator w młodszych.
+    private static final class Key {
+        static final byte BOOK = InMemoryCodec.BOOK;
+        static final byte LOAN = InMemoryCodec.LOAN;
+        static final byte RESERVATION = InMemoryCodec.RESERVATION;
+
+        static long of(byte type, int id) {
+            return ((long) type << 32) | (id & 0xFFFFFFFFL);
+        }
+
+        static byte type(long key) {
+            return (byte) (key >>> 32);
+        }
+
+        static int id(long key) {
+            return (int) key;
+        }
+
+        static String describe(long key) {
+            String type = switch (type(key)) {
+                case BOOK -> "książka";
+                case LOAN -> "wypożyczenie";
+                default -> "rezerwacja";
+            };
+            return type + " #" + id(key);
+        }
+    }
+
+    private final class Transaction implements TransactionSynchronization {
+        private final boolean autoCommit;
+        private final Map<Long, Object> writes = new LinkedHashMap<>();
+        private final Set<Long> locked = new HashSet<>();
+        private Map<Long, Object> published = Map.of();
+
+        private Transaction(boolean autoCommit) {
+            this.autoCommit = autoCommit;
+        }
+
+        // Zmiana poza transakcją Springa jest publikowana od razu, a blokada zwalniana.
+        void endStatement(boolean written) {
+            if (!autoCommit) {
+                return;
+            }
+            try {
+                if (written) {
+                    publish(writes);
+                }
+            } finally {
+                unlockRows(this);
+            }
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            published = publish(writes);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(InMemoryStore.this);
+            try {
+                if (status != STATUS_COMMITTED && !published.isEmpty()) {
+                    rollbackPublished();
+                }
+            } finally {
+                unlockRows(this);
+            }
+        }
+
+        // Baza odrzuciła zatwierdzenie już po publikacji: blokady wciąż są nasze, więc przywracamy poprzednie wersje.
+        private void rollbackPublished() {
+            List<Map.Entry<Long, Object>> entries = new ArrayList<>(published.entrySet());
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                apply(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+            // Dziennik i być może migawka zawierają już opublikowany stan.
+            try {
+                persist(published.keySet());
+            } catch (RuntimeException e) {
+                System.err.println("[System] Nie udało się zapisać wycofania w dzienniku: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package repository;
 
 import model.Book;
+import model.BookReturn;
 import model.Loan;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public interface LoanRepository {
     void createLoan(int userId, int bookId);
+    void createLoans(int userId, List<Integer> bookIds);
     boolean returnLoan(int bookId, int userId);
+    boolean[] returnLoans(List<BookReturn> returns);
     List<Loan> getAllLoans();
+    Stream<Loan> streamAllLoans();
     List<Loan> getActiveLoansByUser(int userId);
     List<Map.Entry<String, Long>> getMostLoanedBooks(int limit);
+    List<Map.Entry<String, Long>> getMostLoanedBooksSince(LocalDateTime since, int limit);
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package repository;
 
+import model.BookReturn;
 import model.Loan;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
+import stats.LibraryStatistics;
 
 import javax.sql.DataSource;
 import java.sql.*;
@@ -10,14 +13,18 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.AbstractMap;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @Repository
+@Profile("!inmemory")
 public class LoanRepositoryImpl implements LoanRepository {
 
     private final DataSource dataSource;
+    private final LibraryStatistics statistics;
 
-    public LoanRepositoryImpl(DataSource dataSource) {
+    public LoanRepositoryImpl(DataSource dataSource, LibraryStatistics statistics) {
         this.dataSource = dataSource;
+        this.statistics = statistics;
     }
 
     @Override
@@ -29,11 +36,34 @@ public class LoanRepositoryImpl implements LoanRepository {
             stmt.setInt(2, bookId);
             stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
             stmt.executeUpdate();
+            statistics.loanCreated(userId, bookId);
         } catch (SQLException e) {
             throw new RuntimeException("Błąd podczas tworzenia wypożyczenia", e);
         }
     }
 
+    @Override
+    public void createLoans(int userId, List<Integer> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO loans (user_id, book_id, loan_date) VALUES (?, ?, ?)";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int bookId : bookIds) {
+                stmt.setInt(1, userId);
+                stmt.setInt(2, bookId);
+                stmt.setTimestamp(3, now);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            bookIds.forEach(bookId -> statistics.loanCreated(userId, bookId));
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas wsadowego tworzenia wypożyczeń", e);
+        }
+    }
+
     @Override
     public boolean returnLoan(int bookId, int userId) {
         String sql = "UPDATE loans SET return_date = ? WHERE book_id = ? AND user_id = ? AND return_date IS NULL";
@@ -42,17 +72,55 @@ public class LoanRepositoryImpl implements LoanRepository {
             stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
             stmt.setInt(2, bookId);
             stmt.setInt(3, userId);
-            return stmt.executeUpdate() > 0;
+            boolean updated = stmt.executeUpdate() > 0;
+            if (updated) {
+                statistics.loanReturned(userId);
+            }
+            return updated;
         } catch (SQLException e) {
             throw new RuntimeException("Błąd podczas aktualizacji zwrotu wypożyczenia", e);
         }
     }
 
+    @Override
+    public boolean[] returnLoans(List<BookReturn> returns) {
+        boolean[] returned = new boolean[returns.size()];
+        if (returns.isEmpty()) {
+            return returned;
+        }
+        String sql = "UPDATE loans SET return_date = ? WHERE book_id = ? AND user_id = ? AND return_date IS NULL";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (BookReturn item : returns) {
+                stmt.setTimestamp(1, now);
+                stmt.setInt(2, item.bookId());
+                stmt.setInt(3, item.userId());
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                returned[i] = counts[i] > 0;
+                if (returned[i]) {
+                    statistics.loanReturned(returns.get(i).userId());
+                }
+            }
+            return returned;
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas wsadowej aktualizacji zwrotów", e);
+        }
+    }
+
     @Override
     public List<Loan> getAllLoans() {
         return fetchLoans("SELECT * FROM loans");
     }
 
+    @Override
+    public Stream<Loan> streamAllLoans() {
+        return ResultSetStreams.stream(dataSource, "SELECT * FROM loans ORDER BY id", (rs, rowNum) -> mapResultSetToLoan(rs));
+    }
+
     @Override
     public List<Loan> getActiveLoansByUser(int userId) {
         String sql = "SELECT * FROM loans WHERE user_id = ? AND return_date IS NULL";
@@ -61,17 +129,36 @@ public class LoanRepositoryImpl implements LoanRepository {
 
     @Override
     public List<Map.Entry<String, Long>> getMostLoanedBooks(int limit) {
-        List<Map.Entry<String, Long>> topBooks = new ArrayList<>();
         String sql = "SELECT b.title, COUNT(l.book_id) AS loan_count " +
                      "FROM loans l " +
                      "JOIN books b ON l.book_id = b.id " +
                      "GROUP BY l.book_id, b.title " +
                      "ORDER BY loan_count DESC " +
                      "LIMIT ?";
+        return fetchTopBooks(sql, stmt -> stmt.setInt(1, limit));
+    }
 
+    // Dokładne zapytanie do weryfikacji rankingów okienkowych z LibraryStatistics.
+    @Override
+    public List<Map.Entry<String, Long>> getMostLoanedBooksSince(LocalDateTime since, int limit) {
+        String sql = "SELECT b.title, COUNT(l.book_id) AS loan_count " +
+                     "FROM loans l " +
+                     "JOIN books b ON l.book_id = b.id " +
+                     "WHERE l.loan_date >= ? " +
+                     "GROUP BY l.book_id, b.title " +
+                     "ORDER BY loan_count DESC, l.book_id ASC " +
+                     "LIMIT ?";
+        return fetchTopBooks(sql, stmt -> {
+            stmt.setTimestamp(1, Timestamp.valueOf(since));
+            stmt.setInt(2, limit);
+        });
+    }
+
+    private List<Map.Entry<String, Long>> fetchTopBooks(String sql, StatementBinder binder) {
+        List<Map.Entry<String, Long>> topBooks = new ArrayList<>();
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, limit);
+            binder.bind(stmt);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
                 String title = rs.getString("title");
@@ -84,6 +171,10 @@ public class LoanRepositoryImpl implements LoanRepository {
         return topBooks;
     }
 
+    private interface StatementBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
     private List<Loan> fetchLoans(String sql) {
         List<Loan> list = new ArrayList<>();
         try (Connection conn = dataSource.getConnection();
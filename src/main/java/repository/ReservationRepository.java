@@ -9,6 +9,9 @@ public interface ReservationRepository {
     void addReservation(int userId, int bookId);
     Optional<Reservation> findNextReservationForBook(int bookId);
     void deleteReservation(int reservationId);
+    boolean deleteReservationForUser(int bookId, int userId);
+    // Zwraca identyfikatory książek, dla których usunięto rezerwację użytkownika.
+    List<Integer> deleteReservationsForUser(List<Integer> bookIds, int userId);
     List<Reservation> findReservationsByBookId(int bookId);
     List<Book> findBooksReservedByUser(int userId);
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package repository;
 
 import model.Book;
 import model.Reservation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
@@ -11,6 +13,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
+@Profile("!inmemory")
 public class ReservationRepositoryImpl implements ReservationRepository {
 
     private final DataSource dataSource;
@@ -65,6 +68,46 @@ public class ReservationRepositoryImpl implements ReservationRepository {
         }
     }
 
+    @Override
+    public boolean deleteReservationForUser(int bookId, int userId) {
+        String sql = "DELETE FROM reservations WHERE id = (" +
+                     "SELECT id FROM reservations WHERE book_id = ? AND user_id = ? " +
+                     "ORDER BY reservation_date ASC, id ASC LIMIT 1)";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, bookId);
+            stmt.setInt(2, userId);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas usuwania rezerwacji użytkownika", e);
+        }
+    }
+
+    @Override
+    public List<Integer> deleteReservationsForUser(List<Integer> bookIds, int userId) {
+        List<Integer> cleared = new ArrayList<>();
+        if (bookIds.isEmpty()) {
+            return cleared;
+        }
+        // Jak w deleteReservationForUser: najstarsza rezerwacja użytkownika dla każdej książki.
+        String sql = "SELECT book_id FROM OLD TABLE (DELETE FROM reservations WHERE id IN (SELECT id FROM (" +
+                     "SELECT id, ROW_NUMBER() OVER (PARTITION BY book_id ORDER BY reservation_date ASC, id ASC) AS position " +
+                     "FROM reservations WHERE user_id = ? AND book_id = ANY(?)) oldest WHERE position = 1))";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            stmt.setArray(2, conn.createArrayOf("INTEGER", bookIds.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    cleared.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas wsadowego usuwania rezerwacji użytkownika", e);
+        }
+        return cleared;
+    }
+
     @Override
     public List<Reservation> findReservationsByBookId(int bookId) {
         List<Reservation> reservations = new ArrayList<>();
@@ -90,23 +133,14 @@ public class ReservationRepositoryImpl implements ReservationRepository {
     @Override
     public List<Book> findBooksReservedByUser(int userId) {
         List<Book> books = new ArrayList<>();
-        String sql = "SELECT * FROM books WHERE status = 'RESERVED' AND reserved_for_user_id = ?";
+        String sql = "SELECT " + BookMappers.BOOK_COLUMNS + " FROM books WHERE status = 'RESERVED' AND reserved_for_user_id = ?";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, userId);
             ResultSet rs = stmt.executeQuery();
+            RowMapper<Book> mapper = BookMappers.book();
             while (rs.next()) {
-                books.add(Book.builder()
-                        .id(rs.getInt("id"))
-                        .title(rs.getString("title"))
-                        .author(rs.getString("author"))
-                        .publicationYear(rs.getInt("publication_year"))
-                        .isbn(rs.getString("isbn"))
-                        .categoryId(rs.getInt("category_id"))
-                        .status(rs.getString("status"))
-                        .reservedForUserId((Integer) rs.getObject("reserved_for_user_id"))
-                        .isDeleted(rs.getBoolean("is_deleted"))
-                        .build());
+                books.add(mapper.mapRow(rs, books.size()));
             }
         } catch (SQLException e) {
             throw new RuntimeException("Błąd podczas wyszukiwania książek zarezerwowanych przez użytkownika", e);
@@ -0,0 +1,84 @@
+package repository;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+final class ResultSetStreams {
+
+    static final int FETCH_SIZE = 500;
+
+    private ResultSetStreams() {
+    }
+
+    // Kursor pozostaje otwarty do zamknięcia strumienia, więc wołający musi użyć try-with-resources.
+    static <T> Stream<T> stream(DataSource dataSource, String sql, RowMapper<T> mapper) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            conn = dataSource.getConnection();
+            setLazyExecution(conn, true);
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(FETCH_SIZE);
+            rs = stmt.executeQuery();
+        } catch (SQLException e) {
+            close(rs, stmt, conn);
+            throw new RuntimeException("Błąd podczas otwierania strumienia wyników", e);
+        }
+
+        ResultSet cursor = rs;
+        Spliterator<T> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private int rowNum;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!cursor.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.mapRow(cursor, rowNum++));
+                    return true;
+                } catch (SQLException e) {
+                    throw new RuntimeException("Błąd podczas odczytu strumienia wyników", e);
+                }
+            }
+        };
+        PreparedStatement openStmt = stmt;
+        Connection openConn = conn;
+        return StreamSupport.stream(rows, false).onClose(() -> close(cursor, openStmt, openConn));
+    }
+
+    // H2 domyślnie buforuje cały wynik zapytania; w trybie leniwym wiersze są wyliczane przy kolejnych next().
+    private static void setLazyExecution(Connection conn, boolean lazy) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? "TRUE" : "FALSE"));
+        }
+    }
+
+    private static void close(ResultSet rs, Statement stmt, Connection conn) {
+        try {
+            if (rs != null) rs.close();
+            if (stmt != null) stmt.close();
+            if (conn != null) setLazyExecution(conn, false);
+        } catch (SQLException e) {
+            System.err.println("Błąd podczas zamykania strumienia wyników: " + e.getMessage());
+        } finally {
+            try {
+                if (conn != null) conn.close();
+            } catch (SQLException e) {
+                System.err.println("Błąd podczas zamykania połączenia: " + e.getMessage());
+            }
+        }
+    }
+}
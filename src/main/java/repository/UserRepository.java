@@ -3,11 +3,14 @@ package repository;
 import model.User;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository {
     void addUser(User user);
     List<User> getAllUsers();
+    Stream<User> streamAllUsers();
     boolean deleteUser(int userId);
+    void updatePassword(int userId, String passwordHash);
     Optional<User> findByUsername(String username);
     int countActiveUsers();
 }
\ No newline at end of file
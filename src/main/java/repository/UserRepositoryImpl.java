@@ -1,31 +1,35 @@
 package repository;
 
 import model.User;
-import org.mindrot.jbcrypt.BCrypt;
 import org.springframework.stereotype.Repository;
+import security.PasswordHasher;
 
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public class UserRepositoryImpl implements UserRepository {
 
     private final DataSource dataSource;
+    private final PasswordHasher passwordHasher;
 
-    public UserRepositoryImpl(DataSource dataSource) {
+    public UserRepositoryImpl(DataSource dataSource, PasswordHasher passwordHasher) {
         this.dataSource = dataSource;
+        this.passwordHasher = passwordHasher;
     }
 
     @Override
     public void addUser(User user) {
         String sql = "INSERT INTO users (username, password, first_name, last_name, email, role) VALUES (?, ?, ?, ?, ?, ?)";
+        // Haszujemy przed pobraniem połączenia, żeby nie trzymać go podczas pracy BCrypt.
+        String hashedPw = passwordHasher.hash(user.getPassword());
         try (Connection conn = dataSource.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, user.getUsername());
-            String hashedPw = BCrypt.hashpw(user.getPassword(), BCrypt.gensalt());
             stmt.setString(2, hashedPw);
             stmt.setString(3, user.getFirstName());
             stmt.setString(4, user.getLastName());
@@ -83,6 +87,15 @@ public class UserRepositoryImpl implements UserRepository {
         return users;
     }
 
+    @Override
+    public Stream<User> streamAllUsers() {
+        return ResultSetStreams.stream(dataSource, "SELECT * FROM users ORDER BY id", (rs, rowNum) -> new User(
+                rs.getInt("id"), rs.getString("username"), rs.getString("password"),
+                rs.getString("first_name"), rs.getString("last_name"),
+                rs.getString("email"), rs.getString("role")
+        ));
+    }
+
     @Override
     public boolean deleteUser(int userId) {
         String sql = "DELETE FROM users WHERE id = ?";
@@ -97,6 +110,19 @@ public class UserRepositoryImpl implements UserRepository {
         }
     }
 
+    @Override
+    public void updatePassword(int userId, String passwordHash) {
+        String sql = "UPDATE users SET password = ? WHERE id = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, passwordHash);
+            stmt.setInt(2, userId);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas aktualizacji hasła użytkownika", e);
+        }
+    }
+
     @Override
     public int countActiveUsers() {
         String sql = "SELECT COUNT(DISTINCT user_id) FROM loans WHERE return_date IS NULL";
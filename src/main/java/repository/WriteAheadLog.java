@@ -0,0 +1,174 @@
+package repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Dziennik zapisów z wyprzedzeniem. Każda generacja to plik wal-{generacja}.log z rekordami
+ * [długość][dane][CRC32]. Migawka zamyka bieżącą generację, a po jej zapisaniu starsze pliki
+ * są usuwane. Przy odtwarzaniu niedokończony lub uszkodzony rekord kończy odczyt pliku.
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final Pattern FILE_NAME = Pattern.compile("wal-(\\d+)\\.log");
+
+    private final Path directory;
+    private final boolean fsync;
+    private long generation;
+    private FileChannel channel;
+
+    WriteAheadLog(Path directory, long generation, boolean fsync) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.generation = generation;
+        this.channel = open(generation);
+    }
+
+    synchronized void append(List<byte[]> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        int size = 0;
+        for (byte[] record : records) {
+            size += record.length + 12;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (byte[] record : records) {
+            crc.reset();
+            crc.update(record);
+            buffer.putInt(record.length).put(record).putLong(crc.getValue());
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas zapisu dziennika " + fileOf(generation), e);
+        }
+    }
+
+    /**
+     * Zamyka bieżący plik i otwiera następną generację. Zwraca numer zamkniętej generacji.
+     */
+    synchronized long rotate() {
+        long closed = generation;
+        closeChannel();
+        generation++;
+        channel = open(generation);
+        return closed;
+    }
+
+    void deleteUpTo(long lastGeneration) {
+        for (Path file : files(directory)) {
+            if (generationOf(file) <= lastGeneration) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    System.err.println("[System] Nie udało się usunąć pliku dziennika " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closeChannel();
+    }
+
+    static List<Path> files(Path directory) {
+        try (Stream<Path> entries = Files.list(directory)) {
+            List<Path> files = new ArrayList<>(entries.filter(file -> FILE_NAME.matcher(file.getFileName().toString()).matches()).toList());
+            files.sort(Comparator.comparingLong(WriteAheadLog::generationOf));
+            return files;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas listowania plików dziennika w " + directory, e);
+        }
+    }
+
+    static long generationOf(Path file) {
+        Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    /**
+     * Przekazuje kolejne poprawne rekordy pliku do {@code handler} i zwraca ich liczbę.
+     */
+    static int replay(Path file, RecordHandler handler) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas odczytu dziennika " + file, e);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        int count = 0;
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt();
+            if (length <= 0 || buffer.remaining() < length + 8) {
+                System.err.println("[System] Niekompletny rekord na końcu " + file + " został pominięty.");
+                break;
+            }
+            int offset = buffer.position();
+            crc.reset();
+            crc.update(bytes, offset, length);
+            buffer.position(offset + length);
+            if (buffer.getLong() != crc.getValue()) {
+                System.err.println("[System] Uszkodzony rekord w " + file + " (suma kontrolna); dalsza część pliku została pominięta.");
+                break;
+            }
+            try {
+                handler.handle(new DataInputStream(new ByteArrayInputStream(bytes, offset, length)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Błąd podczas odtwarzania rekordu z " + file, e);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private FileChannel open(long gen) {
+        try {
+            return FileChannel.open(fileOf(gen), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas otwierania dziennika " + fileOf(gen), e);
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            channel.force(true);
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[System] Błąd podczas zamykania dziennika: " + e.getMessage());
+        }
+    }
+
+    private Path fileOf(long gen) {
+        return directory.resolve("wal-" + gen + ".log");
+    }
+
+    interface RecordHandler {
+        void handle(DataInputStream record) throws IOException;
+    }
+}
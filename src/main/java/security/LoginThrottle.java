@@ -0,0 +1,85 @@
+package security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Ogranicza liczbę nieudanych logowań na nazwę użytkownika. Po przekroczeniu limitu
+ * konto jest blokowane na określony czas, zanim jakakolwiek praca BCrypt zostanie
+ * zlecona, więc zgadywanie haseł nie zajmuje puli haszującej.
+ */
+@Component
+public class LoginThrottle {
+
+    private final int maxFailures;
+    private final long lockoutMillis;
+    private final int maxTracked;
+    private final ConcurrentMap<String, Failures> failures = new ConcurrentHashMap<>();
+
+    public LoginThrottle(@Value("${security.login.max-failures:5}") int maxFailures,
+                         @Value("${security.login.lockout-ms:60000}") long lockoutMillis,
+                         @Value("${security.login.max-tracked:10000}") int maxTracked) {
+        this.maxFailures = maxFailures;
+        this.lockoutMillis = lockoutMillis;
+        this.maxTracked = maxTracked;
+    }
+
+    /**
+     * Zwraca liczbę milisekund pozostałych do końca blokady lub 0, gdy logowanie jest dozwolone.
+     */
+    public long remainingLockoutMillis(String username) {
+        Failures entry = failures.get(key(username));
+        if (entry == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (entry) {
+            if (now - entry.lastFailureAt >= lockoutMillis) {
+                failures.remove(key(username), entry);
+                return 0;
+            }
+            return entry.count >= maxFailures ? lockoutMillis - (now - entry.lastFailureAt) : 0;
+        }
+    }
+
+    public void recordFailure(String username) {
+        if (failures.size() >= maxTracked) {
+            purgeExpired();
+        }
+        long now = System.currentTimeMillis();
+        Failures entry = failures.computeIfAbsent(key(username), k -> new Failures());
+        synchronized (entry) {
+            if (entry.count > 0 && now - entry.lastFailureAt >= lockoutMillis) {
+                entry.count = 0;
+            }
+            entry.count++;
+            entry.lastFailureAt = now;
+        }
+    }
+
+    public void recordSuccess(String username) {
+        failures.remove(key(username));
+    }
+
+    public int size() {
+        return failures.size();
+    }
+
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        failures.values().removeIf(entry -> now - entry.lastFailureAt >= lockoutMillis);
+    }
+
+    private static String key(String username) {
+        return username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Failures {
+        private int count;
+        private volatile long lastFailureAt;
+    }
+}
@@ -0,0 +1,169 @@
+package security;
+
+import jakarta.annotation.PreDestroy;
+import metrics.LatencyHistogram;
+import org.mindrot.jbcrypt.BCrypt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Wykonuje haszowanie i weryfikację BCrypt na osobnej puli o stałym rozmiarze.
+ * Kolejka zadań jest ograniczona: gdy jest pełna, nowe żądanie od razu dostaje
+ * odmowę zamiast blokować wątek wywołujący i zabierać procesor reszcie aplikacji.
+ */
+@Component
+public class PasswordHasher {
+
+    private final int cost;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor executor;
+    private final LatencyHistogram hashLatency = new LatencyHistogram();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public PasswordHasher(@Value("${security.bcrypt.cost:10}") int cost,
+                          @Value("${security.hash.threads:0}") int threads,
+                          @Value("${security.hash.queue-capacity:64}") int queueCapacity,
+                          @Value("${security.hash.timeout-ms:10000}") long timeoutMillis) {
+        this.cost = cost;
+        this.timeoutMillis = timeoutMillis;
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public String hash(String password) {
+        return await(submit(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost))));
+    }
+
+    public boolean verify(String password, String hash) {
+        if (password == null || hash == null) {
+            return false;
+        }
+        return await(submit(() -> BCrypt.checkpw(password, hash)));
+    }
+
+    /**
+     * Sprawdza, czy hash powstał z innym współczynnikiem pracy niż obecnie skonfigurowany.
+     */
+    public boolean needsRehash(String hash) {
+        return costOf(hash) != cost;
+    }
+
+    /**
+     * Haszuje hasło w tle i przekazuje wynik do {@code onHashed}. Przy przepełnionej
+     * kolejce zadanie jest pomijane - ponowimy je przy następnym logowaniu.
+     */
+    public void rehashAsync(String password, Consumer<String> onHashed) {
+        try {
+            submit(() -> {
+                onHashed.accept(BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+                return null;
+            });
+        } catch (IllegalStateException e) {
+            System.err.println("[System] Pominięto ponowne haszowanie hasła: " + e.getMessage());
+        }
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public LatencyHistogram getHashLatency() {
+        return hashLatency;
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "Haszowanie haseł: koszt=" + cost
+                + ", wątki=" + executor.getMaximumPoolSize()
+                + ", w kolejce=" + getQueueDepth()
+                + ", odrzucone=" + getRejectedCount()
+                + "\n  czas haszowania: " + hashLatency.summary(TimeUnit.MILLISECONDS)
+                + "\n  czas w kolejce: " + queueWait.summary(TimeUnit.MILLISECONDS);
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        long queuedAt = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - queuedAt);
+                try {
+                    return task.call();
+                } finally {
+                    hashLatency.record(System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.increment();
+            throw new IllegalStateException("Serwer logowania jest przeciążony, spróbuj ponownie za chwilę.", e);
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IllegalStateException("Przekroczono czas oczekiwania na weryfikację hasła.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Przerwano weryfikację hasła.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Błąd podczas haszowania hasła", e.getCause());
+        }
+    }
+
+    // Format BCrypt: $2a$10$..., gdzie 10 to współczynnik pracy.
+    static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package service;
 
 import model.User;
-import org.mindrot.jbcrypt.BCrypt;
 import repository.UserRepository;
+import security.LoginThrottle;
+import security.PasswordHasher;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -10,33 +11,52 @@ import java.util.Optional;
 @Service
 public class AuthService {
     private final UserRepository userRepository;
-    private User currentUser;
+    private final SessionStore sessionStore;
+    private final PasswordHasher passwordHasher;
+    private final LoginThrottle loginThrottle;
 
-    public AuthService(UserRepository userRepository) {
+    public AuthService(UserRepository userRepository, SessionStore sessionStore, PasswordHasher passwordHasher, LoginThrottle loginThrottle) {
         this.userRepository = userRepository;
+        this.sessionStore = sessionStore;
+        this.passwordHasher = passwordHasher;
+        this.loginThrottle = loginThrottle;
     }
 
-    public boolean login(String username, String password) {
+    /**
+     * Zwraca token sesji albo pusty wynik przy złych danych. Rzuca IllegalStateException,
+     * gdy konto jest chwilowo zablokowane lub pula haszująca jest przeciążona.
+     */
+    public Optional<String> login(String username, String password) {
+        long lockout = loginThrottle.remainingLockoutMillis(username);
+        if (lockout > 0) {
+            throw new IllegalStateException("Zbyt wiele nieudanych prób logowania. Spróbuj ponownie za "
+                    + (lockout + 999) / 1000 + " s.");
+        }
+
         Optional<User> userOpt = userRepository.findByUsername(username);
         if (userOpt.isPresent()) {
             User user = userOpt.get();
-            if (BCrypt.checkpw(password, user.getPassword())) {
-                this.currentUser = user;
-                return true;
+            if (passwordHasher.verify(password, user.getPassword())) {
+                loginThrottle.recordSuccess(username);
+                if (passwordHasher.needsRehash(user.getPassword())) {
+                    passwordHasher.rehashAsync(password, hash -> userRepository.updatePassword(user.getId(), hash));
+                }
+                return Optional.of(sessionStore.create(user));
             }
         }
-        return false;
+        loginThrottle.recordFailure(username);
+        return Optional.empty();
     }
 
-    public void logout() {
-        this.currentUser = null;
+    public void logout(String sessionToken) {
+        sessionStore.remove(sessionToken);
     }
 
-    public User getCurrentUser() {
-        return currentUser;
+    public Optional<User> getCurrentUser(String sessionToken) {
+        return sessionStore.find(sessionToken);
     }
 
-    public boolean isAdmin() {
-        return currentUser != null && "ADMIN".equals(currentUser.getRole());
+    public boolean isAdmin(String sessionToken) {
+        return sessionStore.find(sessionToken).map(user -> "ADMIN".equals(user.getRole())).orElse(false);
     }
-}
\ No newline at end of file
+}
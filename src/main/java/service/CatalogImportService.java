@@ -0,0 +1,229 @@
+package service;
+
+import model.Book;
+import model.Category;
+import model.ImportReport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.BookRepository;
+import repository.CategoryRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Service
+public class CatalogImportService {
+
+    private static final List<String> COLUMNS = List.of("title", "author", "publication_year", "isbn", "category");
+
+    private final BookRepository bookRepository;
+    private final CategoryRepository categoryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public CatalogImportService(BookRepository bookRepository, CategoryRepository categoryRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${import.chunk-size:1000}") int chunkSize) {
+        this.bookRepository = bookRepository;
+        this.categoryRepository = categoryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Importuje plik CSV (lub TSV dla rozszerzenia .tsv) z nagłówkiem title,author,publication_year,isbn,category.
+     * Pole w cudzysłowie może zawierać znaki nowej linii; wiersz oznacza wtedy cały rekord, a nie linię pliku.
+     * Każda paczka jest zatwierdzana osobno; po błędzie raport wskazuje wiersz, od którego można wznowić import.
+     */
+    public ImportReport importFile(Path file, long resumeFromRow) {
+        char delimiter = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".tsv") ? '\t' : ',';
+        Map<String, Integer> categoryIds = loadCategoryIds();
+        long started = System.nanoTime();
+        long row = 0;
+        long committedRow = resumeFromRow;
+        long imported = 0;
+        long rejected = 0;
+        List<Book> chunk = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int[] columns = mapHeader(reader.readLine(), delimiter);
+            String line;
+            while ((line = readRecord(reader, row + 1)) != null) {
+                if (line.isBlank() || row++ < resumeFromRow) {
+                    continue;
+                }
+                Book book = parseBook(line, delimiter, columns, categoryIds);
+                if (book == null) {
+                    rejected++;
+                } else {
+                    chunk.add(book);
+                }
+                if (chunk.size() >= chunkSize) {
+                    imported += commitChunk(chunk);
+                    committedRow = row;
+                    printProgress(imported, started);
+                }
+            }
+            imported += commitChunk(chunk);
+            committedRow = row;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("[Import] Błąd: " + e.getMessage() + ". Import można wznowić od wiersza " + committedRow + ".");
+            return report(imported, rejected, committedRow, started, e.getMessage());
+        }
+
+        ImportReport report = report(imported, rejected, committedRow, started, null);
+        System.out.printf("[Import] Zakończono: %d książek, %d odrzuconych wierszy, %.0f wierszy/s%n",
+                report.getImportedRows(), report.getRejectedRows(), report.getRowsPerSecond());
+        return report;
+    }
+
+    private int commitChunk(List<Book> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        Integer inserted = transactionTemplate.execute(status -> bookRepository.addBooks(chunk));
+        chunk.clear();
+        return inserted != null ? inserted : 0;
+    }
+
+    private Map<String, Integer> loadCategoryIds() {
+        Map<String, Integer> ids = new HashMap<>();
+        for (Category category : categoryRepository.getAllCategories()) {
+            ids.put(category.getName().toLowerCase(Locale.ROOT), category.getId());
+        }
+        return ids;
+    }
+
+    private int resolveCategory(String name, Map<String, Integer> categoryIds) {
+        String key = name.toLowerCase(Locale.ROOT);
+        Integer id = categoryIds.get(key);
+        if (id == null) {
+            categoryRepository.addCategory(name);
+            id = categoryRepository.findByName(name).map(Category::getId)
+                    .orElseThrow(() -> new IllegalStateException("Nie udało się utworzyć kategorii " + name));
+            categoryIds.put(key, id);
+        }
+        return id;
+    }
+
+    private int[] mapHeader(String header, char delimiter) {
+        if (header == null) {
+            throw new IllegalArgumentException("Plik importu jest pusty");
+        }
+        List<String> names = split(header.replace("\uFEFF", ""), delimiter);
+        int[] columns = new int[COLUMNS.size()];
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            columns[i] = names.indexOf(COLUMNS.get(i));
+        }
+        if (columns[0] < 0 || columns[1] < 0) {
+            throw new IllegalArgumentException("Nagłówek musi zawierać kolumny title i author");
+        }
+        return columns;
+    }
+
+    private Book parseBook(String line, char delimiter, int[] columns, Map<String, Integer> categoryIds) {
+        List<String> fields = split(line, delimiter);
+        String title = field(fields, columns[0]);
+        String author = field(fields, columns[1]);
+        if (title.isEmpty() || author.isEmpty()) {
+            return null;
+        }
+        int year;
+        try {
+            String yearText = field(fields, columns[2]);
+            year = yearText.isEmpty() ? 0 : Integer.parseInt(yearText);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        String isbn = field(fields, columns[3]);
+        String category = field(fields, columns[4]);
+        return Book.builder()
+                .title(title).author(author).publicationYear(year)
+                .isbn(isbn.isEmpty() ? null : isbn)
+                .categoryId(category.isEmpty() ? 0 : resolveCategory(category, categoryIds))
+                .status("AVAILABLE").build();
+    }
+
+    /**
+     * Czyta jeden rekord: dopóki cudzysłów pozostaje otwarty, dokleja kolejne linie razem ze znakiem nowej linii.
+     */
+    static String readRecord(BufferedReader reader, long rowNumber) throws IOException {
+        String line = reader.readLine();
+        if (line == null || quoteCount(line) % 2 == 0) {
+            return line;
+        }
+        StringBuilder record = new StringBuilder(line);
+        long quotes = quoteCount(line);
+        while (quotes % 2 != 0) {
+            String next = reader.readLine();
+            if (next == null) {
+                throw new IllegalArgumentException("Niezamknięty cudzysłów w wierszu " + rowNumber);
+            }
+            record.append('\n').append(next);
+            quotes += quoteCount(next);
+        }
+        return record.toString();
+    }
+
+    private static long quoteCount(String line) {
+        return line.chars().filter(c -> c == '"').count();
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index).trim() : "";
+    }
+
+    static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private void printProgress(long imported, long started) {
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("[Import] %d książek (%.0f wierszy/s)%n", imported, seconds > 0 ? imported / seconds : imported);
+    }
+
+    private ImportReport report(long imported, long rejected, long resumeFromRow, long started, String failure) {
+        return ImportReport.builder()
+                .importedRows(imported)
+                .rejectedRows(rejected)
+                .resumeFromRow(resumeFromRow)
+                .elapsedMillis((System.nanoTime() - started) / 1_000_000)
+                .failed(failure != null)
+                .failureMessage(failure)
+                .build();
+    }
+}
@@ -1,15 +1,24 @@
 package service;
 
+import journal.LoanEventJournal;
+import journal.LoanEventType;
 import model.Book;
-import model.Reservation;
+import model.BookReturn;
+import model.CirculationOutcome;
 import repository.BookRepository;
 import repository.LoanRepository;
 import repository.ReservationRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class LibraryService {
@@ -17,41 +26,100 @@ public class LibraryService {
     private final LoanRepository loanRepository;
     private final BookRepository bookRepository;
     private final ReservationRepository reservationRepository;
+    private final LoanEventJournal journal;
 
-    public LibraryService(LoanRepository loanRepository, BookRepository bookRepository, ReservationRepository reservationRepository) {
+    public LibraryService(LoanRepository loanRepository, BookRepository bookRepository, ReservationRepository reservationRepository,
+                          LoanEventJournal journal) {
         this.loanRepository = loanRepository;
         this.bookRepository = bookRepository;
         this.reservationRepository = reservationRepository;
+        this.journal = journal;
     }
 
+    /**
+     * Wypożycza książkę; przy odmowie wynik zawiera jej powód do pokazania użytkownikowi.
+     */
     @Transactional
-    public boolean rentBook(int userId, int bookId) {
-        Optional<Book> bookOpt = bookRepository.findById(bookId);
+    public CirculationOutcome rentBook(int userId, int bookId) {
+        if (!bookRepository.markLoaned(bookId, userId)) {
+            return CirculationOutcome.failed(bookId, userId, rentFailureReason(bookRepository.findById(bookId), userId));
+        }
 
-        if (bookOpt.isEmpty()) {
-            System.out.println("Książka o podanym ID nie istnieje.");
-            return false;
+        loanRepository.createLoan(userId, bookId);
+        journal.record(LoanEventType.LOANED, userId, bookId);
+        if (reservationRepository.deleteReservationForUser(bookId, userId)) {
+            journal.record(LoanEventType.RESERVATION_CLEARED, userId, bookId);
         }
+        return CirculationOutcome.ok(bookId, userId);
+    }
 
-        Book book = bookOpt.get();
-        if ("LOANED".equals(book.getStatus())) {
-            System.out.println("Książka jest już wypożyczona. Możesz ją zarezerwować.");
-            return false;
+    /**
+     * Wypożycza stos książek w jednej transakcji: jeden odczyt wszystkich książek, a zmiany
+     * statusów, wypożyczenia i usunięcia rezerwacji idą wsadowo. Książki, których nie można
+     * wypożyczyć, nie blokują pozostałych; wynik zawiera osobny status dla każdej pozycji.
+     */
+    @Transactional
+    public List<CirculationOutcome> rentBooks(int userId, List<Integer> bookIds) {
+        Map<Integer, Book> books = new HashMap<>();
+        for (Book book : bookRepository.findByIds(bookIds)) {
+            books.put(book.getId(), book);
         }
 
-        if ("RESERVED".equals(book.getStatus()) && !Objects.equals(book.getReservedForUserId(), userId)) {
-            System.out.println("Książka jest zarezerwowana dla innego użytkownika.");
-            return false;
+        CirculationOutcome[] outcomes = new CirculationOutcome[bookIds.size()];
+        List<Integer> candidates = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < bookIds.size(); i++) {
+            int bookId = bookIds.get(i);
+            Book book = books.get(bookId);
+            if (!seen.add(bookId)) {
+                outcomes[i] = CirculationOutcome.failed(bookId, userId, "Książka została zeskanowana więcej niż raz.");
+            } else if (book != null && isRentable(book, userId)) {
+                candidates.add(bookId);
+                positions.add(i);
+            } else {
+                outcomes[i] = CirculationOutcome.failed(bookId, userId, rentFailureReason(Optional.ofNullable(book), userId));
+            }
         }
 
-        loanRepository.createLoan(userId, bookId);
-        bookRepository.updateBookStatus(bookId, "LOANED", null);
-        reservationRepository.findReservationsByBookId(bookId).stream()
-                .filter(r -> r.getUserId() == userId)
-                .findFirst()
-                .ifPresent(r -> reservationRepository.deleteReservation(r.getId()));
+        // Warunek w UPDATE nadal chroni przed równoległym wypożyczeniem tej samej książki.
+        boolean[] marked = bookRepository.markLoaned(candidates, userId);
+        List<Integer> loaned = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            int bookId = candidates.get(i);
+            if (marked[i]) {
+                loaned.add(bookId);
+                outcomes[positions.get(i)] = CirculationOutcome.ok(bookId, userId);
+            } else {
+                outcomes[positions.get(i)] = CirculationOutcome.failed(bookId, userId, "Książka jest już wypożyczona. Możesz ją zarezerwować.");
+            }
+        }
 
-        return true;
+        loanRepository.createLoans(userId, loaned);
+        // Status odczytany przed zapisem mógł się zmienić, więc zdarzenia bierzemy z faktycznie usuniętych rezerwacji.
+        Set<Integer> cleared = new HashSet<>(reservationRepository.deleteReservationsForUser(loaned, userId));
+        for (int bookId : loaned) {
+            journal.record(LoanEventType.LOANED, userId, bookId);
+            if (cleared.contains(bookId)) {
+                journal.record(LoanEventType.RESERVATION_CLEARED, userId, bookId);
+            }
+        }
+        return List.of(outcomes);
+    }
+
+    /**
+     * Rezerwować można tylko książkę, która jest aktualnie wypożyczona.
+     */
+    @Transactional
+    public CirculationOutcome reserveBook(int userId, int bookId) {
+        Optional<String> rejection = reservationRejection(bookId);
+        if (rejection.isPresent()) {
+            return CirculationOutcome.failed(bookId, userId, rejection.get());
+        }
+
+        reservationRepository.addReservation(userId, bookId);
+        journal.record(LoanEventType.RESERVED, userId, bookId);
+        return CirculationOutcome.ok(bookId, userId);
     }
 
     @Transactional
@@ -61,12 +129,58 @@ public class LibraryService {
             return false;
         }
 
-        Optional<Reservation> nextReservation = reservationRepository.findNextReservationForBook(bookId);
-        if (nextReservation.isPresent()) {
-            bookRepository.updateBookStatus(bookId, "RESERVED", nextReservation.get().getUserId());
+        bookRepository.releaseBook(bookId);
+        journal.record(LoanEventType.RETURNED, userId, bookId);
+        return true;
+    }
+
+    /**
+     * Przyjmuje stos zwrotów w jednej transakcji. Wypożyczenia są zamykane wsadowo, a kolejki
+     * rezerwacji wszystkich zwróconych książek rozstrzyga jedno zapytanie.
+     */
+    @Transactional
+    public List<CirculationOutcome> returnBooks(List<BookReturn> returns) {
+        boolean[] closed = loanRepository.returnLoans(returns);
+        List<CirculationOutcome> outcomes = new ArrayList<>(returns.size());
+        List<Integer> released = new ArrayList<>();
+        for (int i = 0; i < returns.size(); i++) {
+            BookReturn item = returns.get(i);
+            if (closed[i]) {
+                released.add(item.bookId());
+                journal.record(LoanEventType.RETURNED, item.userId(), item.bookId());
+                outcomes.add(CirculationOutcome.ok(item.bookId(), item.userId()));
+            } else {
+                outcomes.add(CirculationOutcome.failed(item.bookId(), item.userId(), "Nie masz wypożyczonej tej książki."));
+            }
+        }
+
+        bookRepository.releaseBooks(released);
+        return outcomes;
+    }
+
+    private static String rentFailureReason(Optional<Book> bookOpt, int userId) {
+        if (bookOpt.isEmpty()) {
+            return "Książka o podanym ID nie istnieje.";
+        } else if ("RESERVED".equals(bookOpt.get().getStatus()) && !Objects.equals(bookOpt.get().getReservedForUserId(), userId)) {
+            return "Książka jest zarezerwowana dla innego użytkownika.";
         } else {
-            bookRepository.updateBookStatus(bookId, "AVAILABLE", null);
+            return "Książka jest już wypożyczona. Możesz ją zarezerwować.";
         }
-        return true;
     }
-}
\ No newline at end of file
+
+    private Optional<String> reservationRejection(int bookId) {
+        Optional<Book> bookOpt = bookRepository.findById(bookId);
+        if (bookOpt.isEmpty()) {
+            return Optional.of("Książka o podanym ID nie istnieje.");
+        }
+        if (!"LOANED".equals(bookOpt.get().getStatus())) {
+            return Optional.of("Można rezerwować tylko wypożyczone książki.");
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isRentable(Book book, int userId) {
+        return "AVAILABLE".equals(book.getStatus())
+                || ("RESERVED".equals(book.getStatus()) && Objects.equals(book.getReservedForUserId(), userId));
+    }
+}
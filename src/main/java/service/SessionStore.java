@@ -0,0 +1,131 @@
+package service;
+
+import model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sesje zalogowanych użytkowników. Sesja wygasa po okresie bezczynności, a liczba sesji
+ * jest ograniczona: przy pełnym magazynie usuwane są wygasłe sesje, a potem najdłużej nieużywane,
+ * od razu cała paczka (dziesiąta część limitu), więc przegląd wszystkich sesji przypada
+ * najwyżej raz na tyle logowań, a nie przy każdym.
+ */
+@Component
+public class SessionStore {
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long idleTimeoutNanos;
+    private final int maxSessions;
+
+    public SessionStore(@Value("${auth.session.idle-timeout-ms:1800000}") long idleTimeoutMillis,
+                        @Value("${auth.session.max-sessions:10000}") int maxSessions) {
+        this.idleTimeoutNanos = idleTimeoutMillis * 1_000_000L;
+        this.maxSessions = maxSessions;
+    }
+
+    public String create(User user) {
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Session session = new Session(Principal.of(user), System.nanoTime());
+        // Tylko tu przybywa sesji, więc sprawdzenie limitu razem z dodaniem pod monitorem daje twardy limit.
+        synchronized (this) {
+            if (sessions.size() >= maxSessions) {
+                makeRoom();
+            }
+            sessions.put(token, session);
+        }
+        return token;
+    }
+
+    public Optional<User> find(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return Optional.empty();
+        }
+        long now = System.nanoTime();
+        if (now - session.lastAccess > idleTimeoutNanos) {
+            sessions.remove(token, session);
+            return Optional.empty();
+        }
+        session.lastAccess = now;
+        // Każdy wywołujący dostaje własną kopię, więc zmiana obiektu nie zmienia tożsamości sesji.
+        return Optional.of(session.principal.toUser());
+    }
+
+    public void remove(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public int purgeExpired() {
+        long now = System.nanoTime();
+        int removed = 0;
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().lastAccess > idleTimeoutNanos) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    // Wywoływana pod monitorem create. Zwalnia miejsce na całą paczkę kolejnych sesji.
+    private void makeRoom() {
+        int target = maxSessions - Math.max(1, maxSessions / 10);
+        purgeExpired();
+        int excess = sessions.size() - target;
+        if (excess <= 0) {
+            return;
+        }
+        // Kopiec o rozmiarze paczki z najdłużej nieużywanymi sesjami, na szczycie najświeższa z nich.
+        PriorityQueue<Map.Entry<String, Session>> oldest = new PriorityQueue<>(excess + 1,
+                (a, b) -> Long.compare(b.getValue().lastAccess - a.getValue().lastAccess, 0));
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            oldest.offer(Map.entry(entry.getKey(), entry.getValue()));
+            if (oldest.size() > excess) {
+                oldest.poll();
+            }
+        }
+        oldest.forEach(entry -> sessions.remove(entry.getKey(), entry.getValue()));
+    }
+
+    // Niezmienny obraz użytkownika z chwili logowania, bez hasła.
+    private record Principal(int id, String username, String firstName, String lastName, String email, String role) {
+
+        static Principal of(User user) {
+            return new Principal(user.getId(), user.getUsername(), user.getFirstName(), user.getLastName(), user.getEmail(), user.getRole());
+        }
+
+        User toUser() {
+            return new User(id, username, null, firstName, lastName, email, role);
+        }
+    }
+
+    private static final class Session {
+        private final Principal principal;
+        private volatile long lastAccess;
+
+        private Session(Principal principal, long lastAccess) {
+            this.principal = principal;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
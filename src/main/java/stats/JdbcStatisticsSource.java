@@ -0,0 +1,135 @@
+package stats;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@Profile("!inmemory")
+@DependsOn("dataSourceInitializer")
+public class JdbcStatisticsSource implements StatisticsSource {
+
+    private final DataSource dataSource;
+
+    public JdbcStatisticsSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // Połączenie jest pobierane przed wstrzymaniem zatwierdzeń: czekające transakcje mogą trzymać całą pulę.
+    @Override
+    public Snapshot openSnapshot() {
+        try {
+            Connection conn = dataSource.getConnection();
+            try {
+                // W H2 transakcja SERIALIZABLE czyta wszystkie tabele z migawki ustalonej przy pierwszym zapytaniu.
+                conn.setAutoCommit(false);
+                conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+                return new JdbcSnapshot(conn);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas otwierania odczytu statystyk", e);
+        }
+    }
+
+    private record JdbcSnapshot(Connection conn) implements Snapshot {
+
+        @Override
+        public void begin() {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM books WHERE is_deleted = FALSE")) {
+                rs.next();
+            } catch (SQLException e) {
+                throw new RuntimeException("Błąd podczas otwierania odczytu statystyk", e);
+            }
+        }
+
+        @Override
+        public void readCounters(LocalDate recentFrom, CounterSink sink) {
+            try {
+                JdbcStatisticsSource.readCounters(conn, recentFrom, sink);
+            } catch (SQLException e) {
+                throw new RuntimeException("Błąd podczas uzgadniania statystyk z bazą danych", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try (conn) {
+                conn.rollback();
+            } catch (SQLException e) {
+                throw new RuntimeException("Błąd podczas zamykania odczytu statystyk", e);
+            }
+        }
+    }
+
+    private static void readCounters(Connection conn, LocalDate recentFrom, CounterSink sink) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM books WHERE is_deleted = FALSE")) {
+                rs.next();
+                sink.totalBooks(rs.getLong(1));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT id FROM books WHERE status = 'LOANED' AND is_deleted = FALSE")) {
+                while (rs.next()) {
+                    sink.loanedBook(rs.getInt(1));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT user_id, COUNT(*) FROM loans WHERE return_date IS NULL GROUP BY user_id")) {
+                while (rs.next()) {
+                    sink.activeLoans(rs.getInt(1), rs.getInt(2));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT book_id, COUNT(*) FROM loans GROUP BY book_id")) {
+                while (rs.next()) {
+                    sink.loansOfBook(rs.getInt(1), rs.getLong(2));
+                }
+            }
+            readRecentLoans(conn, recentFrom, sink);
+        }
+    }
+
+    @Override
+    public Map<Integer, String> findTitles(Collection<Integer> bookIds) {
+        Map<Integer, String> titles = new HashMap<>();
+        String sql = "SELECT id, title FROM books WHERE id = ANY(?)";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("INTEGER", bookIds.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    titles.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Błąd podczas pobierania tytułów książek", e);
+        }
+        return titles;
+    }
+
+    private static void readRecentLoans(Connection conn, LocalDate recentFrom, CounterSink sink) throws SQLException {
+        String sql = "SELECT CAST(loan_date AS DATE), book_id, COUNT(*) FROM loans " +
+                     "WHERE loan_date >= ? GROUP BY CAST(loan_date AS DATE), book_id";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(recentFrom.atStartOfDay()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sink.dailyLoans(rs.getDate(1).toLocalDate(), rs.getInt(2), rs.getLong(3));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package stats;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import transaction.TransactionHooks;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Statystyki biblioteki utrzymywane w pamięci. Repozytoria zgłaszają zmiany po
+ * zatwierdzeniu transakcji, więc odczyt nie wymaga agregacji po tabelach. Stan jest
+ * uzgadniany ze źródłem danych przy starcie i cyklicznie (stats.reconcile-interval-seconds),
+ * co usuwa ewentualne rozjazdy po zapisach wykonanych poza aplikacją. Zatwierdzenia
+ * zmieniające liczniki są wstrzymywane tylko na chwilę ustalenia migawki źródła; zmiany
+ * zatwierdzone po niej są zapamiętywane i nanoszone na nowe liczniki przy podmianie.
+ * Zapis poza transakcją jest zatwierdzony, zanim dotrze tutaj, więc nie wiadomo, czy
+ * widzi go migawka; gdy taki zapis trafi na odczyt źródła, uzgadnianie jest powtarzane.
+ * Wypożyczenia z ostatnich dni trafiają do dziennych szkiców Space-Saving,
+ * z których składane są rankingi dla okien czasowych (np. 7 lub 30 dni).
+ */
+@Component
+public class LibraryStatistics {
+
+    private static final int RECONCILE_ATTEMPTS = 3;
+
+    private final StatisticsSource source;
+    private final long reconcileIntervalSeconds;
+    private final int topKCapacity;
+    private final int retentionDays;
+    // Zmiany trzymają blokadę współdzieloną od beforeCommit do naniesienia, ustalenie migawki i podmiana wyłączną.
+    private final ReadWriteLock commitGate = new ReentrantReadWriteLock();
+    private volatile Counters counters;
+    // Zmiany zatwierdzone od ustalenia migawki trwającego uzgadniania, null poza nim.
+    private volatile Replay replay;
+    private volatile LocalDateTime lastReconciledAt;
+    private ScheduledExecutorService scheduler;
+
+    public LibraryStatistics(StatisticsSource source,
+                             @Value("${stats.reconcile-interval-seconds:300}") long reconcileIntervalSeconds,
+                             @Value("${stats.topk.capacity:256}") int topKCapacity,
+                             @Value("${stats.topk.retention-days:31}") int retentionDays) {
+        this.source = source;
+        this.reconcileIntervalSeconds = reconcileIntervalSeconds;
+        this.topKCapacity = topKCapacity;
+        this.retentionDays = retentionDays;
+        this.counters = new Counters(topKCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        reconcile();
+        if (reconcileIntervalSeconds > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stats-reconcile");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::reconcileQuietly, reconcileIntervalSeconds, reconcileIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Przelicza liczniki na podstawie źródła danych i podmienia je w całości.
+     */
+    public synchronized void reconcile() {
+        for (int attempt = 1; ; attempt++) {
+            Counters fresh = new Counters(topKCapacity);
+            Replay pending = new Replay();
+            try (StatisticsSource.Snapshot snapshot = source.openSnapshot()) {
+                commitGate.writeLock().lock();
+                try {
+                    snapshot.begin();
+                    replay = pending;
+                } finally {
+                    commitGate.writeLock().unlock();
+                }
+                snapshot.readCounters(LocalDate.now().minusDays(retentionDays - 1), fresh);
+            } catch (RuntimeException e) {
+                replay = null;
+                throw e;
+            }
+            commitGate.writeLock().lock();
+            try {
+                replay = null;
+                if (!pending.untracked || attempt == RECONCILE_ATTEMPTS) {
+                    pending.deltas.forEach(delta -> delta.accept(fresh));
+                    counters = fresh;
+                    break;
+                }
+            } finally {
+                commitGate.writeLock().unlock();
+            }
+        }
+        lastReconciledAt = LocalDateTime.now();
+    }
+
+    public void bookAdded(int count) {
+        afterCommit(current -> current.totalBooks.addAndGet(count));
+    }
+
+    public void bookDeleted(int bookId) {
+        afterCommit(current -> {
+            current.totalBooks.decrementAndGet();
+            current.loanedBooks.remove(bookId);
+        });
+    }
+
+    public void bookStatusChanged(int bookId, String status) {
+        afterCommit(current -> {
+            if ("LOANED".equals(status)) {
+                current.loanedBooks.add(bookId);
+            } else {
+                current.loanedBooks.remove(bookId);
+            }
+        });
+    }
+
+    public void loanCreated(int userId, int bookId) {
+        afterCommit(current -> {
+            current.activeLoansByUser.merge(userId, 1, Integer::sum);
+            current.loansByBook.computeIfAbsent(bookId, id -> new LongAdder()).increment();
+            long today = LocalDate.now().toEpochDay();
+            current.loansByDay.computeIfAbsent(today, day -> new SpaceSavingSketch(topKCapacity)).add(bookId, 1);
+            current.loansByDay.keySet().removeIf(day -> day <= today - retentionDays);
+        });
+    }
+
+    public void loanReturned(int userId) {
+        // Wpis znika razem z ostatnim aktywnym wypożyczeniem, więc rozmiar mapy to liczba aktywnych użytkowników.
+        afterCommit(current -> current.activeLoansByUser.computeIfPresent(userId,
+                (id, active) -> active > 1 ? active - 1 : null));
+    }
+
+    public long getTotalBooks() {
+        return counters.totalBooks.get();
+    }
+
+    public long getLoanedBooks() {
+        return counters.loanedBooks.size();
+    }
+
+    public long getActiveUsers() {
+        return counters.activeLoansByUser.size();
+    }
+
+    public LocalDateTime getLastReconciledAt() {
+        return lastReconciledAt;
+    }
+
+    /**
+     * Zwraca tytuły najczęściej wypożyczanych książek. Koszt zależy od liczby
+     * wypożyczanych tytułów, a nie od długości historii wypożyczeń.
+     */
+    public List<Map.Entry<String, Long>> getMostLoanedBooks(int limit) {
+        Map<Integer, Long> totals = new HashMap<>();
+        counters.loansByBook.forEach((bookId, count) -> totals.put(bookId, count.sum()));
+        return withTitles(topEntries(totals, limit));
+    }
+
+    /**
+     * Ranking wypożyczeń z ostatnich {@code days} dni (łącznie z dzisiejszym), złożony
+     * z dziennych szkiców. Wartości są górnym oszacowaniem (dzień, którego szkic nie śledzi
+     * książki, liczy się jego najmniejszym licznikiem); dokładny wynik daje
+     * {@code LoanRepository.getMostLoanedBooksSince}.
+     */
+    public List<Map.Entry<String, Long>> getMostLoanedBooks(int limit, int days) {
+        if (days > retentionDays) {
+            throw new IllegalArgumentException("Okno " + days + " dni przekracza przechowywane " + retentionDays + " dni");
+        }
+        long today = LocalDate.now().toEpochDay();
+        List<SpaceSavingSketch> window = new ArrayList<>();
+        counters.loansByDay.forEach((day, sketch) -> {
+            if (day > today - days) {
+                window.add(sketch);
+            }
+        });
+        return withTitles(topEntries(SpaceSavingSketch.merge(window), limit));
+    }
+
+    // Kopiec minimalny o rozmiarze limit zamiast sortowania wszystkich wpisów.
+    private static List<Map.Entry<Integer, Long>> topEntries(Map<Integer, Long> totals, int limit) {
+        Comparator<Map.Entry<Integer, Long>> ranking = Map.Entry.<Integer, Long>comparingByValue()
+                .thenComparing(Map.Entry.<Integer, Long>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Integer, Long>> heap = new PriorityQueue<>(ranking);
+        for (Map.Entry<Integer, Long> entry : totals.entrySet()) {
+            heap.offer(entry);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        List<Map.Entry<Integer, Long>> top = new ArrayList<>(heap);
+        top.sort(ranking.reversed());
+        return top;
+    }
+
+    private List<Map.Entry<String, Long>> withTitles(List<Map.Entry<Integer, Long>> top) {
+        if (top.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, String> titles = source.findTitles(top.stream().map(Map.Entry::getKey).toList());
+        List<Map.Entry<String, Long>> result = new ArrayList<>(top.size());
+        for (Map.Entry<Integer, Long> entry : top) {
+            result.add(new AbstractMap.SimpleEntry<>(titles.getOrDefault(entry.getKey(), "#" + entry.getKey()), entry.getValue()));
+        }
+        return result;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            System.err.println("[System] Nie udało się uzgodnić statystyk: " + e.getMessage());
+        }
+    }
+
+    // Liczniki zmieniamy dopiero po zatwierdzeniu, żeby wycofana transakcja ich nie przesunęła.
+    private void afterCommit(Consumer<Counters> delta) {
+        boolean tracked = TransactionHooks.inTransaction();
+        TransactionHooks.afterCommit(commitGate.readLock(), () -> {
+            delta.accept(counters);
+            Replay pending = replay;
+            if (pending == null) {
+                return;
+            }
+            if (tracked) {
+                pending.deltas.add(delta);
+            } else {
+                pending.untracked = true;
+            }
+        });
+    }
+
+    private static final class Replay {
+        private final Queue<Consumer<Counters>> deltas = new ConcurrentLinkedQueue<>();
+        private volatile boolean untracked;
+    }
+
+    private static final class Counters implements StatisticsSource.CounterSink {
+        private final AtomicLong totalBooks = new AtomicLong();
+        private final Set<Integer> loanedBooks = ConcurrentHashMap.newKeySet();
+        private final Map<Integer, Integer> activeLoansByUser = new ConcurrentHashMap<>();
+        private final Map<Integer, LongAdder> loansByBook = new ConcurrentHashMap<>();
+        private final Map<Long, SpaceSavingSketch> loansByDay = new ConcurrentHashMap<>();
+        private final int topKCapacity;
+
+        private Counters(int topKCapacity) {
+            this.topKCapacity = topKCapacity;
+        }
+
+        @Override
+        public void totalBooks(long count) {
+            totalBooks.set(count);
+        }
+
+        @Override
+        public void loanedBook(int bookId) {
+            loanedBooks.add(bookId);
+        }
+
+        @Override
+        public void activeLoans(int userId, int count) {
+            activeLoansByUser.put(userId, count);
+        }
+
+        @Override
+        public void loansOfBook(int bookId, long count) {
+            loansByBook.computeIfAbsent(bookId, id -> new LongAdder()).add(count);
+        }
+
+        @Override
+        public void dailyLoans(LocalDate day, int bookId, long count) {
+            loansByDay.computeIfAbsent(day.toEpochDay(), d -> new SpaceSavingSketch(topKCapacity)).add(bookId, count);
+        }
+    }
+}
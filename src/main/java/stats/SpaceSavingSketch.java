@@ -0,0 +1,140 @@
+package stats;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Szkic Space-Saving: śledzi co najwyżej {@code capacity} elementów. Gdy brakuje
+ * miejsca, nowy element zastępuje ten o najmniejszym liczniku i dziedziczy jego
+ * wartość jako błąd. Oszacowanie nigdy nie jest zaniżone, a zawyżenie jest
+ * ograniczone przez sumę zdarzeń / capacity. Liczniki tworzą kopiec minimalny
+ * z indeksem pozycji, więc dodanie kosztuje O(log capacity).
+ */
+final class SpaceSavingSketch {
+
+    private final int capacity;
+    private final int[] items;
+    private final long[] counts;
+    private final long[] errors;
+    private final Map<Integer, Integer> positions;
+    private int size;
+
+    SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+        this.items = new int[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new HashMap<>(capacity * 2);
+    }
+
+    synchronized void add(int item, long amount) {
+        Integer position = positions.get(item);
+        if (position != null) {
+            counts[position] += amount;
+            siftDown(position);
+            return;
+        }
+        if (size < capacity) {
+            items[size] = item;
+            counts[size] = amount;
+            errors[size] = 0;
+            positions.put(item, size);
+            siftUp(size++);
+            return;
+        }
+        positions.remove(items[0]);
+        items[0] = item;
+        errors[0] = counts[0];
+        counts[0] += amount;
+        positions.put(item, 0);
+        siftDown(0);
+    }
+
+    synchronized long estimate(int item) {
+        Integer position = positions.get(item);
+        return position != null ? counts[position] : 0;
+    }
+
+    synchronized long error(int item) {
+        Integer position = positions.get(item);
+        return position != null ? errors[position] : 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    // Górna granica liczby zdarzeń elementu, którego szkic nie śledzi; dopóki jest miejsce, nic nie wypadło.
+    synchronized long untrackedBound() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+    /**
+     * Sumuje szkice tak, że wynik pozostaje górnym oszacowaniem: szkic, który nie śledzi
+     * elementu, dokłada do jego sumy swoją {@link #untrackedBound()}.
+     */
+    static Map<Integer, Long> merge(Collection<SpaceSavingSketch> sketches) {
+        Map<Integer, Long> totals = new HashMap<>();
+        long untracked = 0;
+        for (SpaceSavingSketch sketch : sketches) {
+            untracked += sketch.mergeExcessInto(totals);
+        }
+        long base = untracked;
+        totals.replaceAll((item, excess) -> base + excess);
+        return totals;
+    }
+
+    // Dopisuje nadwyżkę liczników ponad untrackedBound i zwraca tę granicę.
+    private synchronized long mergeExcessInto(Map<Integer, Long> totals) {
+        long bound = untrackedBound();
+        for (int i = 0; i < size; i++) {
+            totals.merge(items[i], counts[i] - bound, Long::sum);
+        }
+        return bound;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int item = items[a];
+        long count = counts[a];
+        long error = errors[a];
+        items[a] = items[b];
+        counts[a] = counts[b];
+        errors[a] = errors[b];
+        items[b] = item;
+        counts[b] = count;
+        errors[b] = error;
+        positions.put(items[a], a);
+        positions.put(items[b], b);
+    }
+}
@@ -0,0 +1,48 @@
+package stats;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Źródło pełnego stanu liczników dla {@link LibraryStatistics}: baza danych albo
+ * magazyn w pamięci, zależnie od aktywnego profilu.
+ */
+public interface StatisticsSource {
+
+    /**
+     * Przygotowuje odczyt stanu, np. pobiera połączenie. Sam stan ustala dopiero {@link Snapshot#begin()}.
+     */
+    Snapshot openSnapshot();
+
+    Map<Integer, String> findTitles(Collection<Integer> bookIds);
+
+    interface Snapshot extends AutoCloseable {
+
+        /**
+         * Ustala chwilę odczytu: widoczne jest wszystko, co zatwierdzono przed powrotem z metody,
+         * i nic, co zatwierdzono później. Powinna być krótka, bo na jej czas wstrzymywane są zatwierdzenia.
+         */
+        void begin();
+
+        /**
+         * Przekazuje do {@code sink} stan z chwili {@link #begin()}; dzienne liczby wypożyczeń tylko od {@code recentFrom}.
+         */
+        void readCounters(LocalDate recentFrom, CounterSink sink);
+
+        @Override
+        void close();
+    }
+
+    interface CounterSink {
+        void totalBooks(long count);
+
+        void loanedBook(int bookId);
+
+        void activeLoans(int userId, int count);
+
+        void loansOfBook(int bookId, long count);
+
+        void dailyLoans(LocalDate day, int bookId, long count);
+    }
+}
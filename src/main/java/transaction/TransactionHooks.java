@@ -0,0 +1,92 @@
+package transaction;
+
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Rejestracja akcji na zakończenie bieżącej transakcji Springa, wspólna dla repozytoriów,
+ * statystyk i dziennika zdarzeń. Poza transakcją akcje po zatwierdzeniu wykonują się od razu.
+ */
+public final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    // Struktury w pamięci aktualizujemy dopiero po zatwierdzeniu transakcji, żeby wycofany zapis ich nie zmienił.
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Jak {@link #afterCommit(Runnable)}, ale {@code gate} jest trzymana od beforeCommit do wykonania
+     * akcji. Kto zajmie blokadę wyłączną powiązaną z {@code gate}, nie zobaczy zatwierdzenia bez akcji.
+     */
+    public static void afterCommit(Lock gate, Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            gate.lock();
+            try {
+                action.run();
+            } finally {
+                gate.unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            // Blokada musi być zajęta, zanim inne synchronizacje opublikują zmiany w beforeCommit (magazyn w pamięci).
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                gate.lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (!locked) {
+                    return;
+                }
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        action.run();
+                    }
+                } finally {
+                    gate.unlock();
+                }
+            }
+        });
+    }
+
+    // Unieważnienia cache wykonujemy po zakończeniu transakcji niezależnie od wyniku (commit lub rollback).
+    public static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    public static boolean inTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive();
+    }
+}
@@ -0,0 +1,18 @@
+package web;
+
+/**
+ * Błąd żądania HTTP z kodem odpowiedzi; komunikat trafia do pola "error".
+ */
+class ApiException extends RuntimeException {
+
+    private final int status;
+
+    ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    int getStatus() {
+        return status;
+    }
+}
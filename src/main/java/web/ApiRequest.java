@@ -0,0 +1,100 @@
+package web;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+/**
+ * Dostęp do parametrów ścieżki, zapytania i formularza (application/x-www-form-urlencoded).
+ */
+final class ApiRequest {
+
+    private static final int MAX_FORM_BYTES = 8192;
+
+    private final HttpExchange exchange;
+    private final Matcher path;
+    private Map<String, String> query;
+    private Map<String, String> form;
+
+    ApiRequest(HttpExchange exchange, Matcher path) {
+        this.exchange = exchange;
+        this.path = path;
+    }
+
+    int intPathParam(int index) {
+        return parseInt(path.group(index), "identyfikator w ścieżce");
+    }
+
+    String query(String name) {
+        if (query == null) {
+            query = parse(exchange.getRequestURI().getRawQuery());
+        }
+        String value = query.get(name);
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    int intQuery(String name, int defaultValue) {
+        String value = query(name);
+        return value == null ? defaultValue : parseInt(value, "parametr " + name);
+    }
+
+    String form(String name) {
+        if (form == null) {
+            form = parse(readBody());
+        }
+        return form.get(name);
+    }
+
+    String bearerToken() {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    private String readBody() {
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readNBytes(MAX_FORM_BYTES + 1);
+            if (bytes.length > MAX_FORM_BYTES) {
+                throw new ApiException(413, "Treść żądania jest zbyt duża");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, String> parse(String encoded) {
+        Map<String, String> params = new HashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return params;
+        }
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            try {
+                params.putIfAbsent(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, "Niepoprawne kodowanie parametrów");
+            }
+        }
+        return params;
+    }
+
+    private static int parseInt(String value, String what) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Niepoprawna liczba: " + what);
+        }
+    }
+}
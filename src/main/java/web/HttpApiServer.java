@@ -0,0 +1,200 @@
+package web;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import metrics.MethodMetrics;
+import metrics.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+
+/**
+ * Serwer HTTP/JSON oparty na wbudowanym HttpServer z JDK. Każde żądanie jest obsługiwane
+ * we własnym wątku wirtualnym, a liczba żądań w toku jest ograniczona semaforem, więc
+ * przy przeciążeniu serwer od razu odpowiada 503 zamiast kolejkować bez końca.
+ * Czas obsługi każdej trasy trafia do MetricsRegistry jako komponent HttpApi.
+ */
+@Component
+public class HttpApiServer {
+
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private final List<Route> routes;
+    private final MetricsRegistry metricsRegistry;
+    private final boolean enabled;
+    private final String host;
+    private final int port;
+    private final int backlog;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final LongAdder rejectedCount = new LongAdder();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public HttpApiServer(LibraryApi api,
+                         MetricsRegistry metricsRegistry,
+                         @Value("${http.enabled:false}") boolean enabled,
+                         @Value("${http.host:0.0.0.0}") String host,
+                         @Value("${http.port:8080}") int port,
+                         @Value("${http.backlog:1024}") int backlog,
+                         @Value("${http.max-in-flight:4096}") int maxInFlight) {
+        this.routes = api.routes();
+        this.metricsRegistry = metricsRegistry;
+        this.enabled = enabled;
+        this.host = host;
+        this.port = port;
+        this.backlog = backlog;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), backlog);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Błąd podczas uruchamiania serwera HTTP na porcie " + port, e);
+        }
+        for (Route route : routes) {
+            metricsRegistry.forMethod("HttpApi", route.metricName());
+        }
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+        System.out.println("[System] Serwer HTTP nasłuchuje na porcie " + getPort());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(1);
+            executor.close();
+            server = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    public int getPort() {
+        return server != null ? server.getAddress().getPort() : port;
+    }
+
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    private void handle(HttpExchange exchange) {
+        if (!inFlight.tryAcquire()) {
+            rejectedCount.increment();
+            respond(exchange, 503, error("Serwer jest przeciążony. Spróbuj ponownie za chwilę."));
+            return;
+        }
+        try {
+            dispatch(exchange);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private void dispatch(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        boolean pathMatched = false;
+        for (Route route : routes) {
+            Matcher matcher = route.match(path);
+            if (matcher == null) {
+                continue;
+            }
+            pathMatched = true;
+            if (route.method().equals(method)) {
+                invoke(route, new ApiRequest(exchange, matcher), exchange);
+                return;
+            }
+        }
+        if (pathMatched) {
+            respond(exchange, 405, error("Metoda " + method + " nie jest obsługiwana dla " + path));
+        } else {
+            respond(exchange, 404, error("Nieznany zasób: " + path));
+        }
+    }
+
+    private void invoke(Route route, ApiRequest request, HttpExchange exchange) {
+        MethodMetrics metrics = metricsRegistry.forMethod("HttpApi", route.metricName());
+        long start = System.nanoTime();
+        int status;
+        try {
+            JsonWriter body = route.handler().handle(request);
+            status = body == null ? 204 : 200;
+            respond(exchange, status, body);
+        } catch (ApiException e) {
+            status = e.getStatus();
+            respond(exchange, status, error(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            respond(exchange, status, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            if (hasCause(e, SQLTransientConnectionException.class)) {
+                status = 503;
+                respond(exchange, status, error("Brak wolnego połączenia z bazą danych. Spróbuj ponownie za chwilę."));
+            } else {
+                status = 500;
+                System.err.println("[HTTP] Błąd podczas obsługi " + route.metricName() + ": " + e);
+                respond(exchange, status, error("Wewnętrzny błąd serwera"));
+            }
+        }
+        metrics.record(System.nanoTime() - start, status >= 500);
+    }
+
+    private static void respond(HttpExchange exchange, int status, JsonWriter body) {
+        try (exchange) {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            byte[] bytes = body.toBytes();
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // Klient zamknął połączenie przed odebraniem odpowiedzi
+        }
+    }
+
+    private static JsonWriter error(String message) {
+        return new JsonWriter().beginObject().field("error", message).endObject();
+    }
+
+    private static boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,156 @@
+package web;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Prosty zapis JSON do bufora znakowego, bez refleksji i pośrednich map.
+ * Przecinki między elementami są wstawiane automatycznie.
+ */
+final class JsonWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder out = new StringBuilder(256);
+    // Bit na poziom zagnieżdżenia: czy w bieżącym obiekcie/tablicy był już element.
+    private long hasElements;
+    private int depth;
+    private boolean afterName;
+
+    JsonWriter beginObject() {
+        separator();
+        out.append('{');
+        push();
+        return this;
+    }
+
+    JsonWriter endObject() {
+        pop();
+        out.append('}');
+        return this;
+    }
+
+    JsonWriter beginArray() {
+        separator();
+        out.append('[');
+        push();
+        return this;
+    }
+
+    JsonWriter endArray() {
+        pop();
+        out.append(']');
+        return this;
+    }
+
+    JsonWriter name(String name) {
+        separator();
+        string(name);
+        out.append(':');
+        afterName = true;
+        return this;
+    }
+
+    JsonWriter value(String value) {
+        separator();
+        if (value == null) {
+            out.append("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    JsonWriter value(long value) {
+        separator();
+        out.append(value);
+        return this;
+    }
+
+    JsonWriter value(boolean value) {
+        separator();
+        out.append(value);
+        return this;
+    }
+
+    JsonWriter value(Integer value) {
+        return value == null ? nullValue() : value((long) value);
+    }
+
+    JsonWriter value(Object value) {
+        return value(value == null ? null : value.toString());
+    }
+
+    JsonWriter nullValue() {
+        separator();
+        out.append("null");
+        return this;
+    }
+
+    JsonWriter field(String name, String value) {
+        return name(name).value(value);
+    }
+
+    JsonWriter field(String name, long value) {
+        return name(name).value(value);
+    }
+
+    byte[] toBytes() {
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void separator() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth == 0) {
+            return;
+        }
+        long bit = 1L << (depth - 1);
+        if ((hasElements & bit) != 0) {
+            out.append(',');
+        } else {
+            hasElements |= bit;
+        }
+    }
+
+    private void push() {
+        if (depth == Long.SIZE) {
+            throw new IllegalStateException("Zbyt głębokie zagnieżdżenie JSON");
+        }
+        depth++;
+        hasElements &= ~(1L << (depth - 1));
+    }
+
+    private void pop() {
+        depth--;
+        afterName = false;
+    }
+
+    private void string(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
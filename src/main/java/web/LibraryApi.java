@@ -0,0 +1,236 @@
+package web;
+
+import model.Book;
+import model.CirculationOutcome;
+import model.Loan;
+import model.SearchCriteria;
+import model.SearchCursor;
+import model.SearchResult;
+import model.User;
+import org.springframework.stereotype.Component;
+import repository.BookRepository;
+import repository.LoanRepository;
+import repository.ReservationRepository;
+import service.AuthService;
+import service.LibraryService;
+import stats.LibraryStatistics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Trasy API dla kiosków i katalogu OPAC. Operacje na wypożyczeniach wymagają
+ * nagłówka Authorization: Bearer z tokenem zwróconym przez POST /api/login.
+ */
+@Component
+public class LibraryApi {
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+
+    private final LibraryService libraryService;
+    private final AuthService authService;
+    private final BookRepository bookRepository;
+    private final LoanRepository loanRepository;
+    private final ReservationRepository reservationRepository;
+    private final LibraryStatistics statistics;
+
+    public LibraryApi(LibraryService libraryService, AuthService authService, BookRepository bookRepository,
+                      LoanRepository loanRepository, ReservationRepository reservationRepository, LibraryStatistics statistics) {
+        this.libraryService = libraryService;
+        this.authService = authService;
+        this.bookRepository = bookRepository;
+        this.loanRepository = loanRepository;
+        this.reservationRepository = reservationRepository;
+        this.statistics = statistics;
+    }
+
+    List<Route> routes() {
+        return List.of(
+                Route.post("/api/login", this::login),
+                Route.post("/api/logout", this::logout),
+                Route.get("/api/books", this::searchBooks),
+                Route.get("/api/books/{id}", this::getBook),
+                Route.post("/api/books/{id}/loan", this::rentBook),
+                Route.post("/api/books/{id}/return", this::returnBook),
+                Route.post("/api/books/{id}/reservation", this::reserveBook),
+                Route.get("/api/me/loans", this::myLoans),
+                Route.get("/api/me/reservations", this::myReservations),
+                Route.get("/api/stats", this::stats));
+    }
+
+    private JsonWriter login(ApiRequest request) {
+        String username = request.form("username");
+        String password = request.form("password");
+        if (username == null || password == null) {
+            throw new ApiException(400, "Wymagane pola: username, password");
+        }
+        Optional<String> token;
+        try {
+            token = authService.login(username, password);
+        } catch (IllegalStateException e) {
+            throw new ApiException(429, e.getMessage());
+        }
+        return new JsonWriter().beginObject()
+                .field("token", token.orElseThrow(() -> new ApiException(401, "Niepoprawny login lub hasło.")))
+                .endObject();
+    }
+
+    private JsonWriter logout(ApiRequest request) {
+        String token = request.bearerToken();
+        if (token != null) {
+            authService.logout(token);
+        }
+        return null;
+    }
+
+    /**
+     * Wyszukiwanie z q zwraca strony (page) w kolejności trafności, a listowanie katalogu
+     * lub kategorii idzie kursorem po id; w obu przypadkach stronicowanie i total liczy repozytorium.
+     */
+    private JsonWriter searchBooks(ApiRequest request) {
+        String query = request.query("q");
+        int limit = Math.max(1, Math.min(request.intQuery("limit", DEFAULT_LIMIT), MAX_LIMIT));
+
+        SearchResult result;
+        String nextCursor = null;
+        if (query != null) {
+            result = bookRepository.searchPage(query, request.intQuery("page", 1), limit);
+        } else {
+            SearchCriteria criteria = SearchCriteria.builder()
+                    .categoryId(request.query("category") != null ? request.intQuery("category", 0) : null)
+                    .cursor(request.query("cursor"))
+                    .pageSize(limit)
+                    .build();
+            try {
+                result = bookRepository.searchPage(criteria);
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, e.getMessage());
+            }
+            if (result.books().size() == limit) {
+                nextCursor = SearchCursor.of(null, result.books().get(limit - 1)).encode();
+            }
+        }
+
+        JsonWriter json = new JsonWriter().beginObject().field("total", result.totalCount()).name("books").beginArray();
+        for (Book book : result.books()) {
+            json.beginObject()
+                    .field("id", book.getId())
+                    .field("title", book.getTitle())
+                    .field("author", book.getAuthor())
+                    .field("categoryId", book.getCategoryId())
+                    .field("status", book.getStatus())
+                    .endObject();
+        }
+        json.endArray();
+        if (nextCursor != null) {
+            json.field("nextCursor", nextCursor);
+        }
+        return json.endObject();
+    }
+
+    private JsonWriter getBook(ApiRequest request) {
+        Book book = findBook(request.intPathParam(1));
+        return new JsonWriter().beginObject()
+                .field("id", book.getId())
+                .field("title", book.getTitle())
+                .field("author", book.getAuthor())
+                .field("publicationYear", book.getPublicationYear())
+                .field("isbn", book.getIsbn())
+                .field("categoryId", book.getCategoryId())
+                .field("status", book.getStatus())
+                .name("reservedForUserId").value(book.getReservedForUserId())
+                .endObject();
+    }
+
+    private JsonWriter rentBook(ApiRequest request) {
+        User user = currentUser(request);
+        int bookId = findBook(request.intPathParam(1)).getId();
+        CirculationOutcome outcome = libraryService.rentBook(user.getId(), bookId);
+        if (!outcome.success()) {
+            throw new ApiException(409, outcome.message());
+        }
+        return bookStatus(bookId, "LOANED");
+    }
+
+    private JsonWriter returnBook(ApiRequest request) {
+        User user = currentUser(request);
+        int bookId = request.intPathParam(1);
+        if (!libraryService.returnBook(bookId, user.getId())) {
+            throw new ApiException(409, "Nie masz wypożyczonej tej książki.");
+        }
+        return bookStatus(bookId, bookRepository.findById(bookId).map(Book::getStatus).orElse(null));
+    }
+
+    private JsonWriter reserveBook(ApiRequest request) {
+        User user = currentUser(request);
+        int bookId = findBook(request.intPathParam(1)).getId();
+        CirculationOutcome outcome = libraryService.reserveBook(user.getId(), bookId);
+        if (!outcome.success()) {
+            throw new ApiException(409, outcome.message());
+        }
+        return bookStatus(bookId, "LOANED");
+    }
+
+    private JsonWriter myLoans(ApiRequest request) {
+        User user = currentUser(request);
+        JsonWriter json = new JsonWriter().beginObject().name("loans").beginArray();
+        for (Loan loan : loanRepository.getActiveLoansByUser(user.getId())) {
+            json.beginObject()
+                    .field("id", loan.getId())
+                    .field("bookId", loan.getBookId())
+                    .name("loanDate").value(loan.getLoanDate())
+                    .endObject();
+        }
+        return json.endArray().endObject();
+    }
+
+    private JsonWriter myReservations(ApiRequest request) {
+        User user = currentUser(request);
+        JsonWriter json = new JsonWriter().beginObject().name("readyForPickup").beginArray();
+        for (Book book : reservationRepository.findBooksReservedByUser(user.getId())) {
+            json.beginObject()
+                    .field("id", book.getId())
+                    .field("title", book.getTitle())
+                    .field("author", book.getAuthor())
+                    .endObject();
+        }
+        return json.endArray().endObject();
+    }
+
+    private JsonWriter stats(ApiRequest request) {
+        int limit = Math.max(1, Math.min(request.intQuery("limit", 5), MAX_LIMIT));
+        String days = request.query("days");
+        List<Map.Entry<String, Long>> top = days == null
+                ? statistics.getMostLoanedBooks(limit)
+                : statistics.getMostLoanedBooks(limit, request.intQuery("days", 0));
+
+        JsonWriter json = new JsonWriter().beginObject()
+                .field("totalBooks", statistics.getTotalBooks())
+                .field("loanedBooks", statistics.getLoanedBooks())
+                .field("activeUsers", statistics.getActiveUsers())
+                .name("reconciledAt").value(statistics.getLastReconciledAt())
+                .name("mostLoaned").beginArray();
+        for (Map.Entry<String, Long> entry : top) {
+            json.beginObject().field("title", entry.getKey()).field("loans", entry.getValue()).endObject();
+        }
+        return json.endArray().endObject();
+    }
+
+    private User currentUser(ApiRequest request) {
+        String token = request.bearerToken();
+        if (token == null) {
+            throw new ApiException(401, "Wymagane logowanie");
+        }
+        return authService.getCurrentUser(token).orElseThrow(() -> new ApiException(401, "Sesja wygasła. Zaloguj się ponownie."));
+    }
+
+    private Book findBook(int bookId) {
+        return bookRepository.findById(bookId).orElseThrow(() -> new ApiException(404, "Książka o podanym ID nie istnieje."));
+    }
+
+    private static JsonWriter bookStatus(int bookId, String status) {
+        return new JsonWriter().beginObject().field("bookId", bookId).field("status", status).endObject();
+    }
+}
@@ -0,0 +1,42 @@
+package web;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Trasa API. Szablon ścieżki (np. /api/books/{id}) jest jednocześnie nazwą metryki.
+ */
+record Route(String method, String template, Pattern pattern, Handler handler) {
+
+    private static final Pattern PARAMETER = Pattern.compile("\\{[^/]+}");
+
+    @FunctionalInterface
+    interface Handler {
+        /**
+         * Zwraca treść odpowiedzi 200 albo null dla 204 No Content.
+         */
+        JsonWriter handle(ApiRequest request);
+    }
+
+    static Route get(String template, Handler handler) {
+        return of("GET", template, handler);
+    }
+
+    static Route post(String template, Handler handler) {
+        return of("POST", template, handler);
+    }
+
+    private static Route of(String method, String template, Handler handler) {
+        Pattern pattern = Pattern.compile(PARAMETER.matcher(template).replaceAll("([^/]+)"));
+        return new Route(method, template, pattern, handler);
+    }
+
+    Matcher match(String path) {
+        Matcher matcher = pattern.matcher(path);
+        return matcher.matches() ? matcher : null;
+    }
+
+    String metricName() {
+        return method + " " + template;
+    }
+}
@@ -0,0 +1,12 @@
+-- H2 nie obsługuje indeksów częściowych, więc kolumny filtrów są ostatnimi kolumnami indeksów złożonych.
+
+CREATE INDEX IF NOT EXISTS idx_loans_book_user_return ON loans (book_id, user_id, return_date);
+CREATE INDEX IF NOT EXISTS idx_loans_user_return ON loans (user_id, return_date);
+CREATE INDEX IF NOT EXISTS idx_loans_return_user ON loans (return_date, user_id);
+
+CREATE INDEX IF NOT EXISTS idx_reservations_book_date ON reservations (book_id, reservation_date, id);
+CREATE INDEX IF NOT EXISTS idx_reservations_user_book ON reservations (user_id, book_id);
+
+CREATE INDEX IF NOT EXISTS idx_books_status_deleted ON books (status, is_deleted);
+CREATE INDEX IF NOT EXISTS idx_books_category_deleted ON books (category_id, is_deleted);
+CREATE INDEX IF NOT EXISTS idx_books_reserved_for_status ON books (reserved_for_user_id, status);
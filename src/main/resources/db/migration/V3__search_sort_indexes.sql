@@ -0,0 +1,5 @@
+-- Indeksy pod stronicowanie kursorowe: WHERE (kolumna, id) > (?, ?) ORDER BY kolumna, id.
+
+CREATE INDEX IF NOT EXISTS idx_books_title_id ON books (title, id);
+CREATE INDEX IF NOT EXISTS idx_books_author_id ON books (author, id);
+CREATE INDEX IF NOT EXISTS idx_books_year_id ON books (publication_year, id);
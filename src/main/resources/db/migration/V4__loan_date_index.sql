@@ -0,0 +1,3 @@
+-- Indeks pod odczyty wypożyczeń z ostatnich dni (okna statystyk TOP-K).
+
+CREATE INDEX IF NOT EXISTS idx_loans_loan_date_book ON loans (loan_date, book_id);
@@ -0,0 +1,3 @@
+-- Wersja wiersza książki, zwiększana przy każdej zmianie; indeks bitmapowy pomija starsze zmiany.
+
+ALTER TABLE books ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
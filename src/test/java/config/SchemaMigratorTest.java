@@ -0,0 +1,98 @@
+package config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import repository.BookRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigratorTest {
+
+    private AnnotationConfigApplicationContext context;
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        context = TestContexts.inMemory();
+        dataSource = context.getBean(DataSource.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void migrate_shouldApplyEachScriptOnlyOnceAndKeepData() throws SQLException {
+        int booksBefore = context.getBean(BookRepository.class).countAllBooks();
+        int versionsBefore = countRows("SELECT COUNT(*) FROM schema_version");
+
+        try (Connection conn = dataSource.getConnection()) {
+            new SchemaMigrator("classpath:db/migration").populate(conn);
+        }
+
+        assertTrue(versionsBefore >= 2);
+        assertEquals(versionsBefore, countRows("SELECT COUNT(*) FROM schema_version"));
+        assertEquals(booksBefore, context.getBean(BookRepository.class).countAllBooks());
+    }
+
+    @Test
+    void hotQueries_shouldUseIndexes() throws SQLException {
+        assertUsesIndex("SELECT * FROM loans WHERE book_id = ? AND user_id = ? AND return_date IS NULL");
+        assertUsesIndex("UPDATE loans SET return_date = ? WHERE book_id = ? AND user_id = ? AND return_date IS NULL");
+        assertUsesIndex("SELECT * FROM loans WHERE user_id = ? AND return_date IS NULL");
+        assertUsesIndex("SELECT COUNT(DISTINCT user_id) FROM loans WHERE return_date IS NULL");
+        assertUsesIndex("SELECT * FROM reservations WHERE book_id = ? ORDER BY reservation_date ASC LIMIT 1");
+        assertUsesIndex("SELECT COUNT(*) FROM books WHERE status = ? AND is_deleted = FALSE");
+        assertUsesIndex("SELECT * FROM books WHERE category_id = ? AND is_deleted = FALSE");
+        assertUsesIndex("SELECT * FROM books WHERE status = 'RESERVED' AND reserved_for_user_id = ?");
+        assertUsesIndex("SELECT * FROM users WHERE username = ?");
+    }
+
+    @Test
+    void migrate_shouldCreateAccessPathIndexes() throws SQLException {
+        for (String index : new String[]{"IDX_LOANS_BOOK_USER_RETURN", "IDX_LOANS_USER_RETURN", "IDX_LOANS_RETURN_USER",
+                "IDX_RESERVATIONS_BOOK_DATE", "IDX_RESERVATIONS_USER_BOOK", "IDX_BOOKS_STATUS_DELETED",
+                "IDX_BOOKS_CATEGORY_DELETED", "IDX_BOOKS_RESERVED_FOR_STATUS"}) {
+            assertEquals(1, countRows("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = '" + index + "'"), index);
+        }
+    }
+
+    private void assertUsesIndex(String sql) throws SQLException {
+        String plan = explain(sql);
+        assertFalse(plan.contains("tableScan"), plan);
+        assertTrue(plan.matches("(?s).*/\\* PUBLIC\\.\\w+: .*"), plan);
+    }
+
+    private String explain(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            int params = stmt.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= params; i++) {
+                stmt.setObject(i, i);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getString(1);
+            }
+        }
+    }
+
+    private int countRows(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
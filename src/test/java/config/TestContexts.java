@@ -0,0 +1,54 @@
+package config;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+public final class TestContexts {
+
+    private TestContexts() {
+    }
+
+    public static AnnotationConfigApplicationContext inMemory() {
+        return withUrl("jdbc:h2:mem:test-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    public static AnnotationConfigApplicationContext withUrl(String url) {
+        System.setProperty("db.url", url);
+        try {
+            return new AnnotationConfigApplicationContext(AppConfig.class);
+        } finally {
+            System.clearProperty("db.url");
+        }
+    }
+
+    // Repozytoria z magazynu w pamięci (profil inmemory); migawki tylko przy zamknięciu kontekstu.
+    public static AnnotationConfigApplicationContext inMemoryStore(Path dataDir) {
+        return inMemoryStore("jdbc:h2:mem:test-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", dataDir);
+    }
+
+    public static AnnotationConfigApplicationContext withJournal(Path journalDir) {
+        System.setProperty("journal.enabled", "true");
+        System.setProperty("journal.dir", journalDir.toString());
+        try {
+            return inMemory();
+        } finally {
+            System.clearProperty("journal.enabled");
+            System.clearProperty("journal.dir");
+        }
+    }
+
+    public static AnnotationConfigApplicationContext inMemoryStore(String url, Path dataDir) {
+        System.setProperty("spring.profiles.active", "inmemory");
+        System.setProperty("inmemory.data-dir", dataDir.toString());
+        System.setProperty("inmemory.snapshot-interval-seconds", "0");
+        try {
+            return withUrl(url);
+        } finally {
+            System.clearProperty("spring.profiles.active");
+            System.clearProperty("inmemory.data-dir");
+            System.clearProperty("inmemory.snapshot-interval-seconds");
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package journal;
+
+import config.TestContexts;
+import model.Book;
+import model.Loan;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.BookRepository;
+import repository.LoanRepository;
+import repository.UserRepository;
+import service.LibraryService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoanEventJournalTest {
+
+    @TempDir
+    Path journalDir;
+
+    private final List<LoanEventJournal> opened = new ArrayList<>();
+    private AnnotationConfigApplicationContext context;
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(LoanEventJournal::close);
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void replay_shouldReturnEventsInOrder_acrossSegments() {
+        // Given
+        LoanEventJournal journal = open(4);
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(i, journal.append(i % 2 == 0 ? LoanEventType.RETURNED : LoanEventType.LOANED, 100 + i, 200 + i));
+        }
+
+        // When
+        List<String> all = events(journal, 1);
+        List<String> fromMiddle = events(journal, 6);
+
+        // Then
+        assertEquals(10, all.size());
+        assertEquals("1 LOANED 101 201", all.getFirst());
+        assertEquals("10 RETURNED 110 210", all.getLast());
+        assertEquals(all.subList(5, 10), fromMiddle);
+        assertEquals(3, JournalSegment.files(journalDir).size());
+        assertTrue(events(journal, 11).isEmpty());
+    }
+
+    @Test
+    void reopen_shouldContinueAfterLastValidRecord_andDropTornTail() throws IOException {
+        // Given
+        LoanEventJournal journal = open(4);
+        for (int i = 1; i <= 6; i++) {
+            journal.append(LoanEventType.LOANED, i, i);
+        }
+        journal.close();
+        Path last = JournalSegment.files(journalDir).getLast();
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            // Uszkodzony identyfikator książki w rekordzie 6 (drugim w segmencie).
+            channel.write(ByteBuffer.wrap(new byte[]{0x7F}), JournalSegment.RECORD_SIZE + 20);
+        }
+
+        // When
+        LoanEventJournal reopened = open(4);
+        long next = reopened.append(LoanEventType.RETURNED, 7, 7);
+
+        // Then
+        assertEquals(6, next);
+        assertEquals(List.of("5 LOANED 5 5", "6 RETURNED 7 7"), events(reopened, 5));
+    }
+
+    @Test
+    void tailer_shouldDeliverOnlyNewEvents() {
+        // Given
+        LoanEventJournal journal = open(8);
+        journal.append(LoanEventType.LOANED, 1, 10);
+        JournalTailer tailer = journal.tail(journal.getLastSequence() + 1);
+        List<Long> seen = new ArrayList<>();
+        LoanEventHandler handler = (sequence, timestamp, type, userId, bookId) -> seen.add(sequence);
+
+        // When
+        int idle = tailer.poll(handler, 100);
+        for (int i = 0; i < 5; i++) {
+            journal.append(LoanEventType.RESERVED, 2, 10);
+        }
+        int firstBatch = tailer.poll(handler, 3);
+        int secondBatch = tailer.poll(handler, 100);
+
+        // Then
+        assertEquals(0, idle);
+        assertEquals(3, firstBatch);
+        assertEquals(2, secondBatch);
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L), seen);
+        assertEquals(7, tailer.getNextSequence());
+    }
+
+    @Test
+    void libraryService_shouldJournalOnlyCommittedCirculation() {
+        // Given
+        context = TestContexts.withJournal(journalDir);
+        LibraryService libraryService = context.getBean(LibraryService.class);
+        LoanEventJournal journal = context.getBean(LoanEventJournal.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        int user = userRepository.findByUsername("user").orElseThrow().getId();
+        int other = userRepository.findByUsername("user2").orElseThrow().getId();
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        bookRepository.addBook(Book.builder().title("Dziennik zdarzeń").author("Autor").publicationYear(2021).categoryId(1).build());
+        int bookId = bookRepository.searchBooks("Dziennik zdarzeń").getFirst().getId();
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        // When
+        assertTrue(libraryService.rentBook(user, bookId).success());
+        assertFalse(libraryService.rentBook(other, bookId).success());
+        assertTrue(libraryService.reserveBook(other, bookId).success());
+        assertTrue(libraryService.returnBook(bookId, user));
+        assertThrows(IllegalStateException.class, () -> transaction.executeWithoutResult(status -> {
+            assertTrue(libraryService.rentBook(other, bookId).success());
+            throw new IllegalStateException("Przerwana transakcja");
+        }));
+        assertTrue(libraryService.rentBook(other, bookId).success());
+
+        // Then
+        assertEquals(List.of("LOANED " + user, "RESERVED " + other, "RETURNED " + user,
+                "LOANED " + other, "RESERVATION_CLEARED " + other), eventsOf(journal, bookId));
+        LoanStateProjection projection = new LoanStateProjection();
+        journal.replay(1, projection);
+        Map<Integer, Integer> activeLoans = context.getBean(LoanRepository.class).getActiveLoansByUser(other).stream()
+                .collect(Collectors.toMap(Loan::getBookId, Loan::getUserId));
+        assertEquals(activeLoans.get(bookId), projection.getActiveLoans().get(bookId));
+        assertEquals(2, projection.getLoanCount(bookId));
+        assertTrue(projection.getReservationQueue(bookId).isEmpty());
+        assertEquals(journal.getLastSequence(), projection.getLastSequence());
+    }
+
+    private LoanEventJournal open(int segmentRecords) {
+        LoanEventJournal journal = new LoanEventJournal(true, journalDir.toString(), segmentRecords, false);
+        journal.open();
+        opened.add(journal);
+        return journal;
+    }
+
+    private static List<String> events(LoanEventJournal journal, long fromSequence) {
+        List<String> events = new ArrayList<>();
+        journal.replay(fromSequence, (sequence, timestamp, type, userId, bookId) ->
+                events.add(sequence + " " + type + " " + userId + " " + bookId));
+        return events;
+    }
+
+    private static List<String> eventsOf(LoanEventJournal journal, int book) {
+        List<String> events = new ArrayList<>();
+        journal.replay(1, (sequence, timestamp, type, userId, bookId) -> {
+            if (bookId == book) {
+                events.add(type + " " + userId);
+            }
+        });
+        return events;
+    }
+}
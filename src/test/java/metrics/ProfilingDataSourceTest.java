@@ -0,0 +1,98 @@
+package metrics;
+
+import config.TestContexts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import repository.BookRepositoryImpl;
+import repository.UserRepository;
+import service.LibraryService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfilingDataSourceTest {
+
+    private AnnotationConfigApplicationContext context;
+    private SqlProfiler profiler;
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty("db.profiler.enabled", "true");
+        System.setProperty("db.profiler.slow-threshold-ms", "0");
+        try {
+            context = TestContexts.inMemory();
+        } finally {
+            System.clearProperty("db.profiler.enabled");
+            System.clearProperty("db.profiler.slow-threshold-ms");
+        }
+        profiler = context.getBean(SqlProfiler.class);
+        profiler.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void normalize_shouldStripLiteralsAndCollapseInLists() {
+        assertEquals("SELECT * FROM books WHERE status = ? AND id IN (?) LIMIT ?",
+                SqlProfiler.normalize("SELECT *  FROM books\n WHERE status = 'LOANED' AND id IN (?, ?, ?) LIMIT 10"));
+        assertEquals("SELECT title FROM books b2 WHERE id = ?", SqlProfiler.normalize("SELECT title FROM books b2 WHERE id = 42"));
+    }
+
+    @Test
+    void statements_shouldBeAggregatedWithRows_andSlowOnesLoggedWithPlan() {
+        // Given
+        BookRepositoryImpl bookRepo = context.getBean(BookRepositoryImpl.class);
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream originalErr = System.err;
+        System.setErr(new PrintStream(err, true, StandardCharsets.UTF_8));
+
+        // When
+        try {
+            bookRepo.findById(1);
+            bookRepo.findById(2);
+        } finally {
+            System.setErr(originalErr);
+        }
+
+        // Then
+        SqlProfiler.StatementStats stats = profiler.snapshot().stream()
+                .filter(s -> s.getSql().startsWith("SELECT id, title, author") && s.getSql().contains("FROM books WHERE id = ?"))
+                .findFirst().orElseThrow();
+        assertEquals(2, stats.getCount());
+        assertEquals(2, stats.getRows());
+        String log = err.toString(StandardCharsets.UTF_8);
+        assertTrue(log.contains("[SQL] Wolne zapytanie"));
+        assertTrue(log.contains("parametry: [2]"));
+        assertTrue(log.contains("plan: SELECT"));
+    }
+
+    @Test
+    void transactions_shouldStillUseOneConnection_whenProfiling() {
+        // Given
+        LibraryService libraryService = context.getBean(LibraryService.class);
+        PoolMetrics poolMetrics = context.getBean(PoolMetrics.class);
+        int userId = context.getBean(UserRepository.class).findByUsername("user").orElseThrow().getId();
+        long before = poolMetrics.getBorrowCount();
+
+        // When
+        PrintStream originalErr = System.err;
+        System.setErr(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            assertTrue(libraryService.rentBook(userId, 2).success());
+        } finally {
+            System.setErr(originalErr);
+        }
+
+        // Then
+        assertEquals(1, poolMetrics.getBorrowCount() - before);
+        assertTrue(profiler.snapshot().stream().anyMatch(s -> s.getSql().startsWith("INSERT INTO loans")));
+    }
+}
@@ -0,0 +1,107 @@
+package metrics;
+
+import config.TestContexts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import repository.BookRepository;
+import repository.UserRepository;
+import service.LibraryService;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingBeanPostProcessorTest {
+
+    private AnnotationConfigApplicationContext context;
+    private MetricsRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        context = TestContexts.inMemory();
+        registry = context.getBean(MetricsRegistry.class);
+        registry.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void libraryService_shouldBeTimedAndStillTransactional() {
+        // Given
+        LibraryService libraryService = context.getBean(LibraryService.class);
+        PoolMetrics poolMetrics = context.getBean(PoolMetrics.class);
+        int userId = context.getBean(UserRepository.class).findByUsername("user").orElseThrow().getId();
+        long borrowsBefore = poolMetrics.getBorrowCount();
+
+        // When
+        assertTrue(libraryService.rentBook(userId, 2).success());
+
+        // Then
+        assertEquals(1, poolMetrics.getBorrowCount() - borrowsBefore);
+        assertEquals(1, registry.forMethod("LibraryService", "rentBook(int,int)").getCount());
+        assertEquals(1, registry.forMethod("CachingBookRepository", "markLoaned(int,int)").getCount());
+        assertEquals(1, registry.forMethod("BookRepositoryImpl", "markLoaned(int,int)").getCount());
+        assertEquals(1, registry.forMethod("LoanRepositoryImpl", "createLoan(int,int)").getCount());
+    }
+
+    @Test
+    void failures_shouldBeCountedAsErrors() {
+        // Given
+        UserRepository userRepo = context.getBean(UserRepository.class);
+
+        // When
+        assertThrows(RuntimeException.class, () -> userRepo.addUser(null));
+
+        // Then
+        MethodMetrics metrics = registry.forMethod("UserRepositoryImpl", "addUser(User)");
+        assertEquals(1, metrics.getCount());
+        assertEquals(1, metrics.getErrors());
+    }
+
+    @Test
+    void metrics_shouldBePublishedAsMBeans() throws Exception {
+        // Given
+        BookRepository bookRepo = context.getBean(BookRepository.class);
+        assertTrue(AopUtils.isAopProxy(bookRepo));
+
+        // When
+        bookRepo.findById(1);
+        bookRepo.findById(1);
+
+        // Then
+        ObjectName name = new ObjectName("library:type=MethodMetrics,component=CachingBookRepository,method=" + ObjectName.quote("findById(int)"));
+        assertEquals(2L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Count"));
+    }
+
+    @Test
+    void closingOlderRegistry_shouldKeepMBeansOfNewerOne() throws Exception {
+        // Given
+        MetricsRegistry older = new MetricsRegistry();
+        MetricsRegistry newer = new MetricsRegistry();
+        older.forMethod("RegistryTest", "shared()");
+        older.forMethod("RegistryTest", "onlyOlder()");
+        newer.forMethod("RegistryTest", "shared()").record(1_000, false);
+        ObjectName shared = new ObjectName("library:type=MethodMetrics,component=RegistryTest,method=" + ObjectName.quote("shared()"));
+        ObjectName onlyOlder = new ObjectName("library:type=MethodMetrics,component=RegistryTest,method=" + ObjectName.quote("onlyOlder()"));
+
+        try {
+            // When
+            older.close();
+
+            // Then
+            assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(shared));
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(shared, "Count"));
+            assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(onlyOlder));
+        } finally {
+            newer.close();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(shared));
+    }
+}
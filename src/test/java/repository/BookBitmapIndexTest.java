@@ -0,0 +1,106 @@
+package repository;
+
+import model.SearchCriteria;
+import model.SearchCursor;
+import model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookBitmapIndexTest {
+
+    private BookBitmapIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookBitmapIndex(null);
+        index.add(1, 1, 1954, "AVAILABLE");
+        index.add(2, 1, 1937, "LOANED");
+        index.add(3, 2, 1945, "AVAILABLE");
+        index.add(4, 3, 1965, "RESERVED");
+        index.add(5, 2, 1949, "AVAILABLE");
+        index.add(6, null, 1937, "AVAILABLE");
+    }
+
+    @Test
+    void count_shouldCombineCategoryYearRangeAndStatusFilters() {
+        assertEquals(6, index.count(SearchCriteria.builder().build()));
+        assertEquals(4, index.count(SearchCriteria.builder().categoryIds(List.of(1, 2)).build()));
+        assertEquals(3, index.count(SearchCriteria.builder().yearFrom(1940).yearTo(1960).build()));
+        assertEquals(3, index.count(SearchCriteria.builder().categoryIds(List.of(1, 2)).yearFrom(1940).statuses(List.of("AVAILABLE")).build()));
+        assertEquals(2, index.count(SearchCriteria.builder().statuses(List.of("LOANED", "RESERVED")).build()));
+        assertEquals(0, index.count(SearchCriteria.builder().yearFrom(1960).yearTo(1950).build()));
+        assertEquals(0, index.count(SearchCriteria.builder().categoryId(1).categoryIds(List.of(2)).build()));
+    }
+
+    @Test
+    void writes_shouldKeepBitmapsCurrent() {
+        // When
+        index.apply(2, 1, 1937, "AVAILABLE", false, 1);
+        index.apply(3, 2, 1945, "AVAILABLE", true, 1);
+        index.add(5, 3, 2001, "LOANED");
+        index.refresh(6, id -> Book.builder().id(id).publicationYear(1937).status("AVAILABLE").build());
+
+        // Then
+        assertEquals(List.of(1, 2, 6), index.matchingIds(SearchCriteria.builder().statuses(List.of("AVAILABLE")).build()));
+        assertEquals(List.of(4, 5), index.matchingIds(SearchCriteria.builder().categoryIds(List.of(3)).build()));
+        assertEquals(List.of(5), index.matchingIds(SearchCriteria.builder().yearFrom(2000).build()));
+        assertEquals(5, index.count(SearchCriteria.builder().build()));
+    }
+
+    @Test
+    void apply_shouldSkipOlderVersion_whenCommitsArriveOutOfOrder() {
+        // Given: dwie zatwierdzone zmiany książki 1, wywołania po zatwierdzeniu w odwrotnej kolejności
+        index.apply(1, 1, 1954, "LOANED", false, 2);
+        index.apply(7, 2, 1990, "LOANED", true, 3);
+
+        // When
+        index.apply(1, 1, 1954, "AVAILABLE", false, 1);
+        index.apply(7, 2, 1990, "AVAILABLE", false, 0);
+
+        // Then
+        assertEquals(List.of(1, 2), index.matchingIds(SearchCriteria.builder().statuses(List.of("LOANED")).build()));
+        assertEquals(List.of(3, 5), index.matchingIds(SearchCriteria.builder().categoryId(2).build()));
+        assertEquals(6, index.count(SearchCriteria.builder().build()));
+    }
+
+    @Test
+    void refresh_shouldTakeCurrentStateFromSource() {
+        // When
+        index.refresh(2, id -> Book.builder().id(id).categoryId(3).publicationYear(1937).status("AVAILABLE").build());
+        index.refresh(4, id -> null);
+
+        // Then
+        assertEquals(List.of(2), index.matchingIds(SearchCriteria.builder().categoryId(3).build()));
+        assertEquals(List.of(1, 2, 3, 5, 6), index.matchingIds(SearchCriteria.builder().statuses(List.of("AVAILABLE")).build()));
+        assertEquals(5, index.count(SearchCriteria.builder().build()));
+    }
+
+    @Test
+    void page_shouldOrderByYearThenIdAndFollowCursors() {
+        // Given
+        SearchCriteria.SearchCriteriaBuilder builder = SearchCriteria.builder().sortBy("publication_year").sortOrder("ASC").pageSize(2);
+
+        // When
+        List<Integer> first = index.page(builder.page(1).build());
+        List<Integer> second = index.page(builder.page(2).build());
+        List<Integer> afterSecond = index.page(builder.cursor(cursor(second.getLast(), 1949)).build());
+        List<Integer> beforeSecond = index.page(builder.cursor(cursor(second.getFirst(), 1945)).backward(true).build());
+        List<Integer> byIdDescending = index.page(SearchCriteria.builder().sortOrder("DESC").pageSize(4).page(1).build());
+
+        // Then
+        assertEquals(List.of(2, 6), first);
+        assertEquals(List.of(3, 5), second);
+        assertEquals(List.of(1, 4), afterSecond);
+        assertEquals(first, beforeSecond);
+        assertEquals(List.of(6, 5, 4, 3), byIdDescending);
+        assertThrows(IllegalArgumentException.class, () -> index.page(builder.cursor(new SearchCursor("title", "A", 1).encode()).build()));
+    }
+
+    private static String cursor(int id, int year) {
+        return SearchCursor.of("publication_year", Book.builder().id(id).publicationYear(year).build()).encode();
+    }
+}
@@ -0,0 +1,229 @@
+package repository;
+
+import config.TestContexts;
+import model.Book;
+import model.BookSummary;
+import model.SearchCriteria;
+import model.SearchCursor;
+import model.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookRepositorySearchTest {
+
+    private static final int PAGE_SIZE = 4;
+
+    private AnnotationConfigApplicationContext context;
+    private BookRepository bookRepository;
+
+    @BeforeEach
+    void setUp() {
+        context = TestContexts.inMemory();
+        bookRepository = context.getBean(BookRepository.class);
+        for (int i = 0; i < 20; i++) {
+            bookRepository.addBook(Book.builder().title("Tom " + (char) ('A' + i % 10)).author("Autor")
+                    .publicationYear(1990 + i % 5).categoryId(1).status("AVAILABLE").build());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void cursorPages_shouldMatchOffsetPages() {
+        for (String sortBy : List.of("title", "publication_year")) {
+            for (String order : List.of("ASC", "DESC")) {
+                SearchCriteria.SearchCriteriaBuilder builder = criteria(sortBy, order);
+                int total = bookRepository.countBooks(builder.build());
+                List<Book> expected = new ArrayList<>();
+                for (int page = 1; (page - 1) * PAGE_SIZE < total; page++) {
+                    expected.addAll(bookRepository.searchBooks(builder.page(page).build()));
+                }
+
+                assertEquals(ids(expected), ids(pageForward(builder.page(0), sortBy)), sortBy + " " + order);
+            }
+        }
+    }
+
+    @Test
+    void cursorPages_shouldStayStable_whenBooksAreInsertedWhilePaging() {
+        SearchCriteria.SearchCriteriaBuilder builder = criteria("title", "ASC");
+        List<Book> first = bookRepository.searchBooks(builder.build());
+        List<Book> second = bookRepository.searchBooks(builder.cursor(cursorOf(first.get(PAGE_SIZE - 1))).build());
+
+        bookRepository.addBook(Book.builder().title("AAA Nowość").author("Autor").publicationYear(2024).categoryId(1).build());
+        List<Book> third = bookRepository.searchBooks(builder.cursor(cursorOf(second.get(PAGE_SIZE - 1))).backward(false).build());
+        List<Book> backToSecond = bookRepository.searchBooks(builder.cursor(cursorOf(third.get(0))).backward(true).build());
+
+        assertEquals(PAGE_SIZE, third.size());
+        assertTrue(ids(third).stream().noneMatch(ids(second)::contains));
+        assertEquals(ids(second), ids(backToSecond));
+    }
+
+    @Test
+    void searchPage_shouldReturnPageAndTotalInOneResult() {
+        SearchCriteria.SearchCriteriaBuilder builder = criteria("title", "ASC");
+        int total = bookRepository.countBooks(builder.build());
+
+        SearchResult firstPage = bookRepository.searchPage(builder.page(1).build());
+        SearchResult lastPage = bookRepository.searchPage(builder.page(5).build());
+        SearchResult cursorPage = bookRepository.searchPage(builder.cursor(cursorOf(firstPage.books().get(PAGE_SIZE - 1))).build());
+
+        assertEquals(20, total);
+        assertEquals(total, firstPage.totalCount());
+        assertEquals(total, lastPage.totalCount());
+        assertEquals(total, cursorPage.totalCount());
+        assertEquals(ids(bookRepository.searchBooks(builder.cursor(null).page(1).build())), ids(firstPage.books()));
+        assertEquals(ids(bookRepository.searchBooks(builder.cursor(null).page(2).build())), ids(cursorPage.books()));
+    }
+
+    @Test
+    void searchPage_shouldSeeWrites_afterCacheInvalidation() {
+        SearchCriteria criteria = criteria("title", "ASC").page(1).build();
+        SearchResult before = bookRepository.searchPage(criteria);
+        assertEquals(before, bookRepository.searchPage(criteria));
+
+        bookRepository.addBook(Book.builder().title("AAA Nowość").author("Autor").publicationYear(2024).categoryId(1).build());
+        SearchResult afterAdd = bookRepository.searchPage(criteria);
+        assertEquals(before.totalCount() + 1, afterAdd.totalCount());
+        assertEquals("AAA Nowość", afterAdd.books().get(0).getTitle());
+
+        int bookId = afterAdd.books().get(0).getId();
+        bookRepository.updateBookStatus(bookId, "LOANED", null);
+        assertEquals("LOANED", bookRepository.searchPage(criteria).books().get(0).getStatus());
+
+        bookRepository.deleteBook(bookId);
+        assertEquals(before.totalCount(), bookRepository.searchPage(criteria).totalCount());
+    }
+
+    @Test
+    void searchPage_shouldServeRepeatedPageAndTotal_fromCache() {
+        // Given: filtr tytułu nie jest rozstrzygany bitmapą, więc liczba wyników wymaga zapytania
+        SearchCriteria.SearchCriteriaBuilder builder = criteria("title", "ASC").title("Tom");
+        SearchResult first = bookRepository.searchPage(builder.page(1).build());
+        // Zapis z pominięciem repozytorium nie unieważnia cache, więc każde ponowne zapytanie by go zobaczyło.
+        new JdbcTemplate(context.getBean(DataSource.class)).update(
+                "INSERT INTO books (title, author, publication_year, category_id, status) VALUES ('Tom 0', 'Autor', 2000, 1, 'AVAILABLE')");
+
+        // When
+        SearchResult repeated = bookRepository.searchPage(builder.page(1).build());
+        SearchResult second = bookRepository.searchPage(builder.page(2).build());
+
+        // Then
+        assertEquals(ids(first.books()), ids(repeated.books()));
+        assertEquals(20, repeated.totalCount());
+        assertEquals(20, second.totalCount());
+    }
+
+    @Test
+    void searchPage_shouldKeyCacheOnFilterAsQueried() {
+        // When
+        SearchResult exact = bookRepository.searchPage(criteria("title", "ASC").title("Tom A").page(1).build());
+        SearchResult trailingSpace = bookRepository.searchPage(criteria("title", "ASC").title("Tom A ").page(1).build());
+
+        // Then
+        assertEquals(2, exact.totalCount());
+        assertEquals(0, trailingSpace.totalCount());
+        assertTrue(trailingSpace.books().isEmpty());
+    }
+
+    @Test
+    void searchPage_shouldNotCacheUncommittedRows() {
+        // Given
+        SearchCriteria criteria = criteria("title", "ASC").page(1).build();
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        // When
+        tx.executeWithoutResult(status -> {
+            bookRepository.addBook(Book.builder().title("AAA Wycofana").author("Autor").publicationYear(2024).categoryId(1).build());
+            assertEquals("AAA Wycofana", bookRepository.searchPage(criteria).books().get(0).getTitle());
+            status.setRollbackOnly();
+        });
+
+        // Then
+        SearchResult after = bookRepository.searchPage(criteria);
+        assertEquals("Tom A", after.books().get(0).getTitle());
+        assertEquals(20, after.totalCount());
+    }
+
+    @Test
+    void searchPage_shouldNotShareCachedBooksWithCallers() {
+        // Given
+        SearchCriteria criteria = criteria("title", "ASC").page(1).build();
+        SearchResult first = bookRepository.searchPage(criteria);
+
+        // When
+        first.books().get(0).setTitle("Zmienione przez wywołującego");
+        SearchResult second = bookRepository.searchPage(criteria);
+        second.books().get(1).setStatus("LOANED");
+
+        // Then
+        assertEquals("Tom A", bookRepository.searchPage(criteria).books().get(0).getTitle());
+        assertEquals("AVAILABLE", bookRepository.searchPage(criteria).books().get(1).getStatus());
+        assertThrows(UnsupportedOperationException.class, () -> first.books().clear());
+    }
+
+    @Test
+    void bookSummaries_shouldMatchFullBooks() {
+        // Given
+        int reservedId = bookRepository.searchBooks("Tom A").get(0).getId();
+        bookRepository.updateBookStatus(reservedId, "RESERVED", 1);
+
+        // When
+        List<Book> fullSearch = bookRepository.searchBooks("tom autor");
+        List<BookSummary> summarySearch = bookRepository.searchBookSummaries("tom autor");
+        List<BookSummary> byCategory = bookRepository.getBookSummariesByCategory(1);
+        List<BookSummary> streamed;
+        try (Stream<BookSummary> summaries = bookRepository.streamBookSummaries()) {
+            streamed = summaries.toList();
+        }
+
+        // Then
+        assertEquals(fullSearch.stream().map(BookRepositorySearchTest::summaryOf).toList(), summarySearch);
+        assertEquals(bookRepository.getBooksByCategory(1).stream().map(BookRepositorySearchTest::summaryOf).toList(), byCategory);
+        assertEquals(bookRepository.getAllBooks().stream().map(BookRepositorySearchTest::summaryOf).toList(), streamed);
+        assertEquals(Integer.valueOf(1), bookRepository.findById(reservedId).orElseThrow().getReservedForUserId());
+        assertNull(bookRepository.findById(reservedId + 1).orElseThrow().getReservedForUserId());
+    }
+
+    private static BookSummary summaryOf(Book book) {
+        return new BookSummary(book.getId(), book.getTitle(), book.getAuthor(), book.getCategoryId(), book.getStatus());
+    }
+
+    private List<Book> pageForward(SearchCriteria.SearchCriteriaBuilder builder, String sortBy) {
+        List<Book> all = new ArrayList<>();
+        List<Book> page = bookRepository.searchBooks(builder.cursor(null).build());
+        while (!page.isEmpty()) {
+            all.addAll(page);
+            page = bookRepository.searchBooks(builder.cursor(SearchCursor.of(sortBy, page.get(page.size() - 1)).encode()).build());
+        }
+        return all;
+    }
+
+    private SearchCriteria.SearchCriteriaBuilder criteria(String sortBy, String order) {
+        return SearchCriteria.builder().author("Autor").sortBy(sortBy).sortOrder(order).pageSize(PAGE_SIZE);
+    }
+
+    private String cursorOf(Book book) {
+        return SearchCursor.of("title", book).encode();
+    }
+
+    private List<Integer> ids(List<Book> books) {
+        return books.stream().map(Book::getId).toList();
+    }
+}
@@ -0,0 +1,57 @@
+package repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex(null);
+        index.add(1, "Władca Pierścieni", "J.R.R. Tolkien");
+        index.add(2, "Hobbit, czyli tam i z powrotem", "J.R.R. Tolkien");
+        index.add(3, "Folwark zwierzęcy", "George Orwell");
+        index.add(4, "Tolkien. Biografia", "Humphrey Carpenter");
+    }
+
+    @Test
+    void tokenize_shouldFoldPolishDiacritics() {
+        assertEquals(List.of("wladca", "pierscieni"), BookSearchIndex.tokenize("WŁADCA  Pierścieni!"));
+        assertEquals(List.of("zolc", "gesla", "zrodlo"), BookSearchIndex.tokenize("Żółć, gęśla; źródło"));
+    }
+
+    @Test
+    void search_shouldMatchWithoutDiacritics() {
+        assertEquals(List.of(1), index.search("wladca"));
+        assertEquals(List.of(3), index.search("zwierzecy"));
+    }
+
+    @Test
+    void search_shouldIntersectAllTerms() {
+        assertEquals(List.of(2), index.search("tolkien hobbit"));
+        assertEquals(List.of(), index.search("tolkien orwell"));
+    }
+
+    @Test
+    void search_shouldMatchPrefixesAndRankTitleHitsFirst() {
+        List<Integer> result = index.search("tolk");
+
+        assertEquals(3, result.size());
+        assertEquals(4, result.get(0));
+    }
+
+    @Test
+    void remove_shouldDropBookFromPostings() {
+        index.remove(1);
+
+        assertEquals(List.of(), index.search("pierscieni"));
+        assertEquals(List.of(2, 4), index.search("tolkien").stream().sorted().toList());
+        assertEquals(3, index.size());
+    }
+}
@@ -0,0 +1,107 @@
+package repository;
+
+import model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingBookRepositoryTest {
+
+    @Mock
+    private BookRepositoryImpl delegate;
+
+    private CachingBookRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new CachingBookRepository(delegate, 2, 60);
+    }
+
+    @Test
+    void findById_shouldHitDatabaseOnce_forRepeatedReads() {
+        // Given
+        when(delegate.findById(1)).thenReturn(Optional.of(book(1, "AVAILABLE")));
+
+        // When
+        repository.findById(1);
+        Optional<Book> second = repository.findById(1);
+
+        // Then
+        assertEquals("AVAILABLE", second.orElseThrow().getStatus());
+        verify(delegate, times(1)).findById(1);
+        assertEquals(1, repository.getCache().getHits());
+    }
+
+    @Test
+    void findById_shouldReturnCopies_soCallersCannotCorruptTheCache() {
+        // Given
+        when(delegate.findById(1)).thenReturn(Optional.of(book(1, "AVAILABLE")));
+
+        // When
+        repository.findById(1).orElseThrow().setStatus("LOANED");
+
+        // Then
+        assertEquals("AVAILABLE", repository.findById(1).orElseThrow().getStatus());
+    }
+
+    @Test
+    void statusWrites_shouldEvictTheBook() {
+        // Given
+        when(delegate.findById(1)).thenReturn(Optional.of(book(1, "AVAILABLE")), Optional.of(book(1, "LOANED")),
+                Optional.of(book(1, "AVAILABLE")), Optional.of(book(1, "RESERVED")));
+        when(delegate.markLoaned(1, 7)).thenReturn(true);
+
+        // When / Then
+        assertEquals("AVAILABLE", repository.findById(1).orElseThrow().getStatus());
+        repository.markLoaned(1, 7);
+        assertEquals("LOANED", repository.findById(1).orElseThrow().getStatus());
+        repository.releaseBook(1);
+        assertEquals("AVAILABLE", repository.findById(1).orElseThrow().getStatus());
+        repository.updateBookStatus(1, "RESERVED", 7);
+        assertEquals("RESERVED", repository.findById(1).orElseThrow().getStatus());
+        verify(delegate, times(4)).findById(1);
+    }
+
+    @Test
+    void deleteBook_shouldEvictTheBook() {
+        // Given
+        when(delegate.findById(1)).thenReturn(Optional.of(book(1, "AVAILABLE")), Optional.empty());
+        when(delegate.deleteBook(1)).thenReturn(true);
+
+        // When
+        repository.findById(1);
+        repository.deleteBook(1);
+
+        // Then
+        assertTrue(repository.findById(1).isEmpty());
+    }
+
+    @Test
+    void cache_shouldStayBounded() {
+        // Given
+        for (int id = 1; id <= 3; id++) {
+            when(delegate.findById(id)).thenReturn(Optional.of(book(id, "AVAILABLE")));
+        }
+
+        // When
+        repository.findById(1);
+        repository.findById(2);
+        repository.findById(3);
+
+        // Then
+        assertEquals(2, repository.getCache().size());
+        assertEquals(1, repository.getCache().getEvictions());
+    }
+
+    private Book book(int id, String status) {
+        return Book.builder().id(id).title("Książka " + id).author("Autor").status(status).build();
+    }
+}
@@ -0,0 +1,110 @@
+package repository;
+
+import model.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingCategoryRepositoryTest {
+
+    @Mock
+    private CategoryRepositoryImpl delegate;
+
+    private CachingCategoryRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        when(delegate.getAllCategories()).thenReturn(List.of(new Category(1, "Fantasy"), new Category(3, "Historia")));
+        repository = new CachingCategoryRepository(delegate);
+        repository.reload();
+    }
+
+    @Test
+    void reads_shouldBeServedFromSnapshot() {
+        // When
+        for (int i = 0; i < 100; i++) {
+            repository.getAllCategories();
+            repository.findByName("Historia");
+            repository.findById(1);
+        }
+
+        // Then
+        assertEquals(3, repository.findByName("Historia").orElseThrow().getId());
+        assertEquals("Fantasy", repository.findById(1).orElseThrow().getName());
+        assertTrue(repository.findById(2).isEmpty());
+        assertTrue(repository.findById(42).isEmpty());
+        verify(delegate, times(1)).getAllCategories();
+        verify(delegate, never()).findByName(anyString());
+    }
+
+    @Test
+    void reads_shouldReturnSharedReadOnlyValues_soCallersCannotChangeSnapshot() {
+        // When
+        Category byId = repository.findById(1).orElseThrow();
+        Category byName = repository.findByName("Fantasy").orElseThrow();
+        List<Category> all = repository.getAllCategories();
+
+        // Then
+        assertSame(byId, byName);
+        assertSame(repository.findById(1), repository.findById(1));
+        assertSame(all, repository.getAllCategories());
+        assertThrows(UnsupportedOperationException.class, () -> byId.setName("Zmieniona"));
+        assertThrows(UnsupportedOperationException.class, () -> all.get(0).setId(99));
+        assertThrows(UnsupportedOperationException.class, () -> all.remove(0));
+        assertEquals(new Category(1, "Fantasy"), byId);
+        assertEquals("Fantasy", repository.findById(1).orElseThrow().getName());
+        verify(delegate, never()).updateCategory(any());
+    }
+
+    @Test
+    void reload_shouldNotLetOlderReadOverwriteNewerSnapshot() throws Exception {
+        // Given
+        CountDownLatch slowReadStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlowRead = new CountDownLatch(1);
+        when(delegate.getAllCategories())
+                .thenAnswer(invocation -> {
+                    slowReadStarted.countDown();
+                    releaseSlowRead.await();
+                    return List.of(new Category(1, "Stara"));
+                })
+                .thenReturn(List.of(new Category(1, "Nowa")));
+        Thread older = new Thread(repository::reload);
+        older.start();
+        slowReadStarted.await();
+
+        // When
+        Thread newer = new Thread(repository::reload);
+        newer.start();
+        Thread.sleep(100);
+        releaseSlowRead.countDown();
+        older.join();
+        newer.join();
+
+        // Then
+        assertEquals("Nowa", repository.findById(1).orElseThrow().getName());
+    }
+
+    @Test
+    void writes_shouldSwapSnapshot() {
+        // Given
+        when(delegate.getAllCategories()).thenReturn(List.of(new Category(1, "Fantastyka"), new Category(3, "Historia"), new Category(4, "Poezja")));
+
+        // When
+        repository.updateCategory(new Category(1, "Fantastyka"));
+
+        // Then
+        verify(delegate).updateCategory(any());
+        assertEquals(3, repository.getAllCategories().size());
+        assertTrue(repository.findByName("Fantasy").isEmpty());
+        assertEquals(4, repository.findByName("Poezja").orElseThrow().getId());
+    }
+}
@@ -0,0 +1,87 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedBitmapTest {
+
+    @Test
+    void setOperations_shouldMatchTreeSet_forSparseAndDenseChunks() {
+        // Given
+        Random random = new Random(42);
+        TreeSet<Integer> left = new TreeSet<>();
+        TreeSet<Integer> right = new TreeSet<>();
+        CompressedBitmap a = new CompressedBitmap();
+        CompressedBitmap b = new CompressedBitmap();
+        for (int i = 0; i < 30_000; i++) {
+            // Gęsty pierwszy kubełek (kontener bitmapowy) i rzadkie kolejne (kontenery tablicowe).
+            int value = i % 3 == 0 ? random.nextInt(200_000) : random.nextInt(20_000);
+            if (random.nextBoolean()) {
+                left.add(value);
+                a.add(value);
+            } else {
+                right.add(value);
+                b.add(value);
+            }
+        }
+        for (int i = 0; i < 5_000; i++) {
+            int value = random.nextInt(20_000);
+            left.remove(value);
+            a.remove(value);
+        }
+
+        // When
+        TreeSet<Integer> and = new TreeSet<>(left);
+        and.retainAll(right);
+        TreeSet<Integer> or = new TreeSet<>(left);
+        or.addAll(right);
+        TreeSet<Integer> andNot = new TreeSet<>(left);
+        andNot.removeAll(right);
+
+        // Then
+        assertEquals(List.copyOf(left), all(a));
+        assertEquals(List.copyOf(and), all(a.and(b)));
+        assertEquals(List.copyOf(or), all(a.or(b)));
+        assertEquals(List.copyOf(andNot), all(a.andNot(b)));
+        assertEquals(or.size(), a.or(b).cardinality());
+        assertTrue(a.contains(left.first()));
+        assertFalse(a.contains(250_000));
+    }
+
+    @Test
+    void collect_shouldSkipLimitAndSeekInBothDirections() {
+        // Given
+        CompressedBitmap bitmap = new CompressedBitmap();
+        List<Integer> values = new ArrayList<>();
+        for (int value = 1; value < 150_000; value += 7) {
+            bitmap.add(value);
+            values.add(value);
+        }
+        List<Integer> descending = values.reversed();
+
+        // When / Then
+        assertEquals(values.subList(10_000, 10_005), page(bitmap, false, -1, 10_000, 5));
+        assertEquals(descending.subList(20, 23), page(bitmap, true, -1, 20, 3));
+        int cursor = values.get(9_400);
+        assertEquals(values.subList(9_401, 9_404), page(bitmap, false, cursor, 0, 3));
+        assertEquals(List.of(values.get(9_399), values.get(9_398)), page(bitmap, true, cursor, 0, 2));
+        assertEquals(List.of(values.getLast()), page(bitmap, false, values.getLast() - 1, 0, 5));
+        assertTrue(page(bitmap, false, -1, values.size(), 5).isEmpty());
+    }
+
+    private static List<Integer> page(CompressedBitmap bitmap, boolean descending, int after, long skip, int limit) {
+        List<Integer> out = new ArrayList<>();
+        bitmap.collect(descending, after, skip, limit, out);
+        return out;
+    }
+
+    private static List<Integer> all(CompressedBitmap bitmap) {
+        return page(bitmap, false, -1, 0, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,25 @@
+package repository;
+
+import config.TestContexts;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRepositoryContractTest extends RepositoryContractTest {
+
+    @Override
+    AnnotationConfigApplicationContext createContext(Path dataDir) {
+        return TestContexts.inMemoryStore(dataDir);
+    }
+
+    @Test
+    void inMemoryProfile_shouldReplaceJdbcRepositories() {
+        assertTrue(context.getBeansOfType(BookRepositoryImpl.class).isEmpty());
+        assertTrue(context.getBeansOfType(LoanRepositoryImpl.class).isEmpty());
+        assertTrue(context.getBeansOfType(ReservationRepositoryImpl.class).isEmpty());
+        assertEquals(1, context.getBeansOfType(BookRepository.class).size());
+    }
+}
@@ -0,0 +1,244 @@
+package repository;
+
+import config.TestContexts;
+import model.Book;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.LibraryService;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryStoreRecoveryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final String url = "jdbc:h2:mem:recovery-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    private AnnotationConfigApplicationContext context;
+    private int userId;
+
+    @BeforeEach
+    void setUp() {
+        context = TestContexts.inMemoryStore(url, tempDir.resolve("data"));
+        User user = context.getBean(UserRepository.class).findByUsername("user").orElseThrow();
+        userId = user.getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void restart_shouldRestoreStateFromSnapshot() {
+        // Given
+        LibraryService libraryService = context.getBean(LibraryService.class);
+        int bookId = addBook("Odzysk po restarcie");
+        assertTrue(libraryService.rentBook(userId, bookId).success());
+        int total = context.getBean(BookRepository.class).countAllBooks();
+        context.close();
+
+        // When
+        context = TestContexts.inMemoryStore(url, tempDir.resolve("data"));
+
+        // Then
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        assertEquals(total, bookRepository.countAllBooks());
+        assertEquals("LOANED", bookRepository.findById(bookId).orElseThrow().getStatus());
+        assertTrue(context.getBean(LoanRepository.class).getActiveLoansByUser(userId).stream().anyMatch(loan -> loan.getBookId() == bookId));
+        assertEquals(List.of(bookId), RepositoryContractTest.ids(bookRepository.searchBooks("odzysk restarcie")));
+    }
+
+    @Test
+    void crash_shouldReplayWriteAheadLog() throws IOException {
+        // Given
+        LibraryService libraryService = context.getBean(LibraryService.class);
+        int loaned = addBook("Odzysk z dziennika");
+        int reserved = addBook("Odzysk rezerwacji");
+        assertTrue(libraryService.rentBook(userId, loaned).success());
+        context.getBean(ReservationRepository.class).addReservation(userId, reserved);
+        assertTrue(context.getBean(BookRepository.class).deleteBook(addBook("Odzysk usuniętej")));
+
+        // When
+        Path crashImage = copyOf(tempDir.resolve("data"), tempDir.resolve("crash"));
+        context.close();
+        context = TestContexts.inMemoryStore(url, crashImage);
+
+        // Then
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        assertEquals("LOANED", bookRepository.findById(loaned).orElseThrow().getStatus());
+        assertEquals(userId, context.getBean(ReservationRepository.class).findNextReservationForBook(reserved).orElseThrow().getUserId());
+        assertTrue(bookRepository.searchBooks("usunietej").isEmpty());
+        assertTrue(addBook("Nowa po odzysku") > loaned);
+    }
+
+    @Test
+    void tornTail_shouldDropOnlyIncompleteRecord() throws IOException {
+        // Given
+        int kept = addBook("Odzysk zapisany");
+        int torn = addBook("Odzysk urwany");
+        Path crashImage = copyOf(tempDir.resolve("data"), tempDir.resolve("crash"));
+        Path log = WriteAheadLog.files(crashImage).getLast();
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        // When
+        context.close();
+        context = TestContexts.inMemoryStore(url, crashImage);
+
+        // Then
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        assertEquals("Odzysk zapisany", bookRepository.findById(kept).orElseThrow().getTitle());
+        assertTrue(bookRepository.findById(torn).isEmpty());
+        assertEquals(torn, addBook("Odzysk ponowny"));
+    }
+
+    @Test
+    void openTransaction_shouldStayInvisibleToOthers_andOutOfSnapshot() throws Exception {
+        // Given
+        int bookId = addBook("Odzysk izolacji");
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<String> seenByWriter = new AtomicReference<>();
+        Thread writer = inTransaction(status -> {
+            bookRepository.markLoaned(bookId, userId);
+            seenByWriter.set(bookRepository.findById(bookId).orElseThrow().getStatus());
+            written.countDown();
+            await(release);
+            status.setRollbackOnly();
+        });
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+
+        // When
+        String seenByOthers = bookRepository.findById(bookId).orElseThrow().getStatus();
+        context.getBean(InMemoryStore.class).snapshot();
+        Path crashImage = copyOf(tempDir.resolve("data"), tempDir.resolve("crash"));
+        release.countDown();
+        writer.join();
+        context.close();
+        context = TestContexts.inMemoryStore(url, crashImage);
+
+        // Then
+        assertEquals("LOANED", seenByWriter.get());
+        assertEquals("AVAILABLE", seenByOthers);
+        assertEquals("AVAILABLE", context.getBean(BookRepository.class).findById(bookId).orElseThrow().getStatus());
+    }
+
+    @Test
+    void concurrentWrite_shouldWaitForRowLock_andSeeCommittedState() throws Exception {
+        // Given
+        int bookId = addBook("Odzysk blokady");
+        int otherUserId = context.getBean(UserRepository.class).findByUsername("user2").orElseThrow().getId();
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = inTransaction(status -> {
+            bookRepository.markLoaned(bookId, userId);
+            written.countDown();
+            await(release);
+        });
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+
+        // When
+        AtomicBoolean otherMarked = new AtomicBoolean(true);
+        Thread other = new Thread(() -> otherMarked.set(bookRepository.markLoaned(bookId, otherUserId)));
+        other.start();
+        other.join(200);
+        boolean blocked = other.isAlive();
+        release.countDown();
+        writer.join();
+        other.join();
+
+        // Then
+        assertTrue(blocked);
+        assertFalse(otherMarked.get());
+        assertEquals("LOANED", bookRepository.findById(bookId).orElseThrow().getStatus());
+    }
+
+    @Test
+    void failedCommitAfterPublish_shouldNotReplayRolledBackInserts() throws IOException {
+        // Given
+        int bookId = addBook("Odzysk wycofania");
+        LibraryService libraryService = context.getBean(LibraryService.class);
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        // When: magazyn publikuje zmiany w beforeCommit, a zatwierdzenie w bazie zawodzi po nim
+        assertThrows(IllegalStateException.class, () -> tx.executeWithoutResult(status -> {
+            assertTrue(libraryService.rentBook(userId, bookId).success());
+            bookRepository.addBook(Book.builder().title("Odzysk widmo").author("Autor").publicationYear(2020).categoryId(1).build());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    throw new IllegalStateException("Zatwierdzenie w bazie nie powiodło się");
+                }
+            });
+        }));
+        Path crashImage = copyOf(tempDir.resolve("data"), tempDir.resolve("crash"));
+        context.close();
+        context = TestContexts.inMemoryStore(url, crashImage);
+
+        // Then
+        BookRepository restored = context.getBean(BookRepository.class);
+        assertEquals("AVAILABLE", restored.findById(bookId).orElseThrow().getStatus());
+        assertTrue(context.getBean(LoanRepository.class).getActiveLoansByUser(userId).stream().noneMatch(loan -> loan.getBookId() == bookId));
+        assertTrue(restored.searchBooks("widmo").isEmpty());
+    }
+
+    private Thread inTransaction(Consumer<TransactionStatus> work) {
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        Thread thread = new Thread(() -> tx.executeWithoutResult(work));
+        thread.start();
+        return thread;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int addBook(String title) {
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        bookRepository.addBook(Book.builder().title(title).author("Autor").publicationYear(2020).categoryId(1).build());
+        return bookRepository.searchBooks(title).getFirst().getId();
+    }
+
+    // Obraz katalogu danych z działającej aplikacji, czyli stan jak po nagłym zatrzymaniu.
+    private static Path copyOf(Path source, Path target) throws IOException {
+        Files.createDirectories(target);
+        try (Stream<Path> files = Files.list(source)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, target.resolve(file.getFileName()));
+            }
+        }
+        return target;
+    }
+}
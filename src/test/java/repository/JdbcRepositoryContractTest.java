@@ -0,0 +1,14 @@
+package repository;
+
+import config.TestContexts;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.nio.file.Path;
+
+class JdbcRepositoryContractTest extends RepositoryContractTest {
+
+    @Override
+    AnnotationConfigApplicationContext createContext(Path dataDir) {
+        return TestContexts.inMemory();
+    }
+}
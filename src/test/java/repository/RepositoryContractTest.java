@@ -0,0 +1,305 @@
+package repository;
+
+import model.Book;
+import model.BookReturn;
+import model.Loan;
+import model.SearchCriteria;
+import model.SearchCursor;
+import model.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Wspólny kontrakt repozytoriów książek, wypożyczeń i rezerwacji, uruchamiany
+ * dla implementacji JDBC i dla magazynu w pamięci.
+ */
+abstract class RepositoryContractTest {
+
+    @TempDir
+    Path dataDir;
+
+    AnnotationConfigApplicationContext context;
+    BookRepository bookRepository;
+    LoanRepository loanRepository;
+    ReservationRepository reservationRepository;
+    int categoryId;
+    int userId;
+    int otherUserId;
+
+    abstract AnnotationConfigApplicationContext createContext(Path dataDir);
+
+    @BeforeEach
+    void setUp() {
+        context = createContext(dataDir);
+        bookRepository = context.getBean(BookRepository.class);
+        loanRepository = context.getBean(LoanRepository.class);
+        reservationRepository = context.getBean(ReservationRepository.class);
+        CategoryRepository categoryRepository = context.getBean(CategoryRepository.class);
+        categoryRepository.addCategory("Kontrakt");
+        categoryId = categoryRepository.findByName("Kontrakt").orElseThrow().getId();
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        userId = userRepository.findByUsername("user").orElseThrow().getId();
+        otherUserId = userRepository.findByUsername("user2").orElseThrow().getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void books_shouldBeAddedFoundAndSoftDeleted() {
+        // Given
+        int total = bookRepository.countAllBooks();
+        int available = bookRepository.countByStatus("AVAILABLE");
+
+        // When
+        int id = addBook("Kontrakt Alfa", 2001);
+        Book found = bookRepository.findById(id).orElseThrow();
+        found.setTitle("Zmieniony poza repozytorium");
+
+        // Then
+        assertEquals("Kontrakt Alfa", bookRepository.findById(id).orElseThrow().getTitle());
+        assertEquals("AVAILABLE", found.getStatus());
+        assertEquals(total + 1, bookRepository.countAllBooks());
+        assertEquals(available + 1, bookRepository.countByStatus("AVAILABLE"));
+        assertEquals(List.of(id), ids(bookRepository.searchBooks("alfa")));
+        assertEquals(List.of(id), ids(bookRepository.findByIds(List.of(id, 999999))));
+
+        assertTrue(bookRepository.deleteBook(id));
+        assertFalse(bookRepository.deleteBook(id));
+        assertTrue(bookRepository.findById(id).isEmpty());
+        assertTrue(bookRepository.getBooksByCategory(categoryId).isEmpty());
+        assertTrue(bookRepository.searchBooks("alfa").isEmpty());
+        assertEquals(total, bookRepository.countAllBooks());
+    }
+
+    @Test
+    void markLoaned_shouldRespectAvailabilityAndReservations() {
+        // Given
+        int available = addBook("Kontrakt Beta", 2002);
+        int reserved = addBook("Kontrakt Gamma", 2003);
+        bookRepository.updateBookStatus(reserved, "RESERVED", otherUserId);
+
+        // When / Then
+        assertTrue(bookRepository.markLoaned(available, userId));
+        assertFalse(bookRepository.markLoaned(available, otherUserId));
+        assertArrayEquals(new boolean[]{false, false}, bookRepository.markLoaned(List.of(reserved, available), userId));
+        assertArrayEquals(new boolean[]{true}, bookRepository.markLoaned(List.of(reserved), otherUserId));
+        Book loaned = bookRepository.findById(reserved).orElseThrow();
+        assertEquals("LOANED", loaned.getStatus());
+        assertNull(loaned.getReservedForUserId());
+    }
+
+    @Test
+    void releaseBook_shouldHandBookToOldestReservation() {
+        // Given
+        int id = addBook("Kontrakt Delta", 2004);
+        assertTrue(bookRepository.markLoaned(id, userId));
+        reservationRepository.addReservation(otherUserId, id);
+        reservationRepository.addReservation(userId, id);
+
+        // When
+        bookRepository.releaseBook(id);
+
+        // Then
+        Book released = bookRepository.findById(id).orElseThrow();
+        assertEquals("RESERVED", released.getStatus());
+        assertEquals(otherUserId, released.getReservedForUserId());
+        assertEquals(List.of(id), ids(reservationRepository.findBooksReservedByUser(otherUserId)));
+        assertEquals(2, reservationRepository.findReservationsByBookId(id).size());
+
+        reservationRepository.deleteReservationForUser(id, otherUserId);
+        assertEquals(userId, reservationRepository.findNextReservationForBook(id).orElseThrow().getUserId());
+        assertTrue(bookRepository.markLoaned(id, otherUserId));
+        bookRepository.releaseBooks(List.of(id));
+        assertEquals(userId, bookRepository.findById(id).orElseThrow().getReservedForUserId());
+
+        assertEquals(List.of(id), reservationRepository.deleteReservationsForUser(List.of(id), userId));
+        assertEquals(List.of(), reservationRepository.deleteReservationsForUser(List.of(id), userId));
+        assertTrue(bookRepository.markLoaned(id, userId));
+        bookRepository.releaseBook(id);
+        assertEquals("AVAILABLE", bookRepository.findById(id).orElseThrow().getStatus());
+        assertTrue(reservationRepository.findNextReservationForBook(id).isEmpty());
+        assertTrue(reservationRepository.findBooksReservedByUser(otherUserId).isEmpty());
+    }
+
+    @Test
+    void loans_shouldTrackActiveLoansReturnsAndRankings() {
+        // Given
+        LocalDateTime start = LocalDateTime.now();
+        int first = addBook("Kontrakt Epsilon", 2005);
+        int second = addBook("Kontrakt Zeta", 2006);
+
+        // When
+        loanRepository.createLoan(userId, first);
+        loanRepository.createLoans(userId, List.of(second));
+        loanRepository.createLoan(otherUserId, first);
+        List<Integer> activeBefore = activeBookIds(userId);
+        boolean returned = loanRepository.returnLoan(first, userId);
+        boolean returnedAgain = loanRepository.returnLoan(first, userId);
+        boolean[] batch = loanRepository.returnLoans(List.of(new BookReturn(second, userId), new BookReturn(first, userId)));
+
+        // Then
+        assertEquals(List.of(first, second), activeBefore);
+        assertTrue(returned);
+        assertFalse(returnedAgain);
+        assertArrayEquals(new boolean[]{true, false}, batch);
+        assertTrue(activeBookIds(userId).isEmpty());
+        assertEquals(List.of(first), activeBookIds(otherUserId));
+        Loan closed = loanRepository.getAllLoans().stream()
+                .filter(loan -> loan.getBookId() == second).findFirst().orElseThrow();
+        assertNotNull(closed.getReturnDate());
+
+        List<Map.Entry<String, Long>> recent = loanRepository.getMostLoanedBooksSince(start, 2);
+        assertEquals(Map.entry("Kontrakt Epsilon", 2L), Map.entry(recent.get(0).getKey(), recent.get(0).getValue()));
+        assertEquals(Map.entry("Kontrakt Zeta", 1L), Map.entry(recent.get(1).getKey(), recent.get(1).getValue()));
+    }
+
+    @Test
+    void searchPage_shouldFilterSortAndPageByCursor() {
+        // Given
+        for (String letter : List.of("A", "B", "C", "D", "E")) {
+            addBook("Kontrakt " + letter, letter.compareTo("C") < 0 ? 1999 : 2020);
+        }
+        SearchCriteria.SearchCriteriaBuilder builder = SearchCriteria.builder()
+                .categoryId(categoryId).sortBy("title").sortOrder("DESC").pageSize(2);
+
+        // When
+        SearchResult firstPage = bookRepository.searchPage(builder.page(1).build());
+        List<Book> secondPage = bookRepository.searchBooks(builder.cursor(cursorOf(firstPage.books().get(1))).build());
+        List<Book> backToFirst = bookRepository.searchBooks(builder.cursor(cursorOf(secondPage.get(0))).backward(true).build());
+
+        // Then
+        assertEquals(5, firstPage.totalCount());
+        assertEquals(List.of("Kontrakt E", "Kontrakt D"), titles(firstPage.books()));
+        assertEquals(List.of("Kontrakt C", "Kontrakt B"), titles(secondPage));
+        assertEquals(titles(firstPage.books()), titles(backToFirst));
+        assertEquals(1, bookRepository.countBooks(SearchCriteria.builder().categoryId(categoryId).title("KONTRAKT c").build()));
+        assertEquals(List.of("Kontrakt A", "Kontrakt B"), titles(bookRepository.searchBooks(SearchCriteria.builder()
+                .categoryId(categoryId).year(1999).sortBy("title").build())));
+        assertThrows(IllegalArgumentException.class,
+                () -> bookRepository.searchBooks(SearchCriteria.builder().sortBy("isbn").build()));
+    }
+
+    @Test
+    void bitmapFilters_shouldCombineCategoriesYearRangeAndStatus() {
+        // Given
+        CategoryRepository categoryRepository = context.getBean(CategoryRepository.class);
+        categoryRepository.addCategory("Kontrakt bis");
+        int otherCategory = categoryRepository.findByName("Kontrakt bis").orElseThrow().getId();
+        int old = addBook("Kontrakt Stary", 1950);
+        int loaned = addBook("Kontrakt Wypożyczony", 1980);
+        int reserved = addBook("Kontrakt Zarezerwowany", 1990);
+        bookRepository.addBook(Book.builder().title("Kontrakt Obcy").author("Autor Kontraktowy").publicationYear(1985)
+                .categoryId(otherCategory).build());
+        int foreign = bookRepository.getBooksByCategory(otherCategory).getFirst().getId();
+        assertTrue(bookRepository.markLoaned(loaned, userId));
+        assertTrue(bookRepository.markLoaned(reserved, userId));
+        reservationRepository.addReservation(otherUserId, reserved);
+        bookRepository.releaseBook(reserved);
+        SearchCriteria.SearchCriteriaBuilder both = SearchCriteria.builder().categoryIds(List.of(categoryId, otherCategory));
+
+        // When
+        SearchResult byYear = bookRepository.searchPage(both.yearFrom(1960).yearTo(1990)
+                .sortBy("publication_year").sortOrder("ASC").pageSize(2).page(1).build());
+        List<Book> nextPage = bookRepository.searchBooks(both.cursor(cursorOf("publication_year", byYear.books().getLast())).build());
+
+        // Then
+        assertEquals(3, byYear.totalCount());
+        assertEquals(List.of(loaned, foreign), ids(byYear.books()));
+        assertEquals(List.of(reserved), ids(nextPage));
+        assertEquals(4, bookRepository.countBooks(SearchCriteria.builder().categoryIds(List.of(categoryId, otherCategory)).build()));
+        assertEquals(List.of(old, foreign), ids(bookRepository.searchBooks(SearchCriteria.builder()
+                .categoryIds(List.of(categoryId, otherCategory)).statuses(List.of("AVAILABLE")).build())));
+        assertEquals(List.of(reserved, loaned), ids(bookRepository.searchBooks(SearchCriteria.builder().categoryId(categoryId)
+                .statuses(List.of("LOANED", "RESERVED")).sortBy("title").sortOrder("DESC").build())));
+        assertEquals(1, bookRepository.countBooks(SearchCriteria.builder().categoryId(categoryId)
+                .statuses(List.of("RESERVED")).title("zarezerw").build()));
+
+        assertTrue(bookRepository.deleteBook(old));
+        assertEquals(3, bookRepository.countBooks(SearchCriteria.builder().categoryIds(List.of(categoryId, otherCategory)).build()));
+    }
+
+    @Test
+    void deleteCategory_shouldDetachBooks_fromFiltersAndCounts() {
+        // Given
+        CategoryRepository categoryRepository = context.getBean(CategoryRepository.class);
+        categoryRepository.addCategory("Kontrakt usuwana");
+        int doomed = categoryRepository.findByName("Kontrakt usuwana").orElseThrow().getId();
+        bookRepository.addBook(Book.builder().title("Kontrakt Sierota").author("Autor Kontraktowy").publicationYear(1999)
+                .categoryId(doomed).build());
+        int orphan = bookRepository.getBooksByCategory(doomed).getFirst().getId();
+        assertEquals(1, bookRepository.countBooks(SearchCriteria.builder().categoryId(doomed).build()));
+
+        // When
+        categoryRepository.deleteCategory(doomed);
+
+        // Then
+        assertEquals(0, bookRepository.countBooks(SearchCriteria.builder().categoryId(doomed).build()));
+        assertEquals(0, bookRepository.searchPage(SearchCriteria.builder().categoryIds(List.of(doomed)).pageSize(10).page(1).build()).totalCount());
+        assertTrue(bookRepository.getBooksByCategory(doomed).isEmpty());
+        assertEquals(0, bookRepository.findById(orphan).orElseThrow().getCategoryId());
+    }
+
+    @Test
+    void rolledBackTransaction_shouldLeaveNoChanges() {
+        // Given
+        int id = addBook("Kontrakt Eta", 2007);
+        TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        // When
+        assertThrows(IllegalStateException.class, () -> transaction.executeWithoutResult(status -> {
+            assertTrue(bookRepository.markLoaned(id, userId));
+            loanRepository.createLoan(userId, id);
+            reservationRepository.addReservation(otherUserId, id);
+            throw new IllegalStateException("Przerwana transakcja");
+        }));
+
+        // Then
+        assertEquals("AVAILABLE", bookRepository.findById(id).orElseThrow().getStatus());
+        assertTrue(activeBookIds(userId).isEmpty());
+        assertTrue(reservationRepository.findReservationsByBookId(id).isEmpty());
+    }
+
+    int addBook(String title, int year) {
+        bookRepository.addBook(Book.builder().title(title).author("Autor Kontraktowy").publicationYear(year)
+                .categoryId(categoryId).status("AVAILABLE").build());
+        return bookRepository.getBooksByCategory(categoryId).stream()
+                .filter(book -> book.getTitle().equals(title)).findFirst().orElseThrow().getId();
+    }
+
+    private List<Integer> activeBookIds(int user) {
+        return loanRepository.getActiveLoansByUser(user).stream().map(Loan::getBookId)
+                .filter(bookId -> bookRepository.findById(bookId).map(book -> book.getCategoryId() == categoryId).orElse(false))
+                .sorted().toList();
+    }
+
+    private static String cursorOf(Book book) {
+        return cursorOf("title", book);
+    }
+
+    private static String cursorOf(String sortBy, Book book) {
+        return SearchCursor.of(sortBy, book).encode();
+    }
+
+    static List<Integer> ids(List<Book> books) {
+        return books.stream().map(Book::getId).toList();
+    }
+
+    private static List<String> titles(List<Book> books) {
+        return books.stream().map(Book::getTitle).toList();
+    }
+}
@@ -0,0 +1,109 @@
+package repository;
+
+import config.TestContexts;
+import model.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingReadTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final int INSERT_CHUNK = 100_000;
+    // Zmaterializowana lista miliona książek to ponad 100 MB; strumień nie może zatrzymywać wierszy na stercie.
+    private static final long MAX_RETAINED_BYTES = 32L * 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private AnnotationConfigApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = TestContexts.withUrl("jdbc:h2:file:" + tempDir.resolve("stream").toAbsolutePath() + "");
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void streamAllBooks_shouldReadMillionRowsWithinSmallHeap() throws SQLException {
+        int seeded = context.getBean(BookRepository.class).countAllBooks();
+        insertSyntheticBooks(context.getBean(DataSource.class));
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        long baseline = usedAfterGc();
+        AtomicInteger count = new AtomicInteger();
+        AtomicLong checksum = new AtomicLong();
+        AtomicLong peakRetained = new AtomicLong();
+
+        try (Stream<Book> books = context.getBean(BookRepository.class).streamAllBooks()) {
+            books.forEach(book -> {
+                checksum.addAndGet(book.getId());
+                if (count.incrementAndGet() % 100_000 == 0) {
+                    peakRetained.accumulateAndGet(usedAfterGc() - baseline, Math::max);
+                }
+            });
+        }
+
+        assertEquals(ROWS + seeded, count.get());
+        assertTrue(checksum.get() > 0);
+        assertTrue(maxHeap <= 256L * 1024 * 1024, "test powinien działać z małym -Xmx, a sterta to " + maxHeap);
+        assertTrue(peakRetained.get() < MAX_RETAINED_BYTES, "sterta zatrzymana podczas odczytu: " + peakRetained.get());
+    }
+
+    // Zajęta sterta po odśmiecaniu, czyli to, co odczyt faktycznie zatrzymuje, bez śmieci czekających na GC.
+    private static long usedAfterGc() {
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    @Test
+    void stream_shouldReturnConnectionToPool_whenClosedEarly() {
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        for (int i = 0; i < 50; i++) {
+            try (Stream<Book> books = bookRepository.streamAllBooks()) {
+                assertTrue(books.findFirst().isPresent());
+            }
+        }
+        assertEquals(0, context.getBean(metrics.PoolMetrics.class).getActiveConnections());
+    }
+
+    private void insertSyntheticBooks(DataSource dataSource) throws SQLException {
+        // Indeksy wyszukiwania nie mają znaczenia dla pełnego odczytu, a ich utrzymanie wielokrotnie wydłuża wstawianie.
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String index : new String[]{"idx_books_title_id", "idx_books_author_id", "idx_books_year_id",
+                    "idx_books_status_deleted", "idx_books_category_deleted", "idx_books_reserved_for_status"}) {
+                stmt.executeUpdate("DROP INDEX IF EXISTS " + index);
+            }
+        }
+        String sql = "INSERT INTO books (title, author, publication_year, status) " +
+                     "SELECT 'Książka ' || X, 'Autor ' || MOD(X, 1000), 1900 + MOD(X, 120), 'AVAILABLE' " +
+                     "FROM SYSTEM_RANGE(?, ?)";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int from = 1; from <= ROWS; from += INSERT_CHUNK) {
+                stmt.setInt(1, from);
+                stmt.setInt(2, from + INSERT_CHUNK - 1);
+                stmt.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleTest {
+
+    @Test
+    void remainingLockout_shouldDropToZero_afterLockoutPeriod() throws InterruptedException {
+        // Given
+        LoginThrottle throttle = new LoginThrottle(2, 100, 10);
+        throttle.recordFailure("jan");
+        assertEquals(0, throttle.remainingLockoutMillis("jan"));
+        throttle.recordFailure("JAN");
+
+        // When
+        long lockedFor = throttle.remainingLockoutMillis("jan");
+        Thread.sleep(150);
+
+        // Then
+        assertTrue(lockedFor > 0);
+        assertEquals(0, throttle.remainingLockoutMillis("jan"));
+        assertEquals(0, throttle.size());
+    }
+}
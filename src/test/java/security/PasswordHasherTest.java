@@ -0,0 +1,68 @@
+package security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void tearDown() {
+        if (hasher != null) {
+            hasher.shutdown();
+        }
+    }
+
+    @Test
+    void hash_shouldUseConfiguredCost_andVerify() {
+        // Given
+        hasher = new PasswordHasher(4, 1, 4, 5000);
+
+        // When
+        String hash = hasher.hash("tajne");
+
+        // Then
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(hasher.verify("tajne", hash));
+        assertFalse(hasher.verify("inne", hash));
+        assertFalse(hasher.needsRehash(hash));
+        assertTrue(hasher.needsRehash(hash.replace("$2a$04$", "$2a$10$")));
+        assertEquals(3, hasher.getHashLatency().getCount());
+        assertEquals(3, hasher.getQueueWait().getCount());
+    }
+
+    @Test
+    void verify_shouldRejectImmediately_whenQueueIsFull() throws InterruptedException {
+        // Given
+        hasher = new PasswordHasher(4, 1, 1, 5000);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        hasher.rehashAsync("a", hash -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        started.await();
+        hasher.rehashAsync("b", hash -> { });
+
+        // When
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> hasher.hash("c"));
+
+        // Then
+        assertTrue(error.getMessage().contains("przeciążony"));
+        assertEquals(1, hasher.getRejectedCount());
+        release.countDown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
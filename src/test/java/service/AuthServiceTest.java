@@ -0,0 +1,246 @@
+package service;
+
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mindrot.jbcrypt.BCrypt;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.UserRepository;
+import security.LoginThrottle;
+import security.PasswordHasher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceTest {
+
+    private static final String PASSWORD_HASH = BCrypt.hashpw("secret", BCrypt.gensalt(4));
+
+    @Mock
+    private UserRepository userRepository;
+
+    private PasswordHasher passwordHasher;
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() {
+        passwordHasher = new PasswordHasher(4, 4, 10_000, 10_000);
+        authService = new AuthService(userRepository, new SessionStore(60_000, 10_000), passwordHasher, new LoginThrottle(3, 60_000, 1000));
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.shutdown();
+    }
+
+    @Test
+    void login_shouldKeepIndependentSessions() {
+        // Given
+        when(userRepository.findByUsername("admin")).thenReturn(Optional.of(user(1, "admin", "ADMIN")));
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user(2, "user", "USER")));
+
+        // When
+        String adminToken = authService.login("admin", "secret").orElseThrow();
+        String userToken = authService.login("user", "secret").orElseThrow();
+        authService.logout(adminToken);
+
+        // Then
+        assertTrue(authService.getCurrentUser(adminToken).isEmpty());
+        assertEquals("user", authService.getCurrentUser(userToken).orElseThrow().getUsername());
+        assertFalse(authService.isAdmin(userToken));
+        assertNull(authService.getCurrentUser(userToken).orElseThrow().getPassword());
+    }
+
+    @Test
+    void login_shouldFail_whenPasswordIsWrong() {
+        // Given
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user(2, "user", "USER")));
+
+        // When / Then
+        assertTrue(authService.login("user", "wrong").isEmpty());
+    }
+
+    @Test
+    void login_shouldLockAccount_afterRepeatedFailures() {
+        // Given
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user(2, "user", "USER")));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(authService.login("user", "wrong").isEmpty());
+        }
+
+        // When
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> authService.login("User", "secret"));
+
+        // Then
+        assertTrue(error.getMessage().contains("Zbyt wiele"));
+        verify(userRepository, times(3)).findByUsername("user");
+    }
+
+    @Test
+    void login_shouldRehashPassword_whenCostChanged() {
+        // Given
+        String oldHash = BCrypt.hashpw("secret", BCrypt.gensalt(5));
+        User user = new User(7, "old", oldHash, "Imię", "Nazwisko", null, "USER");
+        when(userRepository.findByUsername("old")).thenReturn(Optional.of(user));
+
+        // When
+        assertTrue(authService.login("old", "secret").isPresent());
+
+        // Then
+        verify(userRepository, timeout(5000)).updatePassword(eq(7), argThat(hash -> hash.startsWith("$2a$04$") && BCrypt.checkpw("secret", hash)));
+    }
+
+    @Test
+    void login_shouldNotRehash_whenCostMatches() {
+        // Given
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user(2, "user", "USER")));
+
+        // When
+        assertTrue(authService.login("user", "secret").isPresent());
+
+        // Then
+        verify(userRepository, never()).updatePassword(anyInt(), anyString());
+    }
+
+    @Test
+    void sessions_shouldExpireWhenIdleAndStayBounded() throws InterruptedException {
+        // Given
+        SessionStore store = new SessionStore(50, 3);
+        String first = store.create(user(1, "a", "USER"));
+        Thread.sleep(100);
+
+        // When
+        String second = store.create(user(2, "b", "USER"));
+        store.create(user(3, "c", "USER"));
+        store.create(user(4, "d", "USER"));
+        store.create(user(5, "e", "USER"));
+
+        // Then
+        assertTrue(store.find(first).isEmpty());
+        assertTrue(store.find(second).isEmpty());
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void find_shouldReturnCopy_soCallerCannotChangeSession() {
+        // Given
+        SessionStore store = new SessionStore(60_000, 10);
+        String token = store.create(user(1, "a", "USER"));
+
+        // When
+        User seen = store.find(token).orElseThrow();
+        seen.setRole("ADMIN");
+        seen.setUsername("mallory");
+
+        // Then
+        User again = store.find(token).orElseThrow();
+        assertNotSame(seen, again);
+        assertEquals("USER", again.getRole());
+        assertEquals("a", again.getUsername());
+        assertNull(again.getPassword());
+    }
+
+    @Test
+    void sessions_shouldEvictInBatches_andNeverExceedLimit() throws Exception {
+        // Given
+        SessionStore store = new SessionStore(60_000, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> creates = new ArrayList<>();
+        List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+
+        // When
+        try {
+            for (int i = 0; i < 2000; i++) {
+                int id = i;
+                creates.add(executor.submit(() -> {
+                    start.await();
+                    store.create(user(id, "u" + id, "USER"));
+                    sizes.add(store.size());
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> create : creates) {
+                create.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        String oldest = store.create(user(-1, "old", "USER"));
+        for (int i = 0; i < 9; i++) {
+            store.create(user(i, "n" + i, "USER"));
+        }
+        store.find(oldest);
+        store.create(user(99, "last", "USER"));
+
+        // Then
+        assertTrue(sizes.stream().allMatch(size -> size <= 100));
+        assertTrue(store.size() <= 100);
+        assertTrue(store.find(oldest).isPresent());
+    }
+
+    @Test
+    void login_shouldServeThousandsOfConcurrentSessions() throws Exception {
+        // Given
+        int users = 200;
+        int sessionsPerUser = 20;
+        for (int id = 1; id <= users; id++) {
+            User user = user(id, "user" + id, id % 10 == 0 ? "ADMIN" : "USER");
+            lenient().when(userRepository.findByUsername(user.getUsername())).thenReturn(Optional.of(user));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String[]>> logins = new ArrayList<>();
+
+        // When
+        try {
+            for (int i = 0; i < users * sessionsPerUser; i++) {
+                int id = i % users + 1;
+                logins.add(executor.submit(() -> {
+                    start.await();
+                    String token = authService.login("user" + id, "secret").orElseThrow();
+                    return new String[]{token, String.valueOf(id)};
+                }));
+            }
+            start.countDown();
+
+            // Then
+            Set<String> tokens = new HashSet<>();
+            for (Future<String[]> login : logins) {
+                String[] result = login.get();
+                int id = Integer.parseInt(result[1]);
+                assertTrue(tokens.add(result[0]));
+                assertEquals(id, authService.getCurrentUser(result[0]).orElseThrow().getId());
+                assertEquals(id % 10 == 0, authService.isAdmin(result[0]));
+            }
+            assertEquals(users * sessionsPerUser, tokens.size());
+            verify(userRepository, times(users * sessionsPerUser)).findByUsername(anyString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private User user(int id, String username, String role) {
+        return new User(id, username, PASSWORD_HASH, "Imię", "Nazwisko", null, role);
+    }
+}
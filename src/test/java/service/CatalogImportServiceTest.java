@@ -0,0 +1,125 @@
+package service;
+
+import config.TestContexts;
+import model.ImportReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import repository.BookRepository;
+import repository.CategoryRepository;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogImportServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private AnnotationConfigApplicationContext context;
+    private CatalogImportService importService;
+    private BookRepository bookRepository;
+    private int seededBooks;
+
+    @BeforeEach
+    void setUp() {
+        context = TestContexts.inMemory();
+        importService = context.getBean(CatalogImportService.class);
+        bookRepository = context.getBean(BookRepository.class);
+        seededBooks = bookRepository.countAllBooks();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void importFile_shouldInsertAllRowsAndResolveCategories() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("title,author,publication_year,isbn,category");
+        for (int i = 0; i < 2500; i++) {
+            lines.add("\"Tytuł " + i + ", tom 1\",Autor " + i + "," + (1900 + i % 100) + ",," + (i % 2 == 0 ? "Fantasy" : "Poezja"));
+        }
+        lines.add("bez autora,,2000,,Fantasy");
+        Path file = write("katalog.csv", lines);
+
+        ImportReport report = importService.importFile(file, 0);
+
+        assertFalse(report.isFailed());
+        assertEquals(2500, report.getImportedRows());
+        assertEquals(1, report.getRejectedRows());
+        assertEquals(seededBooks + 2500, bookRepository.countAllBooks());
+        assertTrue(context.getBean(CategoryRepository.class).findByName("Poezja").isPresent());
+        assertEquals(1, bookRepository.searchBooks("tytul 1234").size());
+    }
+
+    @Test
+    void importFile_shouldStopAtFailedChunkAndResume() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("title\tauthor\tpublication_year");
+        for (int i = 0; i < 2500; i++) {
+            String title = i == 1500 ? "x".repeat(300) : "Książka " + i;
+            lines.add(title + "\tAutor\t2001");
+        }
+        Path file = write("katalog.tsv", lines);
+
+        ImportReport failed = importService.importFile(file, 0);
+
+        assertTrue(failed.isFailed());
+        assertEquals(1000, failed.getResumeFromRow());
+        assertEquals(seededBooks + 1000, bookRepository.countAllBooks());
+
+        lines.set(1501, "Książka 1500\tAutor\t2001");
+        write("katalog.tsv", lines);
+        ImportReport resumed = importService.importFile(file, failed.getResumeFromRow());
+
+        assertFalse(resumed.isFailed());
+        assertEquals(1500, resumed.getImportedRows());
+        assertEquals(seededBooks + 2500, bookRepository.countAllBooks());
+    }
+
+    @Test
+    void importFile_shouldKeepQuotedNewlinesInsideOneRow() throws IOException {
+        Path file = write("wiersze.csv", List.of(
+                "title,author,publication_year",
+                "\"Pan Tadeusz,",
+                "czyli ostatni zajazd\",Adam Mickiewicz,1834",
+                "Lalka,Bolesław Prus,1890"));
+
+        ImportReport report = importService.importFile(file, 0);
+
+        assertFalse(report.isFailed());
+        assertEquals(2, report.getImportedRows());
+        assertEquals(0, report.getRejectedRows());
+        assertEquals(2, report.getResumeFromRow());
+        assertEquals(seededBooks + 2, bookRepository.countAllBooks());
+    }
+
+    @Test
+    void importFile_shouldRejectUnclosedQuote_withRowNumber() throws IOException {
+        Path file = write("urwany.csv", List.of(
+                "title,author,publication_year",
+                "Lalka,Bolesław Prus,1890",
+                "\"Bez końca,Autor,2000",
+                "Inna,Autor,2001"));
+
+        ImportReport report = importService.importFile(file, 0);
+
+        assertTrue(report.isFailed());
+        assertTrue(report.getFailureMessage().contains("wierszu 2"));
+        assertEquals(seededBooks, bookRepository.countAllBooks());
+    }
+
+    private Path write(String name, List<String> lines) throws IOException {
+        return Files.write(tempDir.resolve(name), lines, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,111 @@
+package service;
+
+import config.TestContexts;
+import model.Book;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import repository.BookRepository;
+import repository.LoanRepository;
+import repository.ReservationRepository;
+import repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 50;
+    private static final int BOOK_ID = 2;
+
+    private AnnotationConfigApplicationContext context;
+    private LibraryService libraryService;
+    private BookRepository bookRepository;
+    private LoanRepository loanRepository;
+    private List<Integer> userIds;
+
+    @BeforeEach
+    void setUp() {
+        context = TestContexts.inMemory();
+        libraryService = context.getBean(LibraryService.class);
+        bookRepository = context.getBean(BookRepository.class);
+        loanRepository = context.getBean(LoanRepository.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        userIds = new ArrayList<>();
+        for (String username : List.of("admin", "user", "user2")) {
+            userIds.add(userRepository.findByUsername(username).map(User::getId).orElseThrow());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void rentBook_shouldLetExactlyOneClerkWin_whenManyRentTheSameBook() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> attempts = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    int userId = userIds.get(t % userIds.size());
+                    attempts.add(executor.submit(() -> {
+                        start.await();
+                        return libraryService.rentBook(userId, BOOK_ID).success();
+                    }));
+                }
+                start.countDown();
+
+                int winners = 0;
+                for (Future<Boolean> attempt : attempts) {
+                    if (attempt.get()) winners++;
+                }
+                assertEquals(1, winners, "runda " + round);
+                assertEquals("LOANED", bookRepository.findById(BOOK_ID).map(Book::getStatus).orElseThrow());
+
+                int borrower = userIds.stream()
+                        .filter(id -> loanRepository.getActiveLoansByUser(id).stream().anyMatch(l -> l.getBookId() == BOOK_ID))
+                        .findFirst().orElseThrow();
+                long activeLoans = userIds.stream()
+                        .flatMap(id -> loanRepository.getActiveLoansByUser(id).stream())
+                        .filter(l -> l.getBookId() == BOOK_ID)
+                        .count();
+                assertEquals(1, activeLoans);
+                assertTrue(libraryService.returnBook(BOOK_ID, borrower));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void returnBook_shouldHandTheBookToTheFirstReservation() {
+        ReservationRepository reservationRepository = context.getBean(ReservationRepository.class);
+        int first = userIds.get(0);
+        int second = userIds.get(1);
+        int third = userIds.get(2);
+
+        assertTrue(libraryService.rentBook(first, BOOK_ID).success());
+        reservationRepository.addReservation(second, BOOK_ID);
+        reservationRepository.addReservation(third, BOOK_ID);
+        assertTrue(libraryService.returnBook(BOOK_ID, first));
+
+        Book book = bookRepository.findById(BOOK_ID).orElseThrow();
+        assertEquals("RESERVED", book.getStatus());
+        assertEquals(second, book.getReservedForUserId());
+        assertFalse(libraryService.rentBook(third, BOOK_ID).success());
+        assertTrue(libraryService.rentBook(second, BOOK_ID).success());
+        assertEquals(1, reservationRepository.findReservationsByBookId(BOOK_ID).size());
+    }
+}
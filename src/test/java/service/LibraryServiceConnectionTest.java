@@ -0,0 +1,87 @@
+package service;
+
+import config.TestContexts;
+import metrics.PoolMetrics;
+import model.BookReturn;
+import model.CirculationOutcome;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import repository.BookRepository;
+import repository.LoanRepository;
+import repository.UserRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryServiceConnectionTest {
+
+    private AnnotationConfigApplicationContext context;
+    private LibraryService libraryService;
+    private PoolMetrics poolMetrics;
+    private int userId;
+
+    @BeforeEach
+    void setUp() {
+        context = TestContexts.inMemory();
+        libraryService = context.getBean(LibraryService.class);
+        poolMetrics = context.getBean(PoolMetrics.class);
+        User user = context.getBean(UserRepository.class).findByUsername("user").orElseThrow();
+        userId = user.getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void rentBook_shouldUseSingleConnection() {
+        long before = poolMetrics.getBorrowCount();
+
+        assertTrue(libraryService.rentBook(userId, 2).success());
+
+        assertEquals(1, poolMetrics.getBorrowCount() - before);
+    }
+
+    @Test
+    void returnBook_shouldUseSingleConnection() {
+        assertTrue(libraryService.rentBook(userId, 2).success());
+        long before = poolMetrics.getBorrowCount();
+
+        assertTrue(libraryService.returnBook(2, userId));
+
+        assertEquals(1, poolMetrics.getBorrowCount() - before);
+    }
+
+    @Test
+    void bulkRentAndReturn_shouldUseSingleConnection_andHandBooksToNextReservation() {
+        // Given
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        int otherUserId = context.getBean(UserRepository.class).findByUsername("user2").orElseThrow().getId();
+
+        // When
+        long beforeRent = poolMetrics.getBorrowCount();
+        List<CirculationOutcome> rented = libraryService.rentBooks(userId, List.of(1, 2, 3, 999, 2));
+        long rentBorrows = poolMetrics.getBorrowCount() - beforeRent;
+        assertTrue(libraryService.reserveBook(otherUserId, 1).success());
+        long beforeReturn = poolMetrics.getBorrowCount();
+        List<CirculationOutcome> returned = libraryService.returnBooks(List.of(
+                new BookReturn(1, userId), new BookReturn(2, userId), new BookReturn(3, otherUserId)));
+        long returnBorrows = poolMetrics.getBorrowCount() - beforeReturn;
+
+        // Then
+        assertEquals(List.of(true, true, true, false, false), rented.stream().map(CirculationOutcome::success).toList());
+        assertEquals(List.of(true, true, false), returned.stream().map(CirculationOutcome::success).toList());
+        assertEquals(1, rentBorrows);
+        assertEquals(1, returnBorrows);
+        assertEquals("RESERVED", bookRepository.findById(1).orElseThrow().getStatus());
+        assertEquals(otherUserId, bookRepository.findById(1).orElseThrow().getReservedForUserId());
+        assertEquals("AVAILABLE", bookRepository.findById(2).orElseThrow().getStatus());
+        assertEquals("LOANED", bookRepository.findById(3).orElseThrow().getStatus());
+        assertEquals(1, context.getBean(LoanRepository.class).getActiveLoansByUser(userId).size());
+    }
+}
@@ -1,7 +1,10 @@
 package service;
 
+import journal.LoanEventJournal;
+import journal.LoanEventType;
 import model.Book;
-import model.Reservation;
+import model.BookReturn;
+import model.CirculationOutcome;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,7 +15,7 @@ import repository.BookRepository;
 import repository.LoanRepository;
 import repository.ReservationRepository;
 
-import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,16 +33,17 @@ class LibraryServiceTest {
     @Mock
     private ReservationRepository reservationRepository;
 
+    @Mock
+    private LoanEventJournal journal;
+
     @InjectMocks
     private LibraryService libraryService;
 
-    private Book availableBook;
     private Book loanedBook;
     private Book reservedBook;
 
     @BeforeEach
     void setUp() {
-        availableBook = Book.builder().id(1).title("Available Book").status("AVAILABLE").build();
         loanedBook = Book.builder().id(2).title("Loaned Book").status("LOANED").build();
         reservedBook = Book.builder().id(3).title("Reserved Book").status("RESERVED").reservedForUserId(100).build();
     }
@@ -47,93 +51,113 @@ class LibraryServiceTest {
     @Test
     void rentBook_shouldSucceed_whenBookIsAvailable() {
         // Given
-        when(bookRepository.findById(1)).thenReturn(Optional.of(availableBook));
-        // Musimy zamockować listę rezerwacji, bo rentBook teraz ją sprawdza
-        when(reservationRepository.findReservationsByBookId(1)).thenReturn(Collections.emptyList());
+        when(bookRepository.markLoaned(1, 1)).thenReturn(true);
 
         // When
-        boolean result = libraryService.rentBook(1, 1);
+        CirculationOutcome result = libraryService.rentBook(1, 1);
 
         // Then
-        assertTrue(result);
-        // Weryfikujemy createLoan (void) i aktualizację statusu
+        assertTrue(result.success());
+        // Warunek dostępności sprawdza UPDATE, więc nie ma odczytu przed zapisem
+        verify(bookRepository, never()).findById(anyInt());
         verify(loanRepository, times(1)).createLoan(1, 1);
-        verify(bookRepository, times(1)).updateBookStatus(1, "LOANED", null);
+        verify(reservationRepository, times(1)).deleteReservationForUser(1, 1);
+        verify(journal).record(LoanEventType.LOANED, 1, 1);
+        verify(journal, never()).record(eq(LoanEventType.RESERVATION_CLEARED), anyInt(), anyInt());
     }
 
     @Test
     void rentBook_shouldFail_whenBookIsLoaned() {
         // Given
+        when(bookRepository.markLoaned(2, 1)).thenReturn(false);
         when(bookRepository.findById(2)).thenReturn(Optional.of(loanedBook));
 
         // When
-        boolean result = libraryService.rentBook(1, 2);
+        CirculationOutcome result = libraryService.rentBook(1, 2);
 
         // Then
-        assertFalse(result);
+        assertFalse(result.success());
+        assertEquals("Książka jest już wypożyczona. Możesz ją zarezerwować.", result.message());
         verify(loanRepository, never()).createLoan(anyInt(), anyInt());
-        verify(bookRepository, never()).updateBookStatus(anyInt(), anyString(), any());
+        verify(reservationRepository, never()).deleteReservationForUser(anyInt(), anyInt());
+        verifyNoInteractions(journal);
     }
 
     @Test
     void rentBook_shouldFail_whenBookIsReservedForAnotherUser() {
         // Given
+        when(bookRepository.markLoaned(3, 1)).thenReturn(false);
         when(bookRepository.findById(3)).thenReturn(Optional.of(reservedBook));
 
         // When
-        boolean result = libraryService.rentBook(1, 3); // User 1 próbuje wypożyczyć książkę zarezerwowaną dla Usera 100
+        CirculationOutcome result = libraryService.rentBook(1, 3); // User 1 próbuje wypożyczyć książkę zarezerwowaną dla Usera 100
 
         // Then
-        assertFalse(result);
+        assertFalse(result.success());
+        assertEquals("Książka jest zarezerwowana dla innego użytkownika.", result.message());
+        verify(loanRepository, never()).createLoan(anyInt(), anyInt());
+    }
+
+    @Test
+    void rentBook_shouldFail_whenBookDoesNotExist() {
+        // Given
+        when(bookRepository.markLoaned(99, 1)).thenReturn(false);
+        when(bookRepository.findById(99)).thenReturn(Optional.empty());
+
+        // When
+        CirculationOutcome result = libraryService.rentBook(1, 99);
+
+        // Then
+        assertFalse(result.success());
+        assertEquals("Książka o podanym ID nie istnieje.", result.message());
         verify(loanRepository, never()).createLoan(anyInt(), anyInt());
     }
 
     @Test
     void rentBook_shouldSucceed_whenBookIsReservedForTheCurrentUser() {
         // Given
-        when(bookRepository.findById(3)).thenReturn(Optional.of(reservedBook));
-        when(reservationRepository.findReservationsByBookId(3)).thenReturn(Collections.emptyList());
+        when(bookRepository.markLoaned(3, 100)).thenReturn(true);
+        when(reservationRepository.deleteReservationForUser(3, 100)).thenReturn(true);
 
         // When
-        boolean result = libraryService.rentBook(100, 3); // User 100 wypożycza swoją rezerwację
+        CirculationOutcome result = libraryService.rentBook(100, 3); // User 100 wypożycza swoją rezerwację
 
         // Then
-        assertTrue(result);
+        assertTrue(result.success());
         verify(loanRepository, times(1)).createLoan(100, 3);
-        verify(bookRepository, times(1)).updateBookStatus(3, "LOANED", null);
+        verify(reservationRepository, times(1)).deleteReservationForUser(3, 100);
+        verify(journal).record(LoanEventType.LOANED, 100, 3);
+        verify(journal).record(LoanEventType.RESERVATION_CLEARED, 100, 3);
     }
 
     @Test
-    void returnBook_shouldMakeBookAvailable_whenNoReservationsExist() {
+    void reserveBook_shouldReturnReason_whenBookIsNotLoaned() {
         // Given
-        when(loanRepository.returnLoan(1, 1)).thenReturn(true);
-        when(reservationRepository.findNextReservationForBook(1)).thenReturn(Optional.empty());
+        Book available = Book.builder().id(1).title("Available Book").status("AVAILABLE").build();
+        when(bookRepository.findById(1)).thenReturn(Optional.of(available));
 
         // When
-        boolean result = libraryService.returnBook(1, 1);
+        CirculationOutcome result = libraryService.reserveBook(5, 1);
 
         // Then
-        assertTrue(result);
-        verify(bookRepository, times(1)).updateBookStatus(1, "AVAILABLE", null);
+        assertFalse(result.success());
+        assertEquals("Można rezerwować tylko wypożyczone książki.", result.message());
+        verify(reservationRepository, never()).addReservation(anyInt(), anyInt());
+        verifyNoInteractions(journal);
     }
 
     @Test
-    void returnBook_shouldMakeBookReserved_whenReservationExists() {
+    void returnBook_shouldReleaseBook_whenLoanIsReturned() {
         // Given
-        int bookId = 2;
-        int returningUserId = 1;
-        int nextUserIdInQueue = 200;
-        Reservation nextReservation = Reservation.builder().userId(nextUserIdInQueue).bookId(bookId).build();
-
-        when(loanRepository.returnLoan(bookId, returningUserId)).thenReturn(true);
-        when(reservationRepository.findNextReservationForBook(bookId)).thenReturn(Optional.of(nextReservation));
+        when(loanRepository.returnLoan(1, 1)).thenReturn(true);
 
         // When
-        boolean result = libraryService.returnBook(bookId, returningUserId);
+        boolean result = libraryService.returnBook(1, 1);
 
         // Then
         assertTrue(result);
-        verify(bookRepository, times(1)).updateBookStatus(bookId, "RESERVED", nextUserIdInQueue);
+        verify(bookRepository, times(1)).releaseBook(1);
+        verify(journal).record(LoanEventType.RETURNED, 1, 1);
     }
 
     @Test
@@ -146,6 +170,75 @@ class LibraryServiceTest {
 
         // Then
         assertFalse(result);
-        verify(bookRepository, never()).updateBookStatus(anyInt(), anyString(), any());
+        verify(bookRepository, never()).releaseBook(anyInt());
+    }
+
+    @Test
+    void rentBooks_shouldReportEachItem_andWriteOnlyRentableBooksInBatches() {
+        // Given
+        Book available = Book.builder().id(1).title("Available Book").status("AVAILABLE").build();
+        when(bookRepository.findByIds(List.of(1, 2, 3, 9, 1))).thenReturn(List.of(available, loanedBook, reservedBook));
+        when(bookRepository.markLoaned(List.of(1, 3), 100)).thenReturn(new boolean[]{true, true});
+        when(reservationRepository.deleteReservationsForUser(List.of(1, 3), 100)).thenReturn(List.of(3));
+
+        // When
+        List<CirculationOutcome> outcomes = libraryService.rentBooks(100, List.of(1, 2, 3, 9, 1));
+
+        // Then
+        assertEquals(List.of(true, false, true, false, false), outcomes.stream().map(CirculationOutcome::success).toList());
+        verify(bookRepository, never()).markLoaned(anyInt(), anyInt());
+        verify(bookRepository, never()).findById(anyInt());
+        verify(loanRepository).createLoans(100, List.of(1, 3));
+        verify(reservationRepository).deleteReservationsForUser(List.of(1, 3), 100);
+        verify(journal).record(LoanEventType.LOANED, 100, 1);
+        verify(journal).record(LoanEventType.LOANED, 100, 3);
+        verify(journal).record(LoanEventType.RESERVATION_CLEARED, 100, 3);
+        verifyNoMoreInteractions(journal);
+    }
+
+    @Test
+    void rentBooks_shouldLogClearedReservation_onlyWhenOneWasDeleted() {
+        // Given: status odczytany jako RESERVED, ale rezerwacji już nie ma
+        when(bookRepository.findByIds(List.of(3))).thenReturn(List.of(reservedBook));
+        when(bookRepository.markLoaned(List.of(3), 100)).thenReturn(new boolean[]{true});
+        when(reservationRepository.deleteReservationsForUser(List.of(3), 100)).thenReturn(List.of());
+
+        // When
+        List<CirculationOutcome> outcomes = libraryService.rentBooks(100, List.of(3));
+
+        // Then
+        assertTrue(outcomes.get(0).success());
+        verify(journal).record(LoanEventType.LOANED, 100, 3);
+        verify(journal, never()).record(eq(LoanEventType.RESERVATION_CLEARED), anyInt(), anyInt());
+    }
+
+    @Test
+    void rentBooks_shouldReportConflict_whenBookWasTakenAfterValidation() {
+        // Given
+        Book available = Book.builder().id(1).title("Available Book").status("AVAILABLE").build();
+        when(bookRepository.findByIds(List.of(1))).thenReturn(List.of(available));
+        when(bookRepository.markLoaned(List.of(1), 100)).thenReturn(new boolean[]{false});
+
+        // When
+        List<CirculationOutcome> outcomes = libraryService.rentBooks(100, List.of(1));
+
+        // Then
+        assertFalse(outcomes.get(0).success());
+        verify(loanRepository).createLoans(100, List.of());
+    }
+
+    @Test
+    void returnBooks_shouldReleaseOnlyReturnedBooks_inOneCall() {
+        // Given
+        List<BookReturn> returns = List.of(new BookReturn(1, 1), new BookReturn(2, 1), new BookReturn(3, 2));
+        when(loanRepository.returnLoans(returns)).thenReturn(new boolean[]{true, false, true});
+
+        // When
+        List<CirculationOutcome> outcomes = libraryService.returnBooks(returns);
+
+        // Then
+        assertEquals(List.of(true, false, true), outcomes.stream().map(CirculationOutcome::success).toList());
+        verify(bookRepository).releaseBooks(List.of(1, 3));
+        verify(bookRepository, never()).releaseBook(anyInt());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,247 @@
+package stats;
+
+import config.TestContexts;
+import model.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import repository.BookRepository;
+import repository.LoanRepository;
+import repository.UserRepository;
+import service.LibraryService;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryStatisticsTest {
+
+    private AnnotationConfigApplicationContext context;
+    private LibraryStatistics stats;
+    private BookRepository bookRepo;
+    private LibraryService libraryService;
+    private int userId;
+
+    @BeforeEach
+    void setUp() {
+        context = TestContexts.inMemory();
+        stats = context.getBean(LibraryStatistics.class);
+        bookRepo = context.getBean(BookRepository.class);
+        libraryService = context.getBean(LibraryService.class);
+        userId = context.getBean(UserRepository.class).findByUsername("user").orElseThrow().getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void counters_shouldMatchDatabase_afterSeeding() {
+        assertMatchesDatabase();
+        assertEquals(context.getBean(LoanRepository.class).getMostLoanedBooks(2), stats.getMostLoanedBooks(2));
+    }
+
+    @Test
+    void counters_shouldFollowRentReturnAddAndDelete() {
+        // When
+        assertTrue(libraryService.rentBook(userId, 2).success());
+        assertTrue(libraryService.rentBook(userId, 3).success());
+        assertMatchesDatabase();
+        assertTrue(libraryService.returnBook(2, userId));
+        bookRepo.addBook(Book.builder().title("Nowa").author("Autor").publicationYear(2020).categoryId(1).status("AVAILABLE").build());
+        assertTrue(bookRepo.deleteBook(3));
+        assertFalse(bookRepo.deleteBook(3));
+
+        // Then
+        assertMatchesDatabase();
+        assertEquals(2, stats.getActiveUsers());
+    }
+
+    @Test
+    void counters_shouldIgnoreRolledBackWrites() {
+        // Given
+        long loaned = stats.getLoanedBooks();
+        TransactionTemplate tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        // When
+        assertThrows(IllegalStateException.class, () -> tx.executeWithoutResult(status -> {
+            libraryService.rentBook(userId, 4);
+            throw new IllegalStateException("wycofaj");
+        }));
+
+        // Then
+        assertEquals(loaned, stats.getLoanedBooks());
+        assertMatchesDatabase();
+    }
+
+    @Test
+    void reconcile_shouldRepairDrift_afterExternalWrites() {
+        // Given
+        new JdbcTemplate(context.getBean(DataSource.class)).update("UPDATE books SET is_deleted = TRUE WHERE id IN (1, 2)");
+        assertNotEquals(bookRepo.countAllBooks(), stats.getTotalBooks());
+
+        // When
+        stats.reconcile();
+
+        // Then
+        assertMatchesDatabase();
+    }
+
+    @Test
+    void windowedTopBooks_shouldMatchExactQuery_andSkipOldLoans() {
+        // Given
+        JdbcTemplate jdbc = new JdbcTemplate(context.getBean(DataSource.class));
+        jdbc.update("INSERT INTO loans (user_id, book_id, loan_date, return_date) VALUES (?, 4, DATEADD('DAY', -40, CURRENT_TIMESTAMP), CURRENT_TIMESTAMP)", userId);
+        jdbc.update("INSERT INTO loans (user_id, book_id, loan_date, return_date) VALUES (?, 4, DATEADD('DAY', -10, CURRENT_TIMESTAMP), CURRENT_TIMESTAMP)", userId);
+        stats.reconcile();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(libraryService.rentBook(userId, 3).success());
+            assertTrue(libraryService.returnBook(3, userId));
+        }
+        LoanRepository loanRepo = context.getBean(LoanRepository.class);
+
+        // When
+        List<Map.Entry<String, Long>> week = stats.getMostLoanedBooks(2, 7);
+        List<Map.Entry<String, Long>> month = stats.getMostLoanedBooks(10, 30);
+
+        // Then
+        assertEquals(loanRepo.getMostLoanedBooksSince(LocalDate.now().minusDays(6).atStartOfDay(), 2), week);
+        assertEquals(3L, week.get(0).getValue());
+        assertEquals(Set.copyOf(loanRepo.getMostLoanedBooksSince(LocalDate.now().minusDays(29).atStartOfDay(), 10)), Set.copyOf(month));
+        assertThrows(IllegalArgumentException.class, () -> stats.getMostLoanedBooks(5, 365));
+    }
+
+    @Test
+    void reconcile_shouldKeepCommits_thatLandDuringSourceRead_withoutBlockingThem() throws Exception {
+        // Given: migawka źródła ma 10 książek, a odczyt trwa, dopóki test go nie zwolni
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LibraryStatistics slowStats = new LibraryStatistics(source(() -> 10L, () -> {
+            reading.countDown();
+            await(release);
+        }), 0, 16, 31);
+        Thread reconciler = new Thread(slowStats::reconcile);
+        reconciler.start();
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        // When
+        Thread writer = new Thread(() -> inTransaction(() -> slowStats.bookAdded(1)));
+        writer.start();
+        writer.join(5000);
+        boolean committedDuringRead = !writer.isAlive();
+        release.countDown();
+        reconciler.join();
+
+        // Then
+        assertTrue(committedDuringRead);
+        assertEquals(11, slowStats.getTotalBooks());
+    }
+
+    @Test
+    void reconcile_shouldRetry_whenWriteOutsideTransactionLandsDuringSourceRead() throws Exception {
+        // Given: zapis bez transakcji jest w bazie, zanim statystyki się o nim dowiedzą
+        AtomicLong booksInSource = new AtomicLong(10);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger reads = new AtomicInteger();
+        LibraryStatistics slowStats = new LibraryStatistics(source(booksInSource::get, () -> {
+            if (reads.incrementAndGet() == 1) {
+                reading.countDown();
+                await(release);
+            }
+        }), 0, 16, 31);
+        Thread reconciler = new Thread(slowStats::reconcile);
+        reconciler.start();
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        // When
+        booksInSource.incrementAndGet();
+        slowStats.bookAdded(1);
+        release.countDown();
+        reconciler.join();
+
+        // Then
+        assertEquals(11, slowStats.getTotalBooks());
+        assertEquals(2, reads.get());
+    }
+
+    // Źródło, którego migawka zapamiętuje liczbę książek w begin(), a odczyt wykonuje duringRead.
+    private static StatisticsSource source(LongSupplier books, Runnable duringRead) {
+        return new StatisticsSource() {
+            @Override
+            public Snapshot openSnapshot() {
+                return new Snapshot() {
+                    private long total;
+
+                    @Override
+                    public void begin() {
+                        total = books.getAsLong();
+                    }
+
+                    @Override
+                    public void readCounters(LocalDate recentFrom, CounterSink sink) {
+                        duringRead.run();
+                        sink.totalBooks(total);
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+
+            @Override
+            public Map<Integer, String> findTitles(Collection<Integer> bookIds) {
+                return Map.of();
+            }
+        };
+    }
+
+    // Zatwierdzenie transakcji bez menedżera transakcji: ta sama kolejność wywołań synchronizacji.
+    private static void inTransaction(Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            work.run();
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void assertMatchesDatabase() {
+        assertEquals(bookRepo.countAllBooks(), stats.getTotalBooks());
+        assertEquals(bookRepo.countByStatus("LOANED"), stats.getLoanedBooks());
+        assertEquals(context.getBean(UserRepository.class).countActiveUsers(), stats.getActiveUsers());
+        List<Map.Entry<String, Long>> top = stats.getMostLoanedBooks(1);
+        assertEquals(context.getBean(LoanRepository.class).getMostLoanedBooks(1).get(0).getValue(), top.get(0).getValue());
+    }
+}
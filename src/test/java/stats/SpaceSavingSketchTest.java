@@ -0,0 +1,114 @@
+package stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void add_shouldBeExact_whenItemsFitInCapacity() {
+        // Given
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            sketch.add(i % 5, 1);
+        }
+
+        // Then
+        for (int item = 0; item < 5; item++) {
+            assertEquals(20, sketch.estimate(item));
+            assertEquals(0, sketch.error(item));
+        }
+    }
+
+    @Test
+    void add_shouldKeepHeavyHitters_withBoundedOverestimate() {
+        // Given
+        SpaceSavingSketch sketch = new SpaceSavingSketch(50);
+        Map<Integer, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        int events = 100_000;
+
+        // When
+        for (int i = 0; i < events; i++) {
+            int item = random.nextDouble() < 0.3 ? random.nextInt(5) : 100 + random.nextInt(10_000);
+            sketch.add(item, 1);
+            exact.merge(item, 1L, Long::sum);
+        }
+
+        // Then
+        assertEquals(50, sketch.size());
+        for (int item = 0; item < 5; item++) {
+            long estimate = sketch.estimate(item);
+            assertTrue(estimate >= exact.get(item));
+            assertTrue(estimate - exact.get(item) <= events / 50);
+        }
+    }
+
+    @Test
+    void merge_shouldSumCountsAcrossSketches() {
+        // Given
+        SpaceSavingSketch monday = new SpaceSavingSketch(4);
+        SpaceSavingSketch tuesday = new SpaceSavingSketch(4);
+        monday.add(1, 3);
+        monday.add(2, 1);
+        tuesday.add(1, 2);
+
+        // When
+        Map<Integer, Long> totals = SpaceSavingSketch.merge(List.of(monday, tuesday));
+
+        // Then
+        assertEquals(Map.of(1, 5L, 2, 1L), totals);
+    }
+
+    @Test
+    void merge_shouldStayUpperBound_whenSketchDroppedItem() {
+        // Given
+        SpaceSavingSketch monday = new SpaceSavingSketch(2);
+        SpaceSavingSketch tuesday = new SpaceSavingSketch(2);
+        monday.add(1, 5);
+        monday.add(2, 4);
+        tuesday.add(3, 3);
+        tuesday.add(1, 2);
+        tuesday.add(4, 6);
+
+        // When
+        Map<Integer, Long> totals = SpaceSavingSketch.merge(List.of(monday, tuesday));
+
+        // Then: brakujący dzień dokłada swój najmniejszy licznik (poniedziałek 4, wtorek 3)
+        assertEquals(0, tuesday.estimate(1));
+        assertEquals(Map.of(1, 8L, 2, 7L, 3, 7L, 4, 12L), totals);
+    }
+
+    @Test
+    void add_shouldKeepSpaceSavingBounds_onRandomStream() {
+        // Given
+        SpaceSavingSketch sketch = new SpaceSavingSketch(8);
+        Map<Integer, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+
+        // When
+        for (int i = 0; i < 20_000; i++) {
+            int item = random.nextInt(40);
+            long amount = 1 + random.nextInt(3);
+            sketch.add(item, amount);
+            exact.merge(item, amount, Long::sum);
+        }
+
+        // Then
+        assertEquals(8, sketch.size());
+        for (Map.Entry<Integer, Long> entry : exact.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate == 0 || estimate - sketch.error(entry.getKey()) <= entry.getValue());
+            assertTrue(estimate == 0 || estimate >= entry.getValue());
+            assertTrue(estimate != 0 || entry.getValue() <= sketch.untrackedBound());
+        }
+    }
+}
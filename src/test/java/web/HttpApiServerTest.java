@@ -0,0 +1,196 @@
+package web;
+
+import config.TestContexts;
+import metrics.MethodMetrics;
+import metrics.MetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import repository.BookRepository;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpApiServerTest {
+
+    private static final int CONCURRENT_REQUESTS = 1000;
+
+    private AnnotationConfigApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() {
+        System.setProperty("http.enabled", "true");
+        System.setProperty("http.port", "0");
+        try {
+            context = TestContexts.inMemory();
+        } finally {
+            System.clearProperty("http.enabled");
+            System.clearProperty("http.port");
+        }
+        baseUrl = "http://localhost:" + context.getBean(HttpApiServer.class).getPort();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Test
+    void loanLifecycle_shouldWorkOverHttp() throws Exception {
+        // Given
+        String token = login("user", "user123");
+        int bookId = firstBookId("Diuna");
+
+        // When
+        HttpResponse<String> rent = post("/api/books/" + bookId + "/loan", token, "");
+        HttpResponse<String> rentAgain = post("/api/books/" + bookId + "/loan", token, "");
+        HttpResponse<String> loans = get("/api/me/loans", token);
+        HttpResponse<String> returned = post("/api/books/" + bookId + "/return", token, "");
+
+        // Then
+        assertEquals(200, rent.statusCode());
+        assertTrue(rent.body().contains("\"status\":\"LOANED\""));
+        assertEquals(409, rentAgain.statusCode());
+        assertTrue(rentAgain.body().contains("\"error\":"));
+        assertTrue(loans.body().contains("\"bookId\":" + bookId));
+        assertEquals(200, returned.statusCode());
+        assertTrue(returned.body().contains("\"status\":\"AVAILABLE\""));
+    }
+
+    @Test
+    void protectedRoutes_shouldRequireSession_andReportErrorsAsJson() throws Exception {
+        // When
+        HttpResponse<String> anonymous = get("/api/me/loans", null);
+        HttpResponse<String> badLogin = post("/api/login", null, "username=user&password=zle");
+        HttpResponse<String> missing = get("/api/books/999999", null);
+        HttpResponse<String> badId = get("/api/books/abc", null);
+        HttpResponse<String> wrongMethod = get("/api/login", null);
+
+        // Then
+        assertEquals(401, anonymous.statusCode());
+        assertEquals(401, badLogin.statusCode());
+        assertEquals(404, missing.statusCode());
+        assertEquals(400, badId.statusCode());
+        assertEquals(405, wrongMethod.statusCode());
+        assertEquals("application/json; charset=utf-8", missing.headers().firstValue("Content-Type").orElse(""));
+    }
+
+    @Test
+    void searchAndStats_shouldServeThousandsOfConcurrentRequests() throws Exception {
+        // Given
+        List<Callable<Integer>> requests = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            String path = i % 2 == 0 ? "/api/books?q=hobbit" : "/api/stats?limit=3";
+            requests.add(() -> get(path, null).statusCode());
+        }
+
+        // When
+        List<Future<Integer>> results;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            results = clients.invokeAll(requests);
+        }
+
+        // Then
+        for (Future<Integer> result : results) {
+            assertEquals(200, result.get());
+        }
+        MetricsRegistry registry = context.getBean(MetricsRegistry.class);
+        MethodMetrics search = registry.forMethod("HttpApi", "GET /api/books");
+        assertEquals(CONCURRENT_REQUESTS / 2, search.getCount());
+        assertEquals(0, search.getErrors());
+        assertTrue(get("/api/books?q=hobbit", null).body().contains("\"title\":\"Hobbit, czyli tam i z powrotem\""));
+    }
+
+    @Test
+    void bookListing_shouldReportFullTotal_andPageWithCursor() throws Exception {
+        // Given
+        int catalogSize = context.getBean(BookRepository.class).countAllBooks();
+
+        // When
+        String first = get("/api/books?limit=2", null).body();
+        Matcher cursor = Pattern.compile("\"nextCursor\":\"([^\"]+)\"").matcher(first);
+        assertTrue(cursor.find());
+        String second = get("/api/books?limit=2&cursor=" + cursor.group(1), null).body();
+        HttpResponse<String> badCursor = get("/api/books?cursor=zly", null);
+
+        // Then
+        assertTrue(first.startsWith("{\"total\":" + catalogSize + ","));
+        assertTrue(second.startsWith("{\"total\":" + catalogSize + ","));
+        List<String> firstIds = ids(first);
+        List<String> secondIds = ids(second);
+        assertEquals(2, firstIds.size());
+        assertFalse(secondIds.isEmpty());
+        assertTrue(Integer.parseInt(secondIds.get(0)) > Integer.parseInt(firstIds.get(1)));
+        assertEquals(400, badCursor.statusCode());
+    }
+
+    @Test
+    void jsonWriter_shouldEscapeStringsAndSeparateElements() {
+        String json = new JsonWriter().beginObject()
+                .field("text", "cudzysłów \" i \\ oraz\nnowa linia\u0001")
+                .name("list").beginArray().value(1).value(true).nullValue().beginObject().endObject().endArray()
+                .field("last", 2)
+                .endObject().toString();
+
+        assertEquals("{\"text\":\"cudzysłów \\\" i \\\\ oraz\\nnowa linia\\u0001\",\"list\":[1,true,null,{}],\"last\":2}", json);
+    }
+
+    private String login(String username, String password) throws Exception {
+        HttpResponse<String> response = post("/api/login", null, "username=" + username + "&password=" + password);
+        assertEquals(200, response.statusCode());
+        Matcher matcher = Pattern.compile("\"token\":\"([^\"]+)\"").matcher(response.body());
+        assertTrue(matcher.find());
+        return matcher.group(1);
+    }
+
+    private static List<String> ids(String body) {
+        Matcher matcher = Pattern.compile("\"id\":(\\d+)").matcher(body);
+        List<String> ids = new ArrayList<>();
+        while (matcher.find()) {
+            ids.add(matcher.group(1));
+        }
+        return ids;
+    }
+
+    private int firstBookId(String query) throws Exception {
+        Matcher matcher = Pattern.compile("\"id\":(\\d+)").matcher(get("/api/books?q=" + query, null).body());
+        assertTrue(matcher.find());
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private HttpResponse<String> get(String path, String token) throws Exception {
+        return client.send(request(path, token).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String token, String form) throws Exception {
+        HttpRequest.Builder builder = request(path, token)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form));
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+}